@@ -0,0 +1,70 @@
+package de.tebrox.vertexCore.bench;
+
+import de.tebrox.vertexCore.database.JsonCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode / decode of the same object through the generated codec and through JsonCodec's reflection path.
+ * Run: java -jar benchmarks/target/benchmarks.jar CodecBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    @SuppressWarnings("unchecked")
+    private static final Class<ReflectivePlayer<Void>> REFLECTIVE = (Class<ReflectivePlayer<Void>>) (Class<?>) ReflectivePlayer.class;
+
+    private JsonCodec codec;
+    private GeneratedPlayer generated;
+    private ReflectivePlayer<Void> reflective;
+    private String generatedJson;
+    private String reflectiveJson;
+
+    @Setup
+    public void setup() {
+        codec = new JsonCodec();
+        // a missing codec would silently compare reflection with itself
+        if (!codec.hasGeneratedCodec(GeneratedPlayer.class)) throw new IllegalStateException("CodecProcessor did not run");
+        if (codec.hasGeneratedCodec(REFLECTIVE)) throw new IllegalStateException("ReflectivePlayer got a generated codec");
+
+        generated = new GeneratedPlayer().fill(42);
+        reflective = new ReflectivePlayer<Void>().fill(42);
+        generatedJson = codec.toJson(GeneratedPlayer.class, generated);
+        reflectiveJson = codec.toJson(REFLECTIVE, reflective);
+    }
+
+    @Benchmark
+    public String encodeGenerated() {
+        return codec.toJson(GeneratedPlayer.class, generated);
+    }
+
+    @Benchmark
+    public String encodeReflective() {
+        return codec.toJson(REFLECTIVE, reflective);
+    }
+
+    @Benchmark
+    public GeneratedPlayer decodeGenerated() {
+        return codec.fromJson(GeneratedPlayer.class, generatedJson);
+    }
+
+    @Benchmark
+    public ReflectivePlayer<Void> decodeReflective() {
+        return codec.fromJson(REFLECTIVE, reflectiveJson);
+    }
+}
@@ -0,0 +1,30 @@
+package de.tebrox.vertexCore.bench;
+
+import de.tebrox.vertexCore.database.annotation.DbExpose;
+
+import java.util.List;
+import java.util.Map;
+
+// CodecProcessor generates GeneratedPlayer_VertexCodec for this class
+public class GeneratedPlayer {
+    @DbExpose private String name;
+    @DbExpose private int level;
+    @DbExpose private long kills;
+    @DbExpose double coins;
+    @DbExpose boolean online;
+    @DbExpose List<String> tags;
+    @DbExpose Map<String, Integer> stats;
+
+    public GeneratedPlayer() {}
+
+    GeneratedPlayer fill(int i) {
+        name = "player" + i;
+        level = i % 100;
+        kills = i * 37L;
+        coins = i * 1.5;
+        online = (i & 1) == 0;
+        tags = List.of("vip", "builder", "t" + i);
+        stats = Map.of("deaths", i, "wins", i / 2, "games", i * 3);
+        return this;
+    }
+}
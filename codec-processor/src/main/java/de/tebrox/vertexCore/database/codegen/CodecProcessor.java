@@ -0,0 +1,342 @@
+package de.tebrox.vertexCore.database.codegen;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Generates a {@code GeneratedCodec} for every class with {@code @DbExpose} fields and lists it in
+ * META-INF/services so JsonCodec can pick it up. Classes it can't handle (generic, abstract, final
+ * exposed fields, no usable no-arg constructor) are skipped and keep using reflection.
+ * Built as its own artifact without a dependency on VertexCore: annotations are matched by name.
+ */
+@SupportedAnnotationTypes(CodecProcessor.DB_EXPOSE)
+public final class CodecProcessor extends AbstractProcessor {
+
+    static final String DB_EXPOSE = "de.tebrox.vertexCore.database.annotation.DbExpose";
+    static final String SERVICE_FILE = "META-INF/services/de.tebrox.vertexCore.database.codec.GeneratedCodec";
+    static final String SUFFIX = "_VertexCodec";
+
+    private final Set<String> processed = new HashSet<>();
+    private final Set<String> codecs = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        if (round.processingOver()) {
+            if (!codecs.isEmpty()) writeServiceFile();
+            return false;
+        }
+
+        TypeElement dbExpose = processingEnv.getElementUtils().getTypeElement(DB_EXPOSE);
+        if (dbExpose == null) return false;
+
+        for (VariableElement field : ElementFilter.fieldsIn(round.getElementsAnnotatedWith(dbExpose))) {
+            if (!(field.getEnclosingElement() instanceof TypeElement owner)) continue;
+            if (!processed.add(owner.getQualifiedName().toString())) continue;
+
+            String problem = unsupported(owner);
+            if (problem != null) {
+                note(owner, "no generated codec for " + owner.getQualifiedName() + " (" + problem + "), reflection is used");
+                continue;
+            }
+
+            try {
+                codecs.add(generate(owner));
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Codec generation failed: " + e.getMessage(), owner);
+            }
+        }
+        return false;
+    }
+
+    private String unsupported(TypeElement owner) {
+        if (owner.getKind() != ElementKind.CLASS) return "not a class";
+        if (owner.getModifiers().contains(Modifier.ABSTRACT)) return "abstract";
+        if (owner.getModifiers().contains(Modifier.PRIVATE)) return "private class";
+        if (!owner.getTypeParameters().isEmpty()) return "generic class";
+
+        for (Element e = owner; e.getEnclosingElement() instanceof TypeElement outer; e = outer) {
+            if (!e.getModifiers().contains(Modifier.STATIC)) return "inner class";
+            if (outer.getModifiers().contains(Modifier.PRIVATE)) return "private enclosing class";
+        }
+
+        boolean ctor = ElementFilter.constructorsIn(owner.getEnclosedElements()).stream()
+                .anyMatch(c -> c.getParameters().isEmpty() && !c.getModifiers().contains(Modifier.PRIVATE));
+        if (!ctor) return "no accessible no-arg constructor";
+
+        for (VariableElement f : exposedFields(owner)) {
+            if (f.getModifiers().contains(Modifier.FINAL)) return "final field " + f.getSimpleName();
+            if (containsTypeVariable(f.asType())) return "type variable in field " + f.getSimpleName();
+        }
+        return null;
+    }
+
+    private static List<VariableElement> exposedFields(TypeElement owner) {
+        List<VariableElement> out = new ArrayList<>();
+        for (VariableElement f : ElementFilter.fieldsIn(owner.getEnclosedElements())) {
+            if (f.getModifiers().contains(Modifier.STATIC)) continue;
+            if (!isExposed(f)) continue;
+            out.add(f);
+        }
+        return out;
+    }
+
+    private static boolean isExposed(VariableElement f) {
+        for (AnnotationMirror a : f.getAnnotationMirrors()) {
+            if (((TypeElement) a.getAnnotationType().asElement()).getQualifiedName().contentEquals(DB_EXPOSE)) return true;
+        }
+        return false;
+    }
+
+    // source name without TYPE_USE annotations (TypeMirror.toString() keeps them, e.g. "java.lang.@Nullable String")
+    private static String sourceName(TypeMirror t) {
+        if (t.getKind().isPrimitive()) return t.getKind().name().toLowerCase(Locale.ROOT);
+        if (t instanceof ArrayType at) return sourceName(at.getComponentType()) + "[]";
+        if (t instanceof WildcardType wt) {
+            if (wt.getExtendsBound() != null) return "? extends " + sourceName(wt.getExtendsBound());
+            if (wt.getSuperBound() != null) return "? super " + sourceName(wt.getSuperBound());
+            return "?";
+        }
+        if (t instanceof DeclaredType dt) {
+            StringBuilder sb = new StringBuilder(((TypeElement) dt.asElement()).getQualifiedName());
+            if (!dt.getTypeArguments().isEmpty()) {
+                StringJoiner args = new StringJoiner(", ", "<", ">");
+                for (TypeMirror arg : dt.getTypeArguments()) args.add(sourceName(arg));
+                sb.append(args);
+            }
+            return sb.toString();
+        }
+        return t.toString();
+    }
+
+    private static boolean containsTypeVariable(TypeMirror t) {
+        if (t.getKind() == TypeKind.TYPEVAR) return true;
+        if (t instanceof ArrayType at) return containsTypeVariable(at.getComponentType());
+        if (t instanceof DeclaredType dt) {
+            for (TypeMirror arg : dt.getTypeArguments()) {
+                if (containsTypeVariable(arg)) return true;
+            }
+        }
+        if (t instanceof WildcardType wt) {
+            if (wt.getExtendsBound() != null && containsTypeVariable(wt.getExtendsBound())) return true;
+            if (wt.getSuperBound() != null && containsTypeVariable(wt.getSuperBound())) return true;
+        }
+        return false;
+    }
+
+    // ---------------- source generation ----------------
+
+    private String generate(TypeElement owner) throws IOException {
+        String pkg = processingEnv.getElementUtils().getPackageOf(owner).getQualifiedName().toString();
+        String target = owner.getQualifiedName().toString();
+        String simple = binarySimpleName(owner, pkg) + SUFFIX;
+        String qualified = pkg.isEmpty() ? simple : pkg + "." + simple;
+
+        List<FieldModel> fields = new ArrayList<>();
+        for (VariableElement f : exposedFields(owner)) fields.add(new FieldModel(f));
+
+        StringBuilder src = new StringBuilder();
+        if (!pkg.isEmpty()) src.append("package ").append(pkg).append(";\n\n");
+        src.append("// generated by VertexCore CodecProcessor - do not edit\n");
+        src.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        src.append("public final class ").append(simple)
+                .append(" implements de.tebrox.vertexCore.database.codec.GeneratedCodec<").append(target).append("> {\n\n");
+
+        // private fields are accessed through static final VarHandles (inlined by the JIT)
+        boolean anyPrivate = fields.stream().anyMatch(f -> f.isPrivate);
+        for (FieldModel f : fields) {
+            if (f.isPrivate) src.append("    private static final java.lang.invoke.VarHandle ").append(f.handle()).append(";\n");
+        }
+        if (anyPrivate) {
+            src.append("\n    static {\n        try {\n");
+            src.append("            java.lang.invoke.MethodHandles.Lookup lookup = java.lang.invoke.MethodHandles.privateLookupIn(")
+                    .append(target).append(".class, java.lang.invoke.MethodHandles.lookup());\n");
+            for (FieldModel f : fields) {
+                if (!f.isPrivate) continue;
+                src.append("            ").append(f.handle()).append(" = lookup.findVarHandle(").append(target).append(".class, \"")
+                        .append(f.name).append("\", ").append(f.erasure).append(".class);\n");
+            }
+            src.append("        } catch (ReflectiveOperationException e) {\n            throw new ExceptionInInitializerError(e);\n        }\n    }\n");
+        }
+
+        for (FieldModel f : fields) {
+            if (f.kind == Kind.ADAPTER) {
+                src.append("    private com.google.gson.TypeAdapter<").append(f.type).append("> ").append(f.adapter()).append(";\n");
+            }
+        }
+
+        src.append("\n    @Override\n    public Class<").append(target).append("> type() {\n        return ").append(target).append(".class;\n    }\n");
+
+        src.append("\n    @Override\n    public void bind(com.google.gson.Gson gson) {\n");
+        for (FieldModel f : fields) {
+            if (f.kind != Kind.ADAPTER) continue;
+            src.append("        ").append(f.adapter()).append(" = gson.getAdapter(new com.google.gson.reflect.TypeToken<")
+                    .append(f.type).append(">() {});\n");
+        }
+        src.append("    }\n");
+
+        src.append("\n    @Override\n    public ").append(target).append(" newInstance() {\n        return new ").append(target).append("();\n    }\n");
+
+        src.append("\n    @Override\n    public void writeFields(").append(target)
+                .append(" obj, com.google.gson.stream.JsonWriter out) throws java.io.IOException {\n");
+        for (FieldModel f : fields) src.append(f.write());
+        src.append("    }\n");
+
+        src.append("\n    @Override\n    public boolean readField(").append(target)
+                .append(" obj, String name, com.google.gson.stream.JsonReader in) throws java.io.IOException {\n");
+        src.append("        switch (name) {\n");
+        for (FieldModel f : fields) src.append(f.read());
+        src.append("            default:\n                return false;\n        }\n    }\n}\n");
+
+        Filer filer = processingEnv.getFiler();
+        try (Writer w = filer.createSourceFile(qualified, owner).openWriter()) {
+            w.write(src.toString());
+        }
+        return qualified;
+    }
+
+    private static String binarySimpleName(TypeElement owner, String pkg) {
+        String name = owner.getQualifiedName().toString();
+        if (!pkg.isEmpty()) name = name.substring(pkg.length() + 1);
+        return name.replace('.', '_');
+    }
+
+    private void writeServiceFile() {
+        Filer filer = processingEnv.getFiler();
+        Set<String> all = new TreeSet<>(codecs);
+
+        // incremental builds: keep entries from classes that weren't recompiled
+        try {
+            FileObject existing = filer.getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (BufferedReader r = new BufferedReader(existing.openReader(true))) {
+                r.lines().map(String::trim).filter(l -> !l.isEmpty() && !l.startsWith("#")).forEach(all::add);
+            }
+        } catch (IOException | IllegalArgumentException ignored) {
+            // no previous service file
+        }
+
+        try {
+            FileObject out = filer.createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (Writer w = new java.io.OutputStreamWriter(out.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String codec : all) w.write(codec + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + SERVICE_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private void note(Element e, String msg) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, msg, e);
+    }
+
+    private enum Kind { BOOLEAN, BYTE, SHORT, INT, LONG, FLOAT, DOUBLE, CHAR, STRING, ADAPTER }
+
+    private final class FieldModel {
+        final String name;
+        final String type;
+        final String erasure;
+        final boolean isPrivate;
+        final boolean primitive;
+        final Kind kind;
+
+        FieldModel(VariableElement f) {
+            TypeMirror t = f.asType();
+            this.name = f.getSimpleName().toString();
+            this.type = sourceName(t);
+            this.erasure = sourceName(processingEnv.getTypeUtils().erasure(t));
+            this.isPrivate = f.getModifiers().contains(Modifier.PRIVATE);
+            this.primitive = t.getKind().isPrimitive();
+            this.kind = kindOf(t);
+        }
+
+        private Kind kindOf(TypeMirror t) {
+            String boxed = t.getKind().isPrimitive() ? t.getKind().name() : switch (sourceName(t)) {
+                case "java.lang.Boolean" -> "BOOLEAN";
+                case "java.lang.Byte" -> "BYTE";
+                case "java.lang.Short" -> "SHORT";
+                case "java.lang.Integer" -> "INT";
+                case "java.lang.Long" -> "LONG";
+                case "java.lang.Float" -> "FLOAT";
+                case "java.lang.Double" -> "DOUBLE";
+                case "java.lang.Character" -> "CHAR";
+                case "java.lang.String" -> "STRING";
+                default -> "ADAPTER";
+            };
+            return Kind.valueOf(boxed);
+        }
+
+        String handle() { return "H_" + name; }
+        String adapter() { return "A_" + name; }
+
+        String get() {
+            return isPrivate ? "((" + type + ") " + handle() + ".get(obj))" : "obj." + name;
+        }
+
+        String set(String expr) {
+            return isPrivate ? handle() + ".set(obj, " + expr + ");" : "obj." + name + " = " + expr + ";";
+        }
+
+        String write() {
+            String key = "out.name(\"" + name + "\")";
+            if (primitive) {
+                String v = kind == Kind.CHAR ? "String.valueOf(" + get() + ")" : get();
+                return "        " + key + ".value(" + v + ");\n";
+            }
+            // null values are left out, same as the reflective codec
+            String value = switch (kind) {
+                case CHAR -> key + ".value(String.valueOf(v));";
+                case ADAPTER -> "{ " + key + "; " + adapter() + ".write(out, v); }";
+                default -> key + ".value(v);";
+            };
+            return "        { " + type + " v = " + get() + "; if (v != null) " + value + " }\n";
+        }
+
+        String read() {
+            String value = switch (kind) {
+                case BOOLEAN -> "in.nextBoolean()";
+                case BYTE -> "(byte) in.nextInt()";
+                case SHORT -> "(short) in.nextInt()";
+                case INT -> "in.nextInt()";
+                case LONG -> "in.nextLong()";
+                case FLOAT -> "(float) in.nextDouble()";
+                case DOUBLE -> "in.nextDouble()";
+                case CHAR -> "in.nextString().charAt(0)";
+                case STRING -> "in.nextString()";
+                case ADAPTER -> adapter() + ".read(in)";
+            };
+            if (!primitive && kind != Kind.STRING && kind != Kind.ADAPTER) value = "(" + type + ") " + value;
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("            case \"").append(name).append("\":\n");
+            sb.append("                if (in.peek() == com.google.gson.stream.JsonToken.NULL) {\n");
+            sb.append("                    in.nextNull();\n");
+            if (!primitive) sb.append("                    ").append(set("(" + type + ") null")).append("\n");
+            sb.append("                    return true;\n                }\n");
+            sb.append("                ").append(set(value)).append("\n");
+            sb.append("                return true;\n");
+            return sb.toString();
+        }
+    }
+}
@@ -5,14 +5,20 @@ import de.tebrox.vertexCore.command.annotation.*;
 import de.tebrox.vertexCore.command.api.CommandContext;
 import de.tebrox.vertexCore.command.api.VisibilityPolicy;
 import de.tebrox.vertexCore.database.DatabaseBackend;
+import de.tebrox.vertexCore.database.DatabaseService;
 import de.tebrox.vertexCore.database.DatabaseSettings;
 import de.tebrox.vertexCore.database.PluginDataRegistry;
+import de.tebrox.vertexCore.database.backend.CircuitBreakerBackend;
+import de.tebrox.vertexCore.database.backend.JdbcDatabaseBackend;
+import de.tebrox.vertexCore.database.backend.ShardedDatabaseBackend;
 import de.tebrox.vertexCore.database.migration.*;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.plugin.Plugin;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @VAliasConfigSource(
@@ -21,7 +27,8 @@ import java.util.stream.Collectors;
 )
 public final class VertexCoreAdminCommands {
 
-    private static final List<String> BACKENDS = List.of("json", "h2", "mysql");
+    private static final List<String> BACKENDS = List.of("json", "h2", "mysql", "sharded");
+    private static final String ROUTED = "routed";
     private static final List<String> FLAGS = List.of("--dry-run", "--overwrite", "--delete-source", "--confirm");
 
     private final Plugin corePlugin;
@@ -36,8 +43,122 @@ public final class VertexCoreAdminCommands {
     @VAlias({"vc"})
     @VDesc("VertexCore admin commands")
     public void root(CommandContext ctx) {
-        ctx.reply("Usage: /" + ctx.label() + " migrate <plugin> <from> <to> [--dry-run] [--overwrite] [--delete-source --confirm]");
-        ctx.reply("Backends: json | h2 | mysql");
+        ctx.reply("Usage: /" + ctx.label() + " migrate <plugin> <from> <to|routed> [--dry-run] [--overwrite] [--delete-source --confirm]");
+        ctx.reply("Usage: /" + ctx.label() + " stats [plugin]");
+        ctx.reply("Usage: /" + ctx.label() + " h2 <plugin> [compact]");
+        ctx.reply("Usage: /" + ctx.label() + " breaker <plugin>");
+        ctx.reply("Usage: /" + ctx.label() + " rebalance <plugin> [--dry-run]");
+        ctx.reply("Backends: json | h2 | mysql | sharded");
+    }
+
+    @VSub("vertexcore stats")
+    @VDesc("Show VertexCore database metrics")
+    @VPerm(value = "vertexcore.stats", visibility = VisibilityPolicy.IF_EXECUTABLE)
+    public void stats(CommandContext ctx) {
+        String[] args = ctx.rawArgs();
+        String prefix = args.length >= 2 ? args[1].toLowerCase(Locale.ROOT) + "/" : null;
+
+        Map<String, Long> snapshot = VertexCoreApi.get().databaseService().metrics().snapshot(prefix);
+        if (snapshot.isEmpty()) {
+            ctx.reply("No database metrics" + (prefix == null ? "." : " for " + args[1] + "."));
+            return;
+        }
+        snapshot.forEach((k, v) -> ctx.reply(k + " = " + v));
+    }
+
+    @VSub("vertexcore h2")
+    @VDesc("Show H2 file size / fill rate of a plugin, or compact the file")
+    @VPerm(value = "vertexcore.maintenance", visibility = VisibilityPolicy.IF_EXECUTABLE)
+    public void h2(CommandContext ctx) {
+        String[] args = ctx.rawArgs();
+        if (args.length < 2) {
+            ctx.reply("Usage: /" + ctx.label() + " h2 <plugin> [compact]");
+            return;
+        }
+        boolean compact = args.length >= 3 && args[2].equalsIgnoreCase("compact");
+
+        PluginDataRegistry.Entry entry = registry.get(args[1]);
+        Plugin targetPlugin = Bukkit.getPluginManager().getPlugin(args[1]);
+        if (entry == null || targetPlugin == null || !targetPlugin.isEnabled()) {
+            ctx.reply("Plugin not registered or not enabled: " + args[1]);
+            return;
+        }
+
+        DatabaseSettings base = entry.settingsSupplier().get();
+        DatabaseSettings h2 = entry.routedSettings(base).stream()
+                .filter(s -> s.backend().equalsIgnoreCase("h2"))
+                .findFirst().orElse(null);
+        if (h2 == null) {
+            ctx.reply(targetPlugin.getName() + " has no tables on h2.");
+            return;
+        }
+
+        DatabaseService service = VertexCoreApi.get().databaseService();
+        // not on the plugin's queue: a compaction may take longer than its timeout
+        CompletableFuture.supplyAsync(() -> {
+            JdbcDatabaseBackend backend = service.h2Backend(targetPlugin, h2);
+            if (backend == null) return List.of("Not an embedded H2 file database.");
+
+            JdbcDatabaseBackend.StorageStats stats = backend.storageStats();
+            List<String> out = new ArrayList<>();
+            out.add(stats.file().getName() + ": " + formatBytes(stats.fileBytes())
+                    + ", fill rate " + (stats.fillRate() < 0 ? "unknown" : stats.fillRate() + "%")
+                    + ", idle " + stats.idleMillis() / 1000 + "s");
+            if (!compact) return out;
+
+            JdbcDatabaseBackend.CompactResult r = service.compactH2(targetPlugin, backend, 10_000);
+            out.add(r == null
+                    ? "Not compacted: connections still in use, try again later."
+                    : "Compacted: " + formatBytes(r.bytesBefore()) + " -> " + formatBytes(r.bytesAfter())
+                            + " in " + r.millis() + " ms");
+            return out;
+        }, r -> Bukkit.getScheduler().runTaskAsynchronously(corePlugin, r))
+                .whenComplete((lines, err) -> Bukkit.getScheduler().runTask(corePlugin, () -> {
+                    if (err != null) {
+                        Throwable u = unwrap(err);
+                        ctx.reply("H2 maintenance failed: " + (u.getMessage() == null ? u.getClass().getSimpleName() : u.getMessage()));
+                    } else {
+                        lines.forEach(ctx::reply);
+                    }
+                }));
+    }
+
+    @VSub("vertexcore breaker")
+    @VDesc("Show the circuit breaker state of a plugin's database backends")
+    @VPerm(value = "vertexcore.stats", visibility = VisibilityPolicy.IF_EXECUTABLE)
+    public void breaker(CommandContext ctx) {
+        String[] args = ctx.rawArgs();
+        if (args.length < 2) {
+            ctx.reply("Usage: /" + ctx.label() + " breaker <plugin>");
+            return;
+        }
+
+        PluginDataRegistry.Entry entry = registry.get(args[1]);
+        Plugin targetPlugin = Bukkit.getPluginManager().getPlugin(args[1]);
+        if (entry == null || targetPlugin == null || !targetPlugin.isEnabled()) {
+            ctx.reply("Plugin not registered or not enabled: " + args[1]);
+            return;
+        }
+
+        DatabaseService service = VertexCoreApi.get().databaseService();
+        boolean any = false;
+        for (DatabaseSettings s : entry.routedSettings(entry.settingsSupplier().get())) {
+            for (CircuitBreakerBackend breaker : service.breakersFor(targetPlugin, s)) {
+                any = true;
+                CircuitBreakerBackend.Status st = breaker.status();
+                ctx.reply(breaker.name() + ": " + st.state()
+                        + (st.state() == CircuitBreakerBackend.State.OPEN ? " (probe in " + st.openRemainingMillis() / 1000 + "s)" : "")
+                        + ", failures " + st.failures() + ", opened " + st.opened()
+                        + ", rejected " + st.rejected() + ", retried " + st.retried());
+            }
+        }
+        if (!any) ctx.reply(targetPlugin.getName() + " has no JDBC backend with a circuit breaker.");
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format(Locale.ROOT, "%.1f KiB", bytes / 1024.0);
+        return String.format(Locale.ROOT, "%.1f MiB", bytes / (1024.0 * 1024));
     }
 
     @VSub("vertexcore migrate")
@@ -48,7 +169,7 @@ public final class VertexCoreAdminCommands {
         // rawArgs includes everything after the registered label (e.g. "migrate ...").
         String[] args = ctx.rawArgs();
 
-        // expected: migrate <plugin> <from> <to> [flags...]
+        // expected: migrate <plugin> <from> <to|routed> [flags...]
         if (args.length == 0 || !args[0].equalsIgnoreCase("migrate")) {
             usage(ctx);
             return;
@@ -63,8 +184,8 @@ public final class VertexCoreAdminCommands {
         String from = args[2].toLowerCase(Locale.ROOT);
         String to = args[3].toLowerCase(Locale.ROOT);
 
-        if (!BACKENDS.contains(from) || !BACKENDS.contains(to)) {
-            ctx.reply("Backends: json | h2 | mysql");
+        if (!BACKENDS.contains(from) || !(BACKENDS.contains(to) || to.equals(ROUTED))) {
+            ctx.reply("Backends: json | h2 | mysql | sharded (target may also be '" + ROUTED + "')");
             return;
         }
 
@@ -81,8 +202,10 @@ public final class VertexCoreAdminCommands {
         }
 
         DatabaseSettings base = entry.settingsSupplier().get();
-        DatabaseSettings sourceSettings = wrapBackend(base, from);
-        DatabaseSettings targetSettings = wrapBackend(base, to);
+        DatabaseSettings sourceSettings = base.withBackend(from);
+        // "routed": every table goes to the backend it is routed to (settings / @DbBackend)
+        boolean routed = to.equals(ROUTED);
+        DatabaseSettings targetSettings = routed ? base : base.withBackend(to);
 
         MigrationOptions opt = new MigrationOptions();
         opt.dryRun = hasFlag(args, "--dry-run");
@@ -104,7 +227,9 @@ public final class VertexCoreAdminCommands {
 
         VertexCoreApi api = VertexCoreApi.get();
         DatabaseBackend source = api.backendFor(targetPlugin, sourceSettings);
-        DatabaseBackend target = api.backendFor(targetPlugin, targetSettings);
+        Function<Class<?>, DatabaseBackend> target = routed
+                ? type -> api.backendFor(targetPlugin, targetSettings.forType(type))
+                : type -> api.backendFor(targetPlugin, targetSettings);
 
         MigrationProgress progress = new ConsoleMigrationProgress(targetPlugin.getLogger());
         DatabaseMigrationRunner runner = new DatabaseMigrationRunner();
@@ -112,7 +237,7 @@ public final class VertexCoreAdminCommands {
         api.databaseService()
                 .queueFor(targetPlugin, base.timeoutMillis())
                 .submit(() -> {
-                    runner.migrateAll(source, target, base.tablePrefix(), entry.dataClasses(), opt, progress);
+                    runner.migrateAll(type -> source, target, base.tablePrefix(), entry.dataClasses(), opt, progress);
                     return null;
                 })
                 .whenComplete((v, err) -> Bukkit.getScheduler().runTask(corePlugin, () -> {
@@ -127,8 +252,62 @@ public final class VertexCoreAdminCommands {
     }
 
     private void usage(CommandContext ctx) {
-        ctx.reply("Usage: /" + ctx.label() + " migrate <plugin> <from> <to> [--dry-run] [--overwrite] [--delete-source --confirm]");
-        ctx.reply("Backends: json | h2 | mysql");
+        ctx.reply("Usage: /" + ctx.label() + " migrate <plugin> <from> <to|routed> [--dry-run] [--overwrite] [--delete-source --confirm]");
+        ctx.reply("Backends: json | h2 | mysql | sharded");
+    }
+
+    @VSub("vertexcore rebalance")
+    @VDesc("Move rows of a sharded backend to their shard after shards were added")
+    @VPerm(value = "vertexcore.migrate", visibility = VisibilityPolicy.IF_EXECUTABLE)
+    public void rebalance(CommandContext ctx) {
+        String[] args = ctx.rawArgs();
+        if (args.length < 2) {
+            ctx.reply("Usage: /" + ctx.label() + " rebalance <plugin> [--dry-run]");
+            return;
+        }
+
+        PluginDataRegistry.Entry entry = registry.get(args[1]);
+        Plugin targetPlugin = Bukkit.getPluginManager().getPlugin(args[1]);
+        if (entry == null || targetPlugin == null || !targetPlugin.isEnabled()) {
+            ctx.reply("Plugin not registered or not enabled: " + args[1]);
+            return;
+        }
+
+        DatabaseSettings sharded = entry.routedSettings(entry.settingsSupplier().get()).stream()
+                .filter(s -> s.backend().equalsIgnoreCase("sharded"))
+                .findFirst().orElse(null);
+        if (sharded == null) {
+            ctx.reply(targetPlugin.getName() + " has no tables on a sharded backend.");
+            return;
+        }
+
+        MigrationOptions opt = new MigrationOptions();
+        opt.dryRun = hasFlag(args, "--dry-run");
+        opt.batchSize = 500;
+
+        DatabaseService service = VertexCoreApi.get().databaseService();
+        ShardedDatabaseBackend backend = service.shardedBackend(targetPlugin, sharded);
+        ctx.reply("Rebalancing " + targetPlugin.getName() + " over " + backend.shardNames().size() + " shards"
+                + (backend.rebalancePending() ? "" : " (shards unchanged)") + (opt.dryRun ? " (dry-run)" : ""));
+
+        MigrationProgress progress = new ConsoleMigrationProgress(targetPlugin.getLogger());
+        // not on the plugin's queue: moving a large table takes longer than its timeout
+        CompletableFuture.supplyAsync(() -> new ShardRebalancer().rebalanceAll(backend, service.tablesOn(targetPlugin, sharded), opt, progress),
+                        r -> Bukkit.getScheduler().runTaskAsynchronously(corePlugin, r))
+                .whenComplete((results, err) -> Bukkit.getScheduler().runTask(corePlugin, () -> {
+                    if (err != null) {
+                        Throwable u = unwrap(err);
+                        ctx.reply("Rebalance failed: " + (u.getMessage() == null ? u.getClass().getSimpleName() : u.getMessage()));
+                        return;
+                    }
+                    long moved = 0, failed = 0;
+                    for (MigrationResult r : results) {
+                        moved += r.migrated;
+                        failed += r.failed;
+                    }
+                    ctx.reply((opt.dryRun ? "Would move " : "Moved ") + moved + " rows"
+                            + (failed > 0 ? ", " + failed + " failed (run again)" : "") + ".");
+                }));
     }
 
     private static boolean hasFlag(String[] args, String flag) {
@@ -142,26 +321,19 @@ public final class VertexCoreAdminCommands {
         return t;
     }
 
-    private static DatabaseSettings wrapBackend(DatabaseSettings base, String backend) {
-        return new DatabaseSettings() {
-            @Override public String backend() { return backend; }
-            @Override public boolean useQueue() { return base.useQueue(); }
-            @Override public long timeoutMillis() { return base.timeoutMillis(); }
-            @Override public int poolSize() { return base.poolSize(); }
-            @Override public String mysqlUrl() { return base.mysqlUrl(); }
-            @Override public String mysqlUser() { return base.mysqlUser(); }
-            @Override public String mysqlPassword() { return base.mysqlPassword(); }
-            @Override public String tablePrefix() { return base.tablePrefix(); }
-        };
-    }
-
     @VSuggest("vertexcore")
     public List<String> rootSuggest(CommandSender sender, String alias, String[] args) {
-        if (!sender.hasPermission("vertexcore.migrate")) return List.of();
+        List<String> subs = new ArrayList<>();
+        if (sender.hasPermission("vertexcore.migrate")) subs.add("migrate");
+        if (sender.hasPermission("vertexcore.migrate")) subs.add("rebalance");
+        if (sender.hasPermission("vertexcore.stats")) subs.add("stats");
+        if (sender.hasPermission("vertexcore.stats")) subs.add("breaker");
+        if (sender.hasPermission("vertexcore.maintenance")) subs.add("h2");
+        if (subs.isEmpty()) return List.of();
 
         // /vertexcore <TAB>
-        if (args.length == 0) return List.of("migrate"); // brigadier kann hier auch 0 liefern
-        if (args.length == 1) return filter(List.of("migrate"), args[0]);
+        if (args.length == 0) return subs; // brigadier kann hier auch 0 liefern
+        if (args.length == 1) return filter(subs, args[0]);
 
         // Wenn schon subcommand getippt, dann keine Root-Suggestions mehr
         return List.of();
@@ -199,7 +371,9 @@ public final class VertexCoreAdminCommands {
 
         // /vertexcore migrate <plugin> <from> <TAB> -> to backend
         if (args.length == 4) {
-            return filter(BACKENDS, args[3]);
+            List<String> targets = new ArrayList<>(BACKENDS);
+            targets.add(ROUTED);
+            return filter(targets, args[3]);
         }
 
         // flags (1:1 UX)
@@ -231,6 +405,42 @@ public final class VertexCoreAdminCommands {
         return List.of();
     }
 
+    @VSuggest("vertexcore stats")
+    public List<String> statsSuggest(CommandSender sender, String alias, String[] args) {
+        if (!sender.hasPermission("vertexcore.stats")) return List.of();
+        if (args.length == 2) return filter(registeredPlugins(), args[1]);
+        return List.of();
+    }
+
+    @VSuggest("vertexcore rebalance")
+    public List<String> rebalanceSuggest(CommandSender sender, String alias, String[] args) {
+        if (!sender.hasPermission("vertexcore.migrate")) return List.of();
+        if (args.length == 2) return filter(registeredPlugins(), args[1]);
+        if (args.length == 3) return filter(List.of("--dry-run"), args[2]);
+        return List.of();
+    }
+
+    @VSuggest("vertexcore breaker")
+    public List<String> breakerSuggest(CommandSender sender, String alias, String[] args) {
+        if (!sender.hasPermission("vertexcore.stats")) return List.of();
+        if (args.length == 2) return filter(registeredPlugins(), args[1]);
+        return List.of();
+    }
+
+    @VSuggest("vertexcore h2")
+    public List<String> h2Suggest(CommandSender sender, String alias, String[] args) {
+        if (!sender.hasPermission("vertexcore.maintenance")) return List.of();
+        if (args.length == 2) return filter(registeredPlugins(), args[1]);
+        if (args.length == 3) return filter(List.of("compact"), args[2]);
+        return List.of();
+    }
+
+    private List<String> registeredPlugins() {
+        return registry.registeredPluginNames().stream()
+                .sorted(String.CASE_INSENSITIVE_ORDER)
+                .collect(Collectors.toList());
+    }
+
     private static List<String> filter(List<String> options, String token) {
         String t = token == null ? "" : token.toLowerCase(Locale.ROOT);
         return options.stream()
@@ -10,12 +10,14 @@ import org.bukkit.command.*;
 import org.bukkit.plugin.Plugin;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public final class VertexCoreCommand implements CommandExecutor, TabCompleter {
 
     private static final List<String> ROOT = List.of("migrate");
-    private static final List<String> BACKENDS = List.of("json", "h2", "mysql");
+    private static final List<String> BACKENDS = List.of("json", "h2", "mysql", "sharded");
+    private static final String ROUTED = "routed";
     private static final List<String> FLAGS = List.of("--dry-run", "--overwrite", "--delete-source", "--confirm");
 
     private final Plugin corePlugin;
@@ -54,8 +56,8 @@ public final class VertexCoreCommand implements CommandExecutor, TabCompleter {
         String from = args[2].toLowerCase();
         String to = args[3].toLowerCase();
 
-        if (!BACKENDS.contains(from) || !BACKENDS.contains(to)) {
-            sender.sendMessage("Backends: json | h2 | mysql");
+        if (!BACKENDS.contains(from) || !(BACKENDS.contains(to) || to.equals(ROUTED))) {
+            sender.sendMessage("Backends: json | h2 | mysql | sharded (target may also be '" + ROUTED + "')");
             return true;
         }
 
@@ -72,8 +74,10 @@ public final class VertexCoreCommand implements CommandExecutor, TabCompleter {
         }
 
         DatabaseSettings base = entry.settingsSupplier().get();
-        DatabaseSettings sourceSettings = wrapBackend(base, from);
-        DatabaseSettings targetSettings = wrapBackend(base, to);
+        DatabaseSettings sourceSettings = base.withBackend(from);
+        // "routed": every table goes to the backend it is routed to (settings / @DbBackend)
+        boolean routed = to.equals(ROUTED);
+        DatabaseSettings targetSettings = routed ? base : base.withBackend(to);
 
         MigrationOptions opt = new MigrationOptions();
         opt.dryRun = hasFlag(args, "--dry-run");
@@ -95,7 +99,9 @@ public final class VertexCoreCommand implements CommandExecutor, TabCompleter {
 
         VertexCoreApi api = VertexCoreApi.get();
         DatabaseBackend source = api.backendFor(targetPlugin, sourceSettings);
-        DatabaseBackend target = api.backendFor(targetPlugin, targetSettings);
+        Function<Class<?>, DatabaseBackend> target = routed
+                ? type -> api.backendFor(targetPlugin, targetSettings.forType(type))
+                : type -> api.backendFor(targetPlugin, targetSettings);
 
         MigrationProgress progress = new ConsoleMigrationProgress(targetPlugin.getLogger());
         DatabaseMigrationRunner runner = new DatabaseMigrationRunner();
@@ -104,7 +110,7 @@ public final class VertexCoreCommand implements CommandExecutor, TabCompleter {
         api.databaseService()
                 .queueFor(targetPlugin, base.timeoutMillis())
                 .submit(() -> {
-                    runner.migrateAll(source, target, base.tablePrefix(), entry.dataClasses(), opt, progress);
+                    runner.migrateAll(type -> source, target, base.tablePrefix(), entry.dataClasses(), opt, progress);
                     return null;
                 })
                 .whenComplete((v, err) -> Bukkit.getScheduler().runTask(corePlugin, () -> {
@@ -121,8 +127,8 @@ public final class VertexCoreCommand implements CommandExecutor, TabCompleter {
     }
 
     private static void usage(CommandSender sender, String label) {
-        sender.sendMessage("Usage: /" + label + " migrate <plugin> <from> <to> [--dry-run] [--overwrite] [--delete-source]");
-        sender.sendMessage("Backends: json | h2 | mysql");
+        sender.sendMessage("Usage: /" + label + " migrate <plugin> <from> <to|routed> [--dry-run] [--overwrite] [--delete-source]");
+        sender.sendMessage("Backends: json | h2 | mysql | sharded");
     }
 
     private static boolean hasFlag(String[] args, String flag) {
@@ -136,22 +142,6 @@ public final class VertexCoreCommand implements CommandExecutor, TabCompleter {
         return t;
     }
 
-    private static DatabaseSettings wrapBackend(DatabaseSettings base, String backend) {
-        return new DatabaseSettings() {
-            @Override public String backend() { return backend; }
-
-            @Override public boolean useQueue() { return base.useQueue(); }
-            @Override public long timeoutMillis() { return base.timeoutMillis(); }
-            @Override public int poolSize() { return base.poolSize(); }
-
-            @Override public String mysqlUrl() { return base.mysqlUrl(); }
-            @Override public String mysqlUser() { return base.mysqlUser(); }
-            @Override public String mysqlPassword() { return base.mysqlPassword(); }
-
-            @Override public String tablePrefix() { return base.tablePrefix(); }
-        };
-    }
-
     // ---------------- tab complete ----------------
 
     @Override
@@ -180,7 +170,9 @@ public final class VertexCoreCommand implements CommandExecutor, TabCompleter {
 
         // /vertexcore migrate <plugin> <from> <TAB> -> to backend
         if (args.length == 4) {
-            return filter(BACKENDS, args[3]);
+            List<String> targets = new ArrayList<>(BACKENDS);
+            targets.add(ROUTED);
+            return filter(targets, args[3]);
         }
 
         // flags
@@ -1,16 +1,41 @@
 package de.tebrox.vertexCore.database;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import de.tebrox.vertexCore.database.DataObject;
 import de.tebrox.vertexCore.database.DatabaseSettings;
 import de.tebrox.vertexCore.VertexCoreApi;
+import de.tebrox.vertexCore.database.annotation.DbTtl;
+import de.tebrox.vertexCore.database.internal.ExposedFields;
+import de.tebrox.vertexCore.database.internal.JsonFields;
+import de.tebrox.vertexCore.database.internal.ParallelDecoder;
 import de.tebrox.vertexCore.database.internal.TableNamer;
+import de.tebrox.vertexCore.database.internal.TableState;
+import de.tebrox.vertexCore.database.internal.WriteJournal;
+import de.tebrox.vertexCore.database.migration.UpcastRewriter;
+import de.tebrox.vertexCore.database.query.AggregateFunction;
+import de.tebrox.vertexCore.database.query.AggregateQuery;
+import de.tebrox.vertexCore.database.query.FieldCondition;
+import de.tebrox.vertexCore.util.Deadline;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public final class Database<T extends DataObject> implements AutoCloseable {
 
@@ -18,89 +43,867 @@ public final class Database<T extends DataObject> implements AutoCloseable {
     private final DatabaseSettings settings;
     private final Class<T> type;
     private final String table;
+    private final long ttlMillis;
+    private final boolean resident;
+    private final boolean session;
+    private final TableState state;
 
     public Database(Plugin owner, DatabaseSettings settings, Class<T> type) {
         this.owner = owner;
-        this.settings = settings;
+        this.settings = settings.forType(type);
         this.type = type;
-        this.table = TableNamer.tableName(settings.tablePrefix(), type);
+        this.table = TableNamer.tableName(this.settings.tablePrefix(), type);
+        this.ttlMillis = resolveTtl(this.settings, type);
+        // expiry needs the backend's timestamps, TTL tables are never resident
+        this.resident = ttlMillis == 0 && this.settings.resident(type);
+        this.session = !resident && this.settings.session(type);
+        // routed settings everywhere: counter flushes, session writes and purges use state.settings()
+        this.state = VertexCoreApi.get().databaseService().tableState(owner, this.settings, table);
+
+        if (ttlMillis > 0) {
+            VertexCoreApi.get().databaseService().schedulePurge(owner, this.settings, table, ttlMillis);
+        }
+    }
+
+    private static long resolveTtl(DatabaseSettings settings, Class<?> type) {
+        DbTtl ttl = type.getAnnotation(DbTtl.class);
+        if (ttl != null) return ttl.unit().toMillis(ttl.value());
+        return Math.max(0, settings.ttlMillis(type));
     }
 
     public void saveObject(T obj) {
-        String json = VertexCoreApi.get().json().toJson(type, obj);
-        VertexCoreApi.get().backendFor(owner, settings).set(table, obj.getUniqueId(), json);
+        if (savePinned(obj)) return;
+        saveJson(obj, VertexCoreApi.get().json().toJson(type, obj));
+    }
+
+    private void saveJson(T obj, String json) {
+        DatabaseBackend backend = VertexCoreApi.get().backendFor(owner, settings);
+
+        if (!hasAbsorbedCounters(obj)) {
+            backend.set(table, obj.getUniqueId(), json);
+        } else {
+            // the object was loaded with the then pending deltas applied -> those are part of json now,
+            // increments made since stay pending and the ones flushed since are added back.
+            // Holding the table state keeps a running flush from adding them a second time.
+            synchronized (state) {
+                backend.set(table, obj.getUniqueId(), withWrittenCounters(obj, json));
+                consumeAbsorbedCounters(obj);
+            }
+        }
+        updateLeaderboards(obj);
+        publishResident(obj.getUniqueId(), json);
+        // a read that started before this write must not be joined by later loads
+        state.inflight().remove(obj.getUniqueId());
     }
 
     public T loadObject(String uniqueId) {
-        String json = VertexCoreApi.get().backendFor(owner, settings).get(table, uniqueId);
+        if (resident) return residentSnapshot().get(uniqueId);
+        T pinned = pinned(uniqueId);
+        if (pinned != null) return pinned;
+
+        DatabaseBackend backend = VertexCoreApi.get().backendFor(owner, settings);
+        String json = ttlMillis > 0 ? backend.getFresh(table, uniqueId, ttlMillis) : backend.get(table, uniqueId);
         if (json == null) return null;
 
         T obj = VertexCoreApi.get().json().fromJson(type, json);
         obj.setUniqueId(uniqueId);
+        applyPendingCounters(obj);
         return obj;
     }
 
     public boolean objectExists(String uniqueId) {
-        return VertexCoreApi.get().backendFor(owner, settings).exists(table, uniqueId);
+        if (resident) return residentSnapshot().containsKey(uniqueId);
+        if (pinned(uniqueId) != null) return true;
+        DatabaseBackend backend = VertexCoreApi.get().backendFor(owner, settings);
+        return ttlMillis > 0 ? backend.existsFresh(table, uniqueId, ttlMillis) : backend.exists(table, uniqueId);
     }
 
     public void deleteObject(String uniqueId) {
-        VertexCoreApi.get().backendFor(owner, settings).delete(table, uniqueId);
+        unpin(uniqueId);
+        DatabaseBackend backend = VertexCoreApi.get().backendFor(owner, settings);
+        if (state.pendingDeltas(uniqueId).isEmpty()) {
+            backend.delete(table, uniqueId);
+        } else {
+            // a later flush would otherwise recreate the row from the counter template
+            synchronized (state) {
+                state.counters().discard(uniqueId);
+                backend.delete(table, uniqueId);
+            }
+        }
+        afterDelete(uniqueId);
+    }
+
+    // ---------------- bulk deletes (progress receives the running number of deleted rows) ----------------
+
+    // returns the number of deleted rows
+    public long deleteAll() {
+        long deleted;
+        synchronized (state) {
+            state.counters().clear();
+            deleted = VertexCoreApi.get().backendFor(owner, settings).deleteAll(table);
+        }
+        for (Leaderboard lb : state.leaderboards().values()) lb.index().clear();
+        if (resident) state.resident(Map.of());
+        state.inflight().clear();
+        state.sessions().clear();
+        state.dirtySessions().clear();
+        return deleted;
+    }
+
+    public long deleteIds(Collection<String> uniqueIds) {
+        return deleteIds(uniqueIds, null);
+    }
+
+    public long deleteIds(Collection<String> uniqueIds, LongConsumer progress) {
+        long deleted;
+        synchronized (state) {
+            uniqueIds.forEach(state.counters()::discard);
+            deleted = VertexCoreApi.get().backendFor(owner, settings).deleteIds(table, uniqueIds, progress);
+        }
+        for (Leaderboard lb : state.leaderboards().values()) uniqueIds.forEach(lb.index()::remove);
+        if (resident) removeResident(uniqueIds);
+        uniqueIds.forEach(state.inflight()::remove);
+        uniqueIds.forEach(this::unpin);
+        return deleted;
+    }
+
+    /**
+     * Deletes every row whose {@code @DbExpose} fields match all conditions. Evaluated by the
+     * backend (MySQL: DELETE in chunks, no rows are read). Pending counters are flushed first so
+     * the conditions see current values.
+     */
+    public long deleteWhere(FieldCondition... where) {
+        return deleteWhere(List.of(where), null);
+    }
+
+    public long deleteWhere(List<FieldCondition> where, LongConsumer progress) {
+        for (FieldCondition c : where) ExposedFields.require(type, c.field());
+
+        long deleted;
+        synchronized (state) {
+            VertexCoreApi.get().databaseService().flushCounters(state);
+            deleted = VertexCoreApi.get().backendFor(owner, settings).deleteWhere(table, where, progress);
+        }
+        // the deleted ids are not known here -> rebuild on next use
+        if (deleted > 0) {
+            state.leaderboards().clear();
+            if (resident) reloadResident();
+            state.inflight().clear();
+            // pinned rows may be gone; don't write them back
+            state.sessions().clear();
+            state.dirtySessions().clear();
+        }
+        return deleted;
+    }
+
+    // arbitrary predicate: every row is decoded once, matching ids are deleted in chunks
+    public long deleteWhere(Predicate<T> where) {
+        return deleteWhere(where, null);
+    }
+
+    public long deleteWhere(Predicate<T> where, LongConsumer progress) {
+        List<String> ids = new ArrayList<>();
+        DatabaseBackend backend = VertexCoreApi.get().backendFor(owner, settings);
+        BiConsumer<String, String> visit = (id, json) -> {
+            if (where.test(decodeRow(new String[]{ id, json }))) ids.add(id);
+        };
+        if (ttlMillis > 0) {
+            for (String[] row : backend.loadAllRawFresh(table, ttlMillis)) visit.accept(row[0], row[1]);
+        } else {
+            backend.forEachRaw(table, visit);
+        }
+        return ids.isEmpty() ? 0 : deleteIds(ids, progress);
+    }
+
+    public CompletableFuture<Long> deleteAllAsync() {
+        return async(this::deleteAll);
+    }
+
+    public CompletableFuture<Long> deleteIdsAsync(Collection<String> uniqueIds, LongConsumer progress) {
+        return async(() -> deleteIds(uniqueIds, progress));
+    }
+
+    public CompletableFuture<Long> deleteWhereAsync(List<FieldCondition> where, LongConsumer progress) {
+        return async(() -> deleteWhere(where, progress));
+    }
+
+    public CompletableFuture<Long> deleteWhereAsync(Predicate<T> where, LongConsumer progress) {
+        return async(() -> deleteWhere(where, progress));
+    }
+
+    // ---------------- hooks for UnitOfWork ----------------
+
+    String table() {
+        return table;
+    }
+
+    DatabaseBackend backend() {
+        return VertexCoreApi.get().backendFor(owner, settings);
+    }
+
+    String encode(T obj) {
+        return VertexCoreApi.get().json().toJson(type, obj);
+    }
+
+    Object counterLock() {
+        return state;
+    }
+
+    // resident copies carry every increment made through this server, so they absorb all pending deltas
+    boolean hasAbsorbedCounters(DataObject obj) {
+        return resident ? !state.pendingDeltas(obj.getUniqueId()).isEmpty() : state.hasAbsorbed(obj);
+    }
+
+    // caller holds counterLock(): json of obj plus the deltas written to its row since obj was loaded
+    String withWrittenCounters(DataObject obj, String json) {
+        if (resident) return json;
+        Map<String, Long> written = state.writtenSinceLoad(obj);
+        return written.isEmpty() ? json : JsonFields.applyDeltas(json, written);
+    }
+
+    // caller holds counterLock() and has written obj: the deltas it was loaded with are part of the row now
+    void consumeAbsorbedCounters(DataObject obj) {
+        if (resident) state.counters().discard(obj.getUniqueId());
+        else state.consumeAbsorbed(obj);
+    }
+
+    void afterSave(DataObject obj) {
+        updateLeaderboards(type.cast(obj));
+        if (session && state.sessions().containsKey(obj.getUniqueId())) {
+            state.sessions().put(obj.getUniqueId(), obj);
+            state.dirtySessions().remove(obj.getUniqueId());
+        }
+        state.inflight().remove(obj.getUniqueId());
+        if (resident) publishResident(obj.getUniqueId(), encode(type.cast(obj)));
+    }
+
+    void afterDelete(String uniqueId) {
+        for (Leaderboard lb : state.leaderboards().values()) lb.index().remove(uniqueId);
+        unpin(uniqueId);
+        state.inflight().remove(uniqueId);
+        publishResident(uniqueId, null);
     }
 
     public List<T> loadObjects() {
-        List<String[]> rows = VertexCoreApi.get().backendFor(owner, settings).loadAllRaw(table);
+        return loadObjectsWithStats().objects();
+    }
+
+    public LoadResult<T> loadObjectsWithStats() {
+        if (resident) {
+            long start = System.nanoTime();
+            List<T> out = new ArrayList<>(residentSnapshot().values());
+            return new LoadResult<>(out, 0, System.nanoTime() - start, false);
+        }
+
+        long start = System.nanoTime();
+        DatabaseBackend backend = VertexCoreApi.get().backendFor(owner, settings);
+        List<String[]> rows = ttlMillis > 0 ? backend.loadAllRawFresh(table, ttlMillis) : backend.loadAllRaw(table);
+        long io = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        boolean parallel = settings.parallelDecode() && rows.size() > settings.decodeChunkSize();
+        List<T> out = parallel
+                ? ParallelDecoder.decode(VertexCoreApi.get().databaseService().decodePool(settings.decodeParallelism()),
+                        rows, settings.decodeChunkSize(), settings.decodePreserveOrder(), this::decodeRow)
+                : decodeSequential(rows);
+        if (session && !state.sessions().isEmpty()) {
+            // pinned objects may carry unsaved changes
+            out = new ArrayList<>(out);
+            out.replaceAll(o -> {
+                T p = pinned(o.getUniqueId());
+                return p != null ? p : o;
+            });
+        }
+        return new LoadResult<>(out, io, System.nanoTime() - start, parallel);
+    }
+
+    private List<T> decodeSequential(List<String[]> rows) {
         List<T> out = new ArrayList<>(rows.size());
-        for (String[] row : rows) {
-            String id = row[0];
-            String json = row[1];
+        for (String[] row : rows) out.add(decodeRow(row));
+        return out;
+    }
+
+    private T decodeRow(String[] row) {
+        T obj = VertexCoreApi.get().json().fromJson(type, row[1]);
+        obj.setUniqueId(row[0]);
+        applyPendingCounters(obj);
+        return obj;
+    }
+
+    // ---------------- ids / count (payloads are never read) ----------------
+
+    public long count() {
+        if (resident) return residentSnapshot().size();
+        DatabaseBackend backend = VertexCoreApi.get().backendFor(owner, settings);
+        return ttlMillis > 0 ? backend.countFresh(table, ttlMillis) : backend.count(table);
+    }
+
+    public List<String> listIds() {
+        try (Stream<String> ids = ids()) {
+            return ids.toList();
+        }
+    }
+
+    // streamed from the backend; close it (try-with-resources), it may hold a connection
+    public Stream<String> ids() {
+        if (resident) return residentSnapshot().keySet().stream();
+        DatabaseBackend backend = VertexCoreApi.get().backendFor(owner, settings);
+        return ttlMillis > 0 ? backend.idsFresh(table, ttlMillis) : backend.ids(table);
+    }
+
+    public CompletableFuture<Long> countAsync() {
+        return async(this::count);
+    }
+
+    public CompletableFuture<List<String>> listIdsAsync() {
+        return async(this::listIds);
+    }
+
+    // ---------------- references (Ref<T> fields of other objects pointing into this table) ----------------
+
+    public T resolve(Ref<T> ref) {
+        if (ref == null) return null;
+        T v = ref.getIfLoaded();
+        if (v != null) return v;
+
+        v = loadObject(ref.id());
+        if (v != null) ref.set(v);
+        return v;
+    }
+
+    /**
+     * Resolves all refs with one backend call for the ids that aren't loaded yet.
+     * Loaded refs are reused, refs to the same id share one instance.
+     * Returns the targets in ref order; refs to deleted objects are skipped.
+     */
+    public List<T> resolveAll(Collection<? extends Ref<T>> refs) {
+        Map<String, T> byId = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (Ref<T> ref : refs) {
+            if (ref == null) continue;
+            T v = ref.getIfLoaded();
+            if (v != null) byId.putIfAbsent(ref.id(), v);
+            else missing.add(ref.id());
+        }
+        missing.removeAll(byId.keySet());
+        if (session) {
+            missing.removeIf(id -> {
+                T p = pinned(id);
+                if (p != null) byId.put(id, p);
+                return p != null;
+            });
+        }
+
+        if (!missing.isEmpty()) {
+            if (ttlMillis > 0 || resident) {
+                // TTL tables need the freshness check per row, resident ones are answered from memory
+                for (String id : missing) {
+                    T obj = loadObject(id);
+                    if (obj != null) byId.put(id, obj);
+                }
+            } else {
+                VertexCoreApi.get().backendFor(owner, settings).getMany(table, missing)
+                        .forEach((id, json) -> byId.put(id, decodeRow(new String[]{ id, json })));
+            }
+        }
+
+        List<T> out = new ArrayList<>(refs.size());
+        for (Ref<T> ref : refs) {
+            if (ref == null) continue;
+            T v = byId.get(ref.id());
+            if (v == null) continue;
+            ref.set(v);
+            out.add(v);
+        }
+        return out;
+    }
+
+    public CompletableFuture<List<T>> resolveAllAsync(Collection<? extends Ref<T>> refs) {
+        return async(() -> resolveAll(refs));
+    }
+
+    // Optional: re-save rows with an outdated @DbVersion in the background (reads upcast lazily anyway)
+    public BukkitTask rewriteOutdatedRows(int rowsPerSecond) {
+        return new UpcastRewriter<>(owner, settings, type, table, rowsPerSecond, this::upcastRow).start();
+    }
+
+    // re-saves one row in the current schema. Read from the primary and written under the table state, so neither
+    // a lagging replica nor a counter flush in between is overwritten; a save since the read wins (version check)
+    private UpcastRewriter.Result upcastRow(String uniqueId) {
+        // online player: the pinned object is written on quit / autosave, in the current schema
+        if (pinned(uniqueId) != null) return UpcastRewriter.Result.SKIPPED;
+
+        JsonCodec codec = VertexCoreApi.get().json();
+        DatabaseBackend backend = VertexCoreApi.get().backendFor(owner, settings);
+        DatabaseBackend primary = backend.primary();
+        synchronized (state) {
+            DatabaseBackend.Versioned row = primary.getVersioned(table, uniqueId);
+            if (row == null || !codec.isOutdated(type, row.json())) return UpcastRewriter.Result.SKIPPED;
+            // expired rows stay expired (and get purged), they are not brought back
+            if (ttlMillis > 0 && !primary.existsFresh(table, uniqueId, ttlMillis)) return UpcastRewriter.Result.SKIPPED;
+            // version 0: the backend has none (flatfile, this server only)
+            if (row.version() != 0 && !row.settled()) return UpcastRewriter.Result.RETRY;
+
+            String json = codec.toJson(type, codec.fromJson(type, row.json()));
+            if (row.version() != 0 && primary.version(table, uniqueId) != row.version()) return UpcastRewriter.Result.SKIPPED;
+            backend.set(table, uniqueId, json);
+        }
+        return UpcastRewriter.Result.REWRITTEN;
+    }
+
+    // ---------------- counters (buffered, written in one batch per flush interval) ----------------
+
+    /**
+     * Adds delta to an integral {@code @DbExpose} field without loading the object.
+     * The delta is buffered in memory and applied additively by the backend on the next flush,
+     * so concurrent increments from other servers are never overwritten. Loads through this
+     * Database already include unflushed deltas.
+     */
+    public void increment(String uniqueId, String field, long delta) {
+        ExposedFields.requireIntegral(type, field);
+        T pinned = pinned(uniqueId);
+        if (pinned != null) {
+            // online player: the pinned object is the current state, it's written on quit / autosave
+            synchronized (pinned) {
+                ExposedFields.addTo(pinned, ExposedFields.of(type).get(field), delta);
+            }
+            state.dirtySessions().add(uniqueId);
+            Leaderboard lb = state.leaderboards().get(field);
+            if (lb != null) lb.index().add(uniqueId, delta);
+            return;
+        }
+        if (state.counterTemplate() == null) state.counterTemplate(newTemplate());
+        state.counterField(field);
+
+        state.counters().add(uniqueId, field, delta);
+        Leaderboard lb = state.leaderboards().get(field);
+        if (lb != null) lb.index().add(uniqueId, delta);
+        if (resident) incrementResident(uniqueId, field, delta);
+        VertexCoreApi.get().databaseService().scheduleCounterFlush(state);
+    }
+
+    public void increment(String uniqueId, String field) {
+        increment(uniqueId, field, 1);
+    }
+
+    // delta not yet written to the backend
+    public long pendingDelta(String uniqueId, String field) {
+        return state.pendingDeltas(uniqueId).getOrDefault(field, 0L);
+    }
+
+    public void flushCounters() {
+        VertexCoreApi.get().databaseService().flushCounters(state);
+    }
+
+    public CompletableFuture<Void> flushCountersAsync() {
+        return async(() -> {
+            flushCounters();
+            return null;
+        });
+    }
+
+    private void applyPendingCounters(T obj) {
+        // resident copies already carry their increments
+        if (resident) return;
+        // remembered with the object: saving it removes exactly these deltas from the buffer
+        // and adds the ones flushed after the load
+        Map<String, Long> pending = state.absorbPending(obj);
+        if (pending.isEmpty()) return;
+
+        Map<String, Field> fields = ExposedFields.of(type);
+        pending.forEach((name, delta) -> {
+            Field f = fields.get(name);
+            if (f != null) ExposedFields.addTo(obj, f, delta);
+        });
+    }
+
+    private String newTemplate() {
+        try {
+            var ctor = type.getDeclaredConstructor();
+            ctor.setAccessible(true);
+            return VertexCoreApi.get().json().toJson(type, ctor.newInstance());
+        } catch (ReflectiveOperationException e) {
+            // no no-arg constructor: rows created by a counter flush only contain the counter fields
+            return "{}";
+        }
+    }
+
+    // ---------------- resident tables (whole table in memory, copy-on-write) ----------------
+
+    /**
+     * Immutable id -> object view of a resident table. Loaded once (at warmup, or by the first read),
+     * then replaced on every write through this server; reads take no lock and never touch the backend.
+     * The objects are shared by all readers: treat them as read-only and save a modified copy.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, T> residentSnapshot() {
+        if (!resident) throw new IllegalStateException(type.getSimpleName() + " is not a resident table");
+        Map<String, DataObject> snap = state.resident();
+        if (snap == null) {
+            synchronized (state.residentLock()) {
+                snap = state.resident();
+                if (snap == null) {
+                    snap = scanResident();
+                    state.resident(snap);
+                }
+            }
+        }
+        return (Map<String, T>) (Map<String, ?>) snap;
+    }
+
+    // the whole table is held from now on: read it from the primary, not a lagging replica or cache
+    private Map<String, DataObject> scanResident() {
+        Map<String, DataObject> out = new HashMap<>();
+        VertexCoreApi.get().backendFor(owner, settings).primary().forEachRaw(table, (id, json) -> {
             T obj = VertexCoreApi.get().json().fromJson(type, json);
             obj.setUniqueId(id);
-            out.add(obj);
+            Map<String, Long> pending = state.pendingDeltas(id);
+            if (!pending.isEmpty()) {
+                Map<String, Field> fields = ExposedFields.of(type);
+                pending.forEach((name, delta) -> {
+                    Field f = fields.get(name);
+                    if (f != null) ExposedFields.addTo(obj, f, delta);
+                });
+            }
+            out.put(id, obj);
+        });
+        return Collections.unmodifiableMap(out);
+    }
+
+    private void reloadResident() {
+        synchronized (state.residentLock()) {
+            state.resident(scanResident());
+        }
+    }
+
+    // json == null removes the id; the written object is decoded again, callers keep their own instance
+    private void publishResident(String uniqueId, String json) {
+        if (!resident) return;
+        synchronized (state.residentLock()) {
+            Map<String, DataObject> cur = state.resident();
+            // not loaded yet: the first read scans the backend, which has this write
+            if (cur == null) return;
+
+            Map<String, DataObject> next = new HashMap<>(cur);
+            if (json == null) {
+                next.remove(uniqueId);
+            } else {
+                T obj = VertexCoreApi.get().json().fromJson(type, json);
+                obj.setUniqueId(uniqueId);
+                next.put(uniqueId, obj);
+            }
+            state.resident(Collections.unmodifiableMap(next));
+        }
+    }
+
+    private void removeResident(Collection<String> uniqueIds) {
+        synchronized (state.residentLock()) {
+            Map<String, DataObject> cur = state.resident();
+            if (cur == null) return;
+            Map<String, DataObject> next = new HashMap<>(cur);
+            next.keySet().removeAll(uniqueIds);
+            state.resident(Collections.unmodifiableMap(next));
+        }
+    }
+
+    private void incrementResident(String uniqueId, String field, long delta) {
+        synchronized (state.residentLock()) {
+            Map<String, DataObject> cur = state.resident();
+            if (cur == null) return;
+            DataObject old = cur.get(uniqueId);
+            // no row yet: created by the flush, picked up by the next reload
+            if (old == null) return;
+
+            T copy = VertexCoreApi.get().json().fromJson(type, encode(type.cast(old)));
+            copy.setUniqueId(uniqueId);
+            ExposedFields.addTo(copy, ExposedFields.of(type).get(field), delta);
+            Map<String, DataObject> next = new HashMap<>(cur);
+            next.put(uniqueId, copy);
+            state.resident(Collections.unmodifiableMap(next));
         }
+    }
+
+    // warmup: load the snapshots of resident tables before the plugin's first read
+    static <T extends DataObject> void preloadResident(Plugin owner, DatabaseSettings settings, Class<T> type) {
+        Database<T> db = new Database<>(owner, settings, type);
+        if (db.resident) db.residentSnapshot();
+    }
+
+    // ---------------- session tables (objects of online players stay in memory) ----------------
+
+    // null unless this is a session table and the id is pinned
+    private T pinned(String uniqueId) {
+        if (!session) return null;
+        DataObject obj = state.sessions().get(uniqueId);
+        return obj == null ? null : type.cast(obj);
+    }
+
+    // pinned ids are only marked dirty; DatabaseService writes them on quit / autosave
+    private boolean savePinned(T obj) {
+        if (!session || !state.sessions().containsKey(obj.getUniqueId())) return false;
+        state.sessions().put(obj.getUniqueId(), obj);
+        state.dirtySessions().add(obj.getUniqueId());
+        updateLeaderboards(obj);
+        state.inflight().remove(obj.getUniqueId());
+        return true;
+    }
+
+    private void unpin(String uniqueId) {
+        if (!session) return;
+        state.sessions().remove(uniqueId);
+        state.dirtySessions().remove(uniqueId);
+    }
+
+    // pre-login: load the player's row and keep it until quit; returns false if nothing was pinned.
+    // settings are the plugin's unrouted settings, like a plugin passes them to the constructor
+    static <T extends DataObject> boolean preloadSession(Plugin owner, DatabaseSettings settings, Class<T> type, String uniqueId) {
+        Database<T> db = new Database<>(owner, settings, type);
+        if (!db.session) return false;
+        // back before a failed write-back was retried: the kept object becomes the session again
+        db.state.detachedSessions().remove(uniqueId);
+        T obj = db.loadObject(uniqueId);
+        if (obj == null) return false;
+
+        db.state.sessionType(type);
+        db.state.sessions().putIfAbsent(uniqueId, obj);
+        VertexCoreApi.get().databaseService().scheduleSessionAutosave(db.state);
+        return true;
+    }
+
+    // ---------------- leaderboards (in-memory ranking, O(log n) per lookup) ----------------
+
+    /**
+     * Ranking of a numeric {@code @DbExpose} field. The first call scans the table once
+     * (blocking, prefer {@link #leaderboardAsync}); afterwards saves, deletes and increments
+     * through this server keep it current. Writes from other servers are not seen.
+     */
+    public Leaderboard leaderboard(String field) {
+        ExposedFields.requireNumeric(type, field);
+        Leaderboard lb = state.leaderboards().computeIfAbsent(field, Leaderboard::new);
+        try {
+            lb.ensureBuilt(() -> scanInto(lb));
+        } catch (RuntimeException e) {
+            // let the next call retry the scan
+            state.leaderboards().remove(field, lb);
+            throw e;
+        }
+        return lb;
+    }
+
+    public List<Leaderboard.Entry> leaderboard(String field, int n) {
+        return leaderboard(field).top(n);
+    }
+
+    // 1-based, -1 if the object has no value for the field
+    public int rankOf(String field, String uniqueId) {
+        return leaderboard(field).rankOf(uniqueId);
+    }
+
+    public CompletableFuture<Leaderboard> leaderboardAsync(String field) {
+        return async(() -> leaderboard(field));
+    }
+
+    private void scanInto(Leaderboard lb) {
+        String field = lb.field();
+        // kept current by this server's writes afterwards, so the base must not lag behind them
+        DatabaseBackend backend = VertexCoreApi.get().backendFor(owner, settings).primary();
+        BiConsumer<String, String> visit = (id, json) -> {
+            JsonElement v = JsonParser.parseString(json).getAsJsonObject().get(field);
+            if (v == null || v.isJsonNull()) return;
+            // rows carry no unflushed counter deltas yet
+            long pending = state.pendingDeltas(id).getOrDefault(field, 0L);
+            lb.index().putScanned(id, v.getAsDouble() + pending);
+        };
+
+        if (ttlMillis > 0) {
+            for (String[] row : backend.loadAllRawFresh(table, ttlMillis)) visit.accept(row[0], row[1]);
+        } else {
+            backend.forEachRaw(table, visit);
+        }
+    }
+
+    private void updateLeaderboards(T obj) {
+        if (state.leaderboards().isEmpty()) return;
+
+        Map<String, Field> fields = ExposedFields.of(type);
+        for (Leaderboard lb : state.leaderboards().values()) {
+            try {
+                Object v = fields.get(lb.field()).get(obj);
+                if (v == null) lb.index().remove(obj.getUniqueId());
+                else lb.index().put(obj.getUniqueId(), ((Number) v).doubleValue());
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Failed to read field " + lb.field(), e);
+            }
+        }
+    }
+
+    // ---------------- aggregates (computed by the backend, only the result is returned) ----------------
+
+    public Map<String, Double> aggregate(AggregateQuery query) {
+        if (query.field() != null) {
+            if (query.function() == AggregateFunction.COUNT) ExposedFields.require(type, query.field());
+            else ExposedFields.requireNumeric(type, query.field());
+        }
+        if (query.grouped()) ExposedFields.require(type, query.groupBy());
+
+        DatabaseBackend backend = VertexCoreApi.get().backendFor(owner, settings);
+        return ttlMillis > 0 ? backend.aggregateFresh(table, query, ttlMillis) : backend.aggregate(table, query);
+    }
+
+    // null if there is no value to aggregate (e.g. min of an empty table)
+    public Double aggregate(AggregateFunction function, String field) {
+        return aggregate(AggregateQuery.of(function, field)).get(null);
+    }
+
+    public double sum(String field) {
+        Double v = aggregate(AggregateFunction.SUM, field);
+        return v == null ? 0 : v;
+    }
+
+    public Double min(String field) {
+        return aggregate(AggregateFunction.MIN, field);
+    }
+
+    public Double max(String field) {
+        return aggregate(AggregateFunction.MAX, field);
+    }
+
+    public Double avg(String field) {
+        return aggregate(AggregateFunction.AVG, field);
+    }
+
+    public Map<String, Double> sumBy(String field, String groupField) {
+        return aggregate(AggregateQuery.of(AggregateFunction.SUM, field).groupBy(groupField));
+    }
+
+    public Map<String, Long> countBy(String groupField) {
+        Map<String, Long> out = new HashMap<>();
+        aggregate(AggregateQuery.count().groupBy(groupField)).forEach((k, v) -> out.put(k, v.longValue()));
         return out;
     }
 
+    public CompletableFuture<Map<String, Double>> aggregateAsync(AggregateQuery query) {
+        return async(() -> aggregate(query));
+    }
+
     // ---------------- async core: CompletableFuture ----------------
 
+    /**
+     * With a timeout, every task gets a {@link Deadline}: a task that has not started when it passes
+     * is skipped, and JDBC statements of a running task time out with the remaining budget.
+     */
+    <R> CompletableFuture<R> async(Supplier<R> task) {
+        return async(task, () -> {});
+    }
+
+    // onSkip runs instead of task if its deadline passed before it started
+    <R> CompletableFuture<R> async(Supplier<R> task, Runnable onSkip) {
+        DatabaseService service = VertexCoreApi.get().databaseService();
+        long timeoutMillis = settings.timeoutMillis();
+        if (settings.useQueue()) return service.queueFor(owner, timeoutMillis).submit(task, timeoutMillis, onSkip);
+
+        Deadline deadline = timeoutMillis > 0 ? Deadline.after(timeoutMillis) : null;
+        long submitted = System.nanoTime();
+        CompletableFuture<R> f = CompletableFuture.supplyAsync(() -> {
+            long started = System.nanoTime();
+            boolean[] skipped = new boolean[1];
+            try {
+                return deadline == null ? task.get() : deadline.run(task, () -> {
+                    skipped[0] = true;
+                    onSkip.run();
+                });
+            } finally {
+                service.recordTask(owner, started - submitted, skipped[0] ? 0 : System.nanoTime() - started, skipped[0]);
+            }
+        }, VertexCoreApi.get().asyncExecutor());
+        return deadline == null ? f : deadline.bound(f);
+    }
+
+    /**
+     * Concurrent calls for the same id share one backend read (single flight). Callers that joined a
+     * running read get a copy of the result, or the same instance with {@code shareCoalescedLoads()}.
+     */
+    @SuppressWarnings("unchecked")
     public CompletableFuture<T> loadObjectAsync(String uniqueId) {
-        if (settings.useQueue()) {
-            return VertexCoreApi.get().databaseService()
-                    .queueFor(owner, settings.timeoutMillis())
-                    .submit(() -> loadObject(uniqueId));
+        if (resident) {
+            // answered from memory; the first read scans the table, which must not happen on the caller's thread
+            return state.resident() != null ? CompletableFuture.completedFuture(loadObject(uniqueId)) : async(() -> loadObject(uniqueId));
+        }
+        T pinned = pinned(uniqueId);
+        if (pinned != null) return CompletableFuture.completedFuture(pinned);
+
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<?> running = state.inflight().putIfAbsent(uniqueId, load);
+        if (running != null) {
+            VertexCoreApi.get().databaseService().metrics()
+                    .increment(DatabaseMetrics.key(owner.getName(), table, "load.coalesced"));
+            CompletableFuture<T> shared = (CompletableFuture<T>) running;
+            return settings.shareCoalescedLoads() ? shared.copy() : shared.thenApply(this::copyOf);
+        }
+
+        CompletableFuture<T> read;
+        try {
+            read = async(() -> loadObject(uniqueId));
+        } catch (RuntimeException e) {
+            // not submitted (executor rejected it, plugin disabled): later loads must not join this one
+            state.inflight().remove(uniqueId, load);
+            load.completeExceptionally(e);
+            return load;
         }
-        return CompletableFuture.supplyAsync(() -> loadObject(uniqueId), VertexCoreApi.get().asyncExecutor())
-                .orTimeout(settings.timeoutMillis(), java.util.concurrent.TimeUnit.MILLISECONDS);
+        read.whenComplete((obj, err) -> {
+            state.inflight().remove(uniqueId, load);
+            if (err != null) load.completeExceptionally(err);
+            else load.complete(obj);
+        });
+        return load;
+    }
+
+    private T copyOf(T obj) {
+        if (obj == null) return null;
+        T copy = VertexCoreApi.get().json().fromJson(type, encode(obj));
+        copy.setUniqueId(obj.getUniqueId());
+        return copy;
     }
 
     public CompletableFuture<Void> saveObjectAsync(T obj) {
-        if (settings.useQueue()) {
-            return VertexCoreApi.get().databaseService()
-                    .queueFor(owner, settings.timeoutMillis())
-                    .submitVoid(() -> saveObject(obj));
+        if (savePinned(obj)) return CompletableFuture.completedFuture(null);
+        WriteJournal journal = VertexCoreApi.get().databaseService().journalFor(owner, settings);
+        if (journal != null) {
+            // journaled before it is queued; serialized now, so later changes to obj are not part of this save
+            String json = encode(obj);
+            long seq = journal.append(new DatabaseBackend.WriteOp(table, obj.getUniqueId(), json));
+            // skipped: the caller sees the timeout, the save must not be replayed behind its back after a restart
+            return async(() -> {
+                saveJson(obj, json);
+                journal.done(seq);
+                return null;
+            }, () -> journal.done(seq));
         }
-        CompletableFuture<Void> f = CompletableFuture.runAsync(() -> saveObject(obj), VertexCoreApi.get().asyncExecutor());
-        return settings.timeoutMillis() > 0 ? f.orTimeout(settings.timeoutMillis(), java.util.concurrent.TimeUnit.MILLISECONDS) : f;
+        return async(() -> {
+            saveObject(obj);
+            return null;
+        });
     }
 
     public CompletableFuture<List<T>> loadObjectsAsync() {
-        if (settings.useQueue()) {
-            return VertexCoreApi.get().databaseService()
-                    .queueFor(owner, settings.timeoutMillis())
-                    .submit(this::loadObjects);
-        }
-        CompletableFuture<List<T>> f = CompletableFuture.supplyAsync(this::loadObjects, VertexCoreApi.get().asyncExecutor());
-        return settings.timeoutMillis() > 0 ? f.orTimeout(settings.timeoutMillis(), java.util.concurrent.TimeUnit.MILLISECONDS) : f;
+        if (resident && state.resident() != null) return CompletableFuture.completedFuture(loadObjects());
+        return async(this::loadObjects);
     }
 
     public CompletableFuture<Void> deleteObjectAsync(String uniqueId) {
-        if (settings.useQueue()) {
-            return VertexCoreApi.get().databaseService()
-                    .queueFor(owner, settings.timeoutMillis())
-                    .submitVoid(() -> deleteObject(uniqueId));
+        WriteJournal journal = VertexCoreApi.get().databaseService().journalFor(owner, settings);
+        if (journal != null) {
+            long seq = journal.append(new DatabaseBackend.WriteOp(table, uniqueId, null));
+            return async(() -> {
+                deleteObject(uniqueId);
+                journal.done(seq);
+                return null;
+            }, () -> journal.done(seq));
         }
-        CompletableFuture<Void> f = CompletableFuture.runAsync(() -> deleteObject(uniqueId), VertexCoreApi.get().asyncExecutor());
-        return settings.timeoutMillis() > 0 ? f.orTimeout(settings.timeoutMillis(), java.util.concurrent.TimeUnit.MILLISECONDS) : f;
+        return async(() -> {
+            deleteObject(uniqueId);
+            return null;
+        });
     }
 
 
@@ -1,6 +1,19 @@
 package de.tebrox.vertexCore.database;
 
+import de.tebrox.vertexCore.database.internal.JsonAggregator;
+import de.tebrox.vertexCore.database.internal.JsonFields;
+import de.tebrox.vertexCore.database.internal.JsonFilter;
+import de.tebrox.vertexCore.database.query.AggregateQuery;
+import de.tebrox.vertexCore.database.query.FieldCondition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 public interface DatabaseBackend extends AutoCloseable {
     String get(String table, String uniqueId);
@@ -10,7 +23,151 @@ public interface DatabaseBackend extends AutoCloseable {
 
     List<String[]> loadAllRaw(String table); // each entry: [uniqueId, json]
 
+    // Id-only access, payloads are never read. Fallbacks go through loadAllRaw.
+    default long count(String table) {
+        return loadAllRaw(table).size();
+    }
+
+    default long countFresh(String table, long maxAgeMillis) {
+        return loadAllRawFresh(table, maxAgeMillis).size();
+    }
+
+    // must be closed (may hold a connection / directory handle)
+    default Stream<String> ids(String table) {
+        return loadAllRaw(table).stream().map(row -> row[0]);
+    }
+
+    default Stream<String> idsFresh(String table, long maxAgeMillis) {
+        return loadAllRawFresh(table, maxAgeMillis).stream().map(row -> row[0]);
+    }
+
+    // id -> json for the ids that exist; fallback: one get per id
+    default Map<String, String> getMany(String table, Collection<String> uniqueIds) {
+        Map<String, String> out = new HashMap<>();
+        for (String id : uniqueIds) {
+            String json = get(table, id);
+            if (json != null) out.put(id, json);
+        }
+        return out;
+    }
+
+    // Bulk deletes, return the number of rows deleted. progress (nullable) gets the running total.
+    // Fallbacks: id listing / full scan + one delete per row.
+    default long deleteAll(String table) {
+        List<String> ids;
+        try (Stream<String> s = ids(table)) {
+            ids = s.toList();
+        }
+        return deleteIds(table, ids, null);
+    }
+
+    default long deleteIds(String table, Collection<String> uniqueIds, LongConsumer progress) {
+        long deleted = 0;
+        for (String id : uniqueIds) {
+            if (!exists(table, id)) continue;
+            delete(table, id);
+            if (++deleted % 1000 == 0 && progress != null) progress.accept(deleted);
+        }
+        if (progress != null) progress.accept(deleted);
+        return deleted;
+    }
+
+    default long deleteWhere(String table, List<FieldCondition> where, LongConsumer progress) {
+        List<String> ids = new ArrayList<>();
+        forEachRaw(table, (id, json) -> {
+            if (JsonFilter.matches(json, where)) ids.add(id);
+        });
+        return deleteIds(table, ids, progress);
+    }
+
+    // one write of a batch; json == null deletes the row
+    record WriteOp(String table, String uniqueId, String json) {
+        public boolean isDelete() {
+            return json == null;
+        }
+    }
+
+    // Applies all ops atomically where the backend can (JDBC: one transaction). Fallback: one by one.
+    default void applyBatch(List<WriteOp> ops) {
+        for (WriteOp op : ops) {
+            if (op.isDelete()) delete(op.table(), op.uniqueId());
+            else set(op.table(), op.uniqueId(), op.json());
+        }
+    }
+
+    // Streaming scan (uniqueId, json) without holding the whole table; fallback: loadAllRaw
+    default void forEachRaw(String table, BiConsumer<String, String> consumer) {
+        for (String[] row : loadAllRaw(table)) consumer.accept(row[0], row[1]);
+    }
+
+    // Row versions (last write time, epoch millis) for caches in front of a remote backend.
+    // version 0 = unknown (backend has no versions), -1 = row absent.
+    // settled: every later write is guaranteed to get a different version (clock moved past it).
+    record Versioned(String json, long version, boolean settled) {}
+
+    default Versioned getVersioned(String table, String uniqueId) {
+        String json = get(table, uniqueId);
+        return json == null ? null : new Versioned(json, 0, false);
+    }
+
+    default long version(String table, String uniqueId) {
+        return exists(table, uniqueId) ? 0 : -1;
+    }
+
+    // id -> version of every row, null if the backend has no versions
+    default Map<String, Long> versions(String table) {
+        return null;
+    }
+
+    // backend whose reads see every committed write (no replica lag, no stale cache);
+    // for snapshots and other copies whose high-water mark must match the rows they read
+    default DatabaseBackend primary() {
+        return this;
+    }
+
+    // TTL support: rows last written more than maxAgeMillis ago count as absent.
+    // Backends without modification times fall back to the plain reads.
+    default String getFresh(String table, String uniqueId, long maxAgeMillis) {
+        return get(table, uniqueId);
+    }
+
+    default boolean existsFresh(String table, String uniqueId, long maxAgeMillis) {
+        return exists(table, uniqueId);
+    }
+
+    default List<String[]> loadAllRawFresh(String table, long maxAgeMillis) {
+        return loadAllRaw(table);
+    }
+
+    // deletes at most batchSize expired rows, returns the number deleted
+    default int purgeExpired(String table, long maxAgeMillis, int batchSize) {
+        return 0;
+    }
+
+    // group value -> result (ungrouped: single entry under null key). Fallback: reduce in memory.
+    default Map<String, Double> aggregate(String table, AggregateQuery query) {
+        return JsonAggregator.aggregate(loadAllRaw(table).parallelStream().map(row -> row[1]), query);
+    }
+
+    // aggregate over the rows written within maxAgeMillis (TTL tables)
+    default Map<String, Double> aggregateFresh(String table, AggregateQuery query, long maxAgeMillis) {
+        return JsonAggregator.aggregate(loadAllRawFresh(table, maxAgeMillis).parallelStream().map(row -> row[1]), query);
+    }
+
+    // Counter flush: adds deltas (id -> field -> delta) to numeric json fields.
+    // Rows that don't exist yet are created from templateJson. Fallback: read-modify-write per row.
+    default void addToFields(String table, Map<String, Map<String, Long>> deltas, String templateJson) {
+        deltas.forEach((id, fields) -> {
+            String json = get(table, id);
+            if (json == null) json = templateJson;
+            set(table, id, JsonFields.applyDeltas(json, fields));
+        });
+    }
+
     default void warmup() {}
 
+    // called once per registered data class table after warmup()
+    default void warmupTable(String table) {}
+
     @Override void close();
 }
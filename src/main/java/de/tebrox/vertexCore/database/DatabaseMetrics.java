@@ -0,0 +1,48 @@
+package de.tebrox.vertexCore.database;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// simple named counters, e.g. "myplugin/playerdata/bloom.avoided"
+public final class DatabaseMetrics {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    public void add(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    // gauge style
+    public void set(String name, long value) {
+        LongAdder a = counters.computeIfAbsent(name, k -> new LongAdder());
+        a.reset();
+        a.add(value);
+    }
+
+    public long get(String name) {
+        LongAdder a = counters.get(name);
+        return a == null ? 0 : a.sum();
+    }
+
+    public Map<String, Long> snapshot(String prefix) {
+        Map<String, Long> out = new TreeMap<>();
+        counters.forEach((k, v) -> {
+            if (prefix == null || k.startsWith(prefix)) out.put(k, v.sum());
+        });
+        return out;
+    }
+
+    public void clear(String prefix) {
+        counters.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    public static String key(String plugin, String table, String metric) {
+        return plugin.toLowerCase() + "/" + table + "/" + metric;
+    }
+}
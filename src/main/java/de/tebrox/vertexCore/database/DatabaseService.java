@@ -1,26 +1,70 @@
 package de.tebrox.vertexCore.database;
 
+import de.tebrox.vertexCore.database.backend.BloomFilterBackend;
+import de.tebrox.vertexCore.database.backend.CircuitBreakerBackend;
 import de.tebrox.vertexCore.database.backend.FlatfileDatabaseBackend;
+import de.tebrox.vertexCore.database.backend.ForwardingDatabaseBackend;
 import de.tebrox.vertexCore.database.backend.JdbcDatabaseBackend;
+import de.tebrox.vertexCore.database.backend.OffHeapCacheBackend;
+import de.tebrox.vertexCore.database.backend.ReplicaRoutingBackend;
+import de.tebrox.vertexCore.database.backend.ShardedDatabaseBackend;
+import de.tebrox.vertexCore.database.backend.SnapshotBackend;
+import de.tebrox.vertexCore.database.backend.TieredCacheBackend;
+import de.tebrox.vertexCore.database.internal.CounterBuffer;
+import de.tebrox.vertexCore.database.internal.JsonFields;
+import de.tebrox.vertexCore.database.internal.TableNamer;
+import de.tebrox.vertexCore.database.internal.TableState;
+import de.tebrox.vertexCore.database.internal.WriteJournal;
 import de.tebrox.vertexCore.util.AsyncQueue;
+import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.event.server.PluginEnableEvent;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 public class DatabaseService implements Listener {
     private final Plugin core;
     private final JsonCodec json = new JsonCodec();
     private final PluginDataRegistry registry;
+    private final DatabaseMetrics metrics = new DatabaseMetrics();
 
     private final Map<String, DatabaseBackend> backends = new ConcurrentHashMap<>();
     private final Map<String, AsyncQueue> queues = new ConcurrentHashMap<>();
+    // timers per plugin (key starts with "plugin|"): TTL purge, H2 maintenance, counter flush, session autosave, bloom rebuild
+    private final Map<String, BukkitTask> backgroundTasks = new ConcurrentHashMap<>();
+    private final Map<Integer, ForkJoinPool> decodePools = new ConcurrentHashMap<>();
+    private final Map<String, TableState> tables = new ConcurrentHashMap<>();
+    private final Map<String, WriteJournal> journals = new ConcurrentHashMap<>();
+    // quit write-backs still running; a re-login waits for them before loading
+    private final Map<UUID, CompletableFuture<Void>> sessionWrites = new ConcurrentHashMap<>();
 
     public DatabaseService(Plugin core, PluginDataRegistry registry) {
         this.core = core;
@@ -32,26 +76,570 @@ public class DatabaseService implements Listener {
         return json;
     }
 
+    public DatabaseMetrics metrics() {
+        return metrics;
+    }
+
     public DatabaseBackend backendFor(Plugin owner, DatabaseSettings settings) {
         String fp = fingerprint(owner, settings);
 
         return backends.computeIfAbsent(fp, k -> {
-            return switch (settings.backend().toLowerCase()) {
-                case "json" -> FlatfileDatabaseBackend.start(owner);
-                case "h2" -> new JdbcDatabaseBackend(JdbcDatabaseBackend.createDataSource(owner, settings), /*dialect*/ "h2");
-                case "mysql" -> new JdbcDatabaseBackend(JdbcDatabaseBackend.createDataSource(owner, settings), /*dialect*/ "mysql");
-                default -> throw new IllegalArgumentException("Unknown backend: " + settings.backend());
-            };
+            DatabaseBackend raw = settings.backend().equalsIgnoreCase("sharded") ? createSharded(owner, settings) : createBackend(owner, settings);
+            if (raw instanceof JdbcDatabaseBackend jdbc && jdbc.h2File() != null) scheduleH2Maintenance(owner, settings, jdbc);
+            DatabaseBackend backend = decorate(owner, settings, raw);
+            // before anyone gets the backend: a later replay would overwrite newer writes
+            try {
+                replayJournal(owner, settings, backend);
+            } catch (IOException | RuntimeException e) {
+                backend.close();
+                throw new IllegalStateException("Journal replay failed (" + settings.backend() + ")", e);
+            }
+            return backend;
+        });
+    }
+
+    // the embedded H2 backend under the decorators, null if these settings are not on an H2 file
+    public JdbcDatabaseBackend h2Backend(Plugin owner, DatabaseSettings settings) {
+        JdbcDatabaseBackend jdbc = layer(backendFor(owner, settings), JdbcDatabaseBackend.class);
+        return jdbc != null && jdbc.h2File() != null ? jdbc : null;
+    }
+
+    // circuit breakers of a JDBC backend (primary first, then replicas); empty for flatfile or when disabled
+    public List<CircuitBreakerBackend> breakersFor(Plugin owner, DatabaseSettings settings) {
+        DatabaseBackend backend = backendFor(owner, settings);
+        List<CircuitBreakerBackend> out = new ArrayList<>();
+        CircuitBreakerBackend primary = layer(backend, CircuitBreakerBackend.class);
+        if (primary != null) out.add(primary);
+        ReplicaRoutingBackend routing = layer(backend, ReplicaRoutingBackend.class);
+        if (routing != null) {
+            for (DatabaseBackend replica : routing.replicas()) {
+                if (replica instanceof CircuitBreakerBackend b) out.add(b);
+            }
+        }
+        ShardedDatabaseBackend sharded = layer(backend, ShardedDatabaseBackend.class);
+        if (sharded != null) {
+            for (DatabaseBackend shard : sharded.shards()) {
+                if (shard instanceof CircuitBreakerBackend b) out.add(b);
+            }
+        }
+        return out;
+    }
+
+    private static <B extends DatabaseBackend> B layer(DatabaseBackend b, Class<B> type) {
+        while (!type.isInstance(b) && b instanceof ForwardingDatabaseBackend f) b = f.delegate();
+        return type.isInstance(b) ? type.cast(b) : null;
+    }
+
+    private static DatabaseBackend createBackend(Plugin owner, DatabaseSettings settings) {
+        return switch (settings.backend().toLowerCase()) {
+            case "json" -> FlatfileDatabaseBackend.start(owner);
+            case "h2" -> new JdbcDatabaseBackend(JdbcDatabaseBackend.createDataSource(owner, settings), /*dialect*/ "h2");
+            case "mysql" -> new JdbcDatabaseBackend(JdbcDatabaseBackend.createDataSource(owner, settings), /*dialect*/ "mysql");
+            default -> throw new IllegalArgumentException("Unknown backend: " + settings.backend());
+        };
+    }
+
+    // every shard is a JDBC backend with its own circuit breaker
+    private DatabaseBackend createSharded(Plugin owner, DatabaseSettings settings) {
+        Map<String, String> urls = settings.shards();
+        if (urls == null || urls.isEmpty()) throw new IllegalArgumentException("shards are required when backend=sharded");
+
+        Map<String, DatabaseBackend> shards = new LinkedHashMap<>();
+        urls.forEach((name, url) -> {
+            DatabaseBackend shard = new JdbcDatabaseBackend(JdbcDatabaseBackend.createShardDataSource(owner, settings, name, url),
+                    url.regionMatches(true, 0, "h2:", 0, 3) ? "h2" : url);
+            shards.put(name, withBreaker(owner, settings, shard, "sharded." + name));
         });
+        String prefix = settings.tablePrefix();
+        File ringFile = new File(owner.getDataFolder(), "shards/ring" + (prefix == null || prefix.isEmpty() ? "" : "-" + prefix) + ".txt");
+        return new ShardedDatabaseBackend(shards, settings.shardVirtualNodes(), ringFile.toPath());
+    }
+
+    public ShardedDatabaseBackend shardedBackend(Plugin owner, DatabaseSettings settings) {
+        return layer(backendFor(owner, settings), ShardedDatabaseBackend.class);
+    }
+
+    // tables of registered data classes on these settings (e.g. for rebalancing)
+    public List<String> tablesOn(Plugin owner, DatabaseSettings settings) {
+        return new ArrayList<>(registeredTables(owner, settings, type -> true));
+    }
+
+    // optional layers around the raw backend, innermost first
+    private DatabaseBackend decorate(Plugin owner, DatabaseSettings settings, DatabaseBackend backend) {
+        // innermost, so the cache layers above still answer what they can while the database is down
+        if (backend instanceof JdbcDatabaseBackend) backend = withBreaker(owner, settings, backend, settings.backend().toLowerCase());
+        List<String> replicaUrls = settings.mysqlReplicaUrls();
+        if (settings.backend().equalsIgnoreCase("mysql") && replicaUrls != null && !replicaUrls.isEmpty()) {
+            List<DatabaseBackend> replicas = new ArrayList<>();
+            for (int i = 0; i < replicaUrls.size(); i++) {
+                DatabaseBackend replica = new JdbcDatabaseBackend(
+                        JdbcDatabaseBackend.createReplicaDataSource(owner, settings, replicaUrls.get(i), i), "mysql", true);
+                replicas.add(withBreaker(owner, settings, replica, "mysql.replica" + i));
+            }
+            backend = new ReplicaRoutingBackend(backend, replicas, settings.replicaReadYourWritesMillis(), metrics, owner.getName());
+        }
+        // only worth it when every read crosses the network
+        Set<String> cachedTables = registeredTables(owner, settings, settings::localCache);
+        if (!cachedTables.isEmpty() && settings.backend().equalsIgnoreCase("mysql")) {
+            backend = new TieredCacheBackend(backend, JdbcDatabaseBackend.createLocalDataSource(owner, "l2cache", 2),
+                    cachedTables, settings.localCacheFreshMillis(), metrics, owner.getName());
+        }
+        Set<String> offHeapTables = registeredTables(owner, settings, settings::offHeapCache);
+        if (!offHeapTables.isEmpty()) {
+            backend = new OffHeapCacheBackend(backend, offHeapTables, settings.offHeapCacheBytes(),
+                    settings.offHeapCacheFreshMillis(), metrics, owner.getName());
+        }
+        Set<String> snapshotTables = registeredTables(owner, settings, settings::snapshot);
+        if (!snapshotTables.isEmpty()) {
+            backend = new SnapshotBackend(backend, new File(owner.getDataFolder(), "snapshots/" + settings.backend().toLowerCase()), snapshotTables,
+                    metrics, owner.getName(), owner.getLogger());
+        }
+        Set<String> bloomTables = registeredTables(owner, settings, settings::bloomFilter);
+        if (!bloomTables.isEmpty()) {
+            // rows inserted by other writers only reach the filter through a rebuild
+            long rebuildMillis = settings.bloomSingleWriter() ? 0 : settings.bloomRebuildMillis();
+            if (!settings.bloomSingleWriter() && rebuildMillis <= 0) {
+                owner.getLogger().warning("[VertexCore] bloomFilter ignored for " + bloomTables
+                        + ": needs bloomSingleWriter or bloomRebuildMillis > 0");
+            } else {
+                BloomFilterBackend bloom = new BloomFilterBackend(backend, bloomTables, settings.bloomFalsePositiveRate(),
+                        settings.bloomMaxBytes(), rebuildMillis, metrics, owner.getName());
+                if (rebuildMillis > 0) scheduleBloomRebuild(owner, settings, bloom, rebuildMillis);
+                backend = bloom;
+            }
+        }
+        return backend;
+    }
+
+    private void scheduleBloomRebuild(Plugin owner, DatabaseSettings settings, BloomFilterBackend bloom, long rebuildMillis) {
+        String key = owner.getName().toLowerCase() + "|" + settings.backend().toLowerCase() + "|" + settings.tablePrefix() + "|bloom";
+        long periodTicks = Math.max(20, rebuildMillis / 50);
+        AtomicBoolean running = new AtomicBoolean();
+
+        BukkitTask task = Bukkit.getScheduler().runTaskTimerAsynchronously(core, () -> {
+            if (!running.compareAndSet(false, true)) return;
+            try {
+                bloom.rebuild();
+            } catch (Exception e) {
+                // the filter stops answering misses once it's two periods old
+                owner.getLogger().warning("[VertexCore] Bloom filter rebuild failed: " + e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        }, periodTicks, periodTicks);
+        // a backend opened again (e.g. after a failed journal replay) gets a new filter
+        BukkitTask previous = backgroundTasks.put(key, task);
+        if (previous != null) previous.cancel();
+    }
+
+    private DatabaseBackend withBreaker(Plugin owner, DatabaseSettings settings, DatabaseBackend backend, String name) {
+        if (!settings.circuitBreaker()) return backend;
+        return new CircuitBreakerBackend(backend, settings.circuitBreakerFailures(), settings.circuitBreakerOpenMillis(),
+                settings.retryAttempts(), settings.retryBaseMillis(), metrics, owner.getName(), name);
+    }
+
+    // tables of registered data classes that are routed to the backend of these settings
+    private Set<String> registeredTables(Plugin owner, DatabaseSettings settings, Predicate<Class<?>> filter) {
+        Set<String> out = new LinkedHashSet<>();
+        PluginDataRegistry.Entry entry = registry.get(owner.getName());
+        if (entry == null) return out;
+
+        for (Class<?> type : entry.dataClassesOn(settings)) {
+            if (filter.test(type)) out.add(TableNamer.tableName(settings.tablePrefix(), type));
+        }
+        return out;
+    }
+
+    // one journal per backend of a plugin, null if journaling is off
+    public WriteJournal journalFor(Plugin owner, DatabaseSettings settings) {
+        if (!settings.journal()) return null;
+        return journals.computeIfAbsent(fingerprint(owner, settings), k -> {
+            File file = new File(owner.getDataFolder(), "journal/" + journalName(settings) + ".log");
+            try {
+                return WriteJournal.open(file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open journal " + file, e);
+            }
+        });
+    }
+
+    // backend, table prefix and where the rows live; stays the same when only e.g. the pool size changes
+    private static String journalName(DatabaseSettings s) {
+        String b = s.backend().toLowerCase();
+        String prefix = s.tablePrefix();
+        String name = prefix == null || prefix.isEmpty() ? b : b + "-" + prefix;
+        String location = switch (b) {
+            case "mysql" -> s.mysqlUrl() + "|" + s.mysqlUser();
+            case "sharded" -> String.valueOf(s.shards());
+            default -> null;
+        };
+        return location == null ? name : name + "-" + Integer.toHexString(location.hashCode());
+    }
+
+    // applies writes that were journaled but not applied before the last shutdown / crash;
+    // runs when the backend is opened, so no write through it can be older than the replayed ones
+    private void replayJournal(Plugin owner, DatabaseSettings settings, DatabaseBackend backend) throws IOException {
+        WriteJournal journal = journalFor(owner, settings);
+        if (journal == null) return;
+
+        List<DatabaseBackend.WriteOp> ops = journal.recovered();
+        if (!ops.isEmpty()) {
+            for (int from = 0; from < ops.size(); from += 500) {
+                backend.applyBatch(ops.subList(from, Math.min(ops.size(), from + 500)));
+            }
+            owner.getLogger().warning("[VertexCore] Replayed " + ops.size() + " journaled writes (" + settings.backend() + ")");
+        }
+        journal.recoveredApplied();
+    }
+
+    private void closeJournals(String prefix) {
+        journals.entrySet().removeIf(e -> {
+            if (!e.getKey().startsWith(prefix)) return false;
+            try {
+                e.getValue().close();
+            } catch (IOException ex) {
+                core.getLogger().severe("[VertexCore] Journal close failed: " + ex.getMessage());
+            }
+            return true;
+        });
+    }
+
+    // shared by all Database<T> instances that resolve to the same backend + table
+    public TableState tableState(Plugin owner, DatabaseSettings settings, String table) {
+        return tables.computeIfAbsent(fingerprint(owner, settings) + "|" + table, k -> new TableState(owner, settings, table));
     }
 
     public AsyncQueue queueFor(Plugin owner, long timeoutMillis) {
         String key = owner.getName().toLowerCase();
-        return queues.computeIfAbsent(key, k -> new AsyncQueue(r -> Bukkit.getScheduler().runTaskAsynchronously(core, r), timeoutMillis));
+        return queues.computeIfAbsent(key, k -> new AsyncQueue(r -> Bukkit.getScheduler().runTaskAsynchronously(core, r), timeoutMillis,
+                (wait, exec, skipped) -> recordTask(owner, wait, exec, skipped)));
+    }
+
+    // queue wait (submitted -> started) and execution time of async database tasks, per plugin
+    void recordTask(Plugin owner, long waitNanos, long execNanos, boolean skipped) {
+        String name = owner.getName();
+        metrics.increment(DatabaseMetrics.key(name, "async", skipped ? "skipped" : "tasks"));
+        metrics.add(DatabaseMetrics.key(name, "async", "wait.micros"), waitNanos / 1000);
+        if (!skipped) metrics.add(DatabaseMetrics.key(name, "async", "exec.micros"), execNanos / 1000);
+    }
+
+    // shared per parallelism level, daemon threads so a stuck decode never blocks shutdown
+    public ForkJoinPool decodePool(int parallelism) {
+        return decodePools.computeIfAbsent(Math.max(1, parallelism), p -> new ForkJoinPool(p, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("VertexCore-Decode-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false));
+    }
+
+    // one background purge per (plugin, table); deletes expired rows in batches off the main thread
+    public void schedulePurge(Plugin owner, DatabaseSettings settings, String table, long ttlMillis) {
+        String key = owner.getName().toLowerCase() + "|" + table;
+        long periodTicks = Math.max(20, settings.purgeIntervalMillis() / 50);
+        int batchSize = Math.max(1, settings.purgeBatchSize());
+        AtomicBoolean running = new AtomicBoolean();
+
+        backgroundTasks.computeIfAbsent(key, k -> Bukkit.getScheduler().runTaskTimerAsynchronously(core, () -> {
+            if (!running.compareAndSet(false, true)) return;
+            try {
+                DatabaseBackend backend = backendFor(owner, settings);
+                long total = 0;
+                int deleted;
+                do {
+                    deleted = backend.purgeExpired(table, ttlMillis, batchSize);
+                    total += deleted;
+                } while (deleted >= batchSize);
+
+                if (total > 0) owner.getLogger().fine("[VertexCore] Purged " + total + " expired rows from " + table);
+            } catch (Exception e) {
+                owner.getLogger().warning("[VertexCore] Purge failed for " + table + ": " + e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        }, periodTicks, periodTicks));
+    }
+
+    // compacts during idle periods only, so players never wait for the file rewrite
+    private void scheduleH2Maintenance(Plugin owner, DatabaseSettings settings, JdbcDatabaseBackend backend) {
+        if (settings.h2MaintenanceIntervalMillis() <= 0) return;
+
+        String key = owner.getName().toLowerCase() + "|" + settings.backend().toLowerCase() + "|maintenance";
+        long periodTicks = Math.max(20, settings.h2MaintenanceIntervalMillis() / 50);
+        AtomicBoolean running = new AtomicBoolean();
+
+        backgroundTasks.computeIfAbsent(key, k -> Bukkit.getScheduler().runTaskTimerAsynchronously(core, () -> {
+            if (!running.compareAndSet(false, true)) return;
+            try {
+                JdbcDatabaseBackend.StorageStats stats = backend.storageStats();
+                metrics.set(DatabaseMetrics.key(owner.getName(), "h2", "file.bytes"), stats.fileBytes());
+                metrics.set(DatabaseMetrics.key(owner.getName(), "h2", "fill.rate"), stats.fillRate());
+                if (stats.fillRate() < 0 || stats.fillRate() >= settings.h2CompactBelowFillRate()) return;
+                if (stats.idleMillis() < settings.h2CompactIdleMillis()) return;
+
+                compactH2(owner, backend, 1_000);
+            } catch (Exception e) {
+                owner.getLogger().warning("[VertexCore] H2 maintenance failed: " + e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        }, periodTicks, periodTicks));
+    }
+
+    // null if connections stayed busy for drainMillis
+    public JdbcDatabaseBackend.CompactResult compactH2(Plugin owner, JdbcDatabaseBackend backend, long drainMillis) {
+        JdbcDatabaseBackend.CompactResult r = backend.compact(drainMillis);
+        if (r == null) return null;
+
+        metrics.increment(DatabaseMetrics.key(owner.getName(), "h2", "compactions"));
+        metrics.set(DatabaseMetrics.key(owner.getName(), "h2", "file.bytes"), r.bytesAfter());
+        owner.getLogger().info("[VertexCore] Compacted " + backend.h2File().getName() + ": "
+                + r.bytesBefore() / 1024 + " KiB -> " + r.bytesAfter() / 1024 + " KiB in " + r.millis() + " ms");
+        return r;
+    }
+
+    public void scheduleCounterFlush(TableState state) {
+        if (!state.markCounterFlushScheduled()) return;
+
+        String key = state.owner().getName().toLowerCase() + "|" + state.table() + "|counters";
+        long periodTicks = Math.max(1, state.settings().counterFlushIntervalMillis() / 50);
+        AtomicBoolean running = new AtomicBoolean();
+
+        backgroundTasks.computeIfAbsent(key, k -> Bukkit.getScheduler().runTaskTimerAsynchronously(core, () -> {
+            if (!running.compareAndSet(false, true)) return;
+            try {
+                flushCounters(state);
+            } catch (Exception e) {
+                state.owner().getLogger().warning("[VertexCore] Counter flush failed for " + state.table() + ": " + e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        }, periodTicks, periodTicks));
+    }
+
+    // writes all buffered counter deltas of the table in one backend call; deltas stay buffered on failure
+    public void flushCounters(TableState state) {
+        synchronized (state) {
+            CounterBuffer.Drain drained = state.counters().drain();
+            if (!drained.isEmpty()) {
+                backendFor(state.owner(), state.settings()).addToFields(state.table(), drained.deltas(), state.counterTemplate());
+                metrics.add(DatabaseMetrics.key(state.owner().getName(), state.table(), "counter.flushed"), drained.deltas().size());
+            }
+            state.counters().commit(drained);
+            state.expungeAbsorbed();
+        }
+    }
+
+    // ---------------- session tables ----------------
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        String id = event.getUniqueId().toString();
+
+        CompletableFuture<Void> pending = sessionWrites.get(event.getUniqueId());
+        if (pending != null) {
+            try {
+                pending.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                // the quit write re-pinned the objects before failing, the preload below picks them up
+                core.getLogger().warning("[VertexCore] Session write-back of " + event.getName() + " failed, using the kept objects: " + e.getCause());
+            } catch (TimeoutException | InterruptedException e) {
+                // the objects are neither written nor pinned yet: loading now would read the old rows
+                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+                core.getLogger().warning("[VertexCore] Session write-back of " + event.getName() + " still pending, login refused");
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, Component.text("Your data is still being saved, please rejoin in a moment."));
+                return;
+            }
+        }
+
+        for (String name : registry.registeredPluginNames()) {
+            Plugin plugin = Bukkit.getPluginManager().getPlugin(name);
+            PluginDataRegistry.Entry entry = registry.get(name);
+            if (plugin == null || !plugin.isEnabled() || entry == null) continue;
+
+            DatabaseSettings settings = entry.settingsSupplier().get();
+            for (Class<?> type : entry.dataClasses()) {
+                if (!settings.forType(type).session(type)) continue;
+                try {
+                    // the plugin's own settings: Database routes them itself, so the pin lands in the same
+                    // table state as every Database the plugin creates for this type
+                    Database.preloadSession(plugin, settings, type.asSubclass(DataObject.class), id);
+                } catch (Exception e) {
+                    plugin.getLogger().warning("[VertexCore] Session preload of " + type.getSimpleName()
+                            + " for " + event.getName() + " failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // login refused after pre-login (ban, whitelist, full): nothing was changed, just drop the pins
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() == PlayerLoginEvent.Result.ALLOWED) return;
+        String id = event.getPlayer().getUniqueId().toString();
+        for (TableState state : tables.values()) {
+            // a kept object of an earlier failed write-back still has to be written
+            if (state.dirtySessions().contains(id)) {
+                state.detachedSessions().add(id);
+                continue;
+            }
+            state.sessions().remove(id);
+        }
+    }
+
+    // objects are serialized here on the main thread, written asynchronously
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        String id = uuid.toString();
+
+        Map<TableState, List<SessionWrite>> writes = new LinkedHashMap<>();
+        for (TableState state : tables.values()) {
+            if (!state.sessions().containsKey(id)) continue;
+            List<SessionWrite> ops = encodeSessions(state, List.of(id), true);
+            if (!ops.isEmpty()) writes.put(state, ops);
+        }
+        if (writes.isEmpty()) return;
+
+        CompletableFuture<Void> write = CompletableFuture.runAsync(() -> {
+            RuntimeException failure = null;
+            for (Map.Entry<TableState, List<SessionWrite>> e : writes.entrySet()) {
+                try {
+                    writeSessions(e.getKey(), e.getValue());
+                } catch (RuntimeException ex) {
+                    // pinned again before the future completes, so a waiting login sees them
+                    repin(e.getKey(), e.getValue());
+                    failure = ex;
+                }
+            }
+            if (failure != null) throw failure;
+        }, r -> Bukkit.getScheduler().runTaskAsynchronously(core, r));
+        sessionWrites.put(uuid, write);
+        write.whenComplete((v, err) -> {
+            sessionWrites.remove(uuid, write);
+            if (err != null) core.getLogger().severe("[VertexCore] Session write-back of " + id + " failed, kept in memory for the next autosave: " + err.getMessage());
+        });
+    }
+
+    // the player left but the write failed: keep the objects pinned and dirty until written
+    private void repin(TableState state, List<SessionWrite> ops) {
+        for (SessionWrite w : ops) {
+            String id = w.op().uniqueId();
+            if (state.sessions().putIfAbsent(id, w.obj()) == null) state.detachedSessions().add(id);
+            state.dirtySessions().add(id);
+        }
+    }
+
+    // written objects of players who left are unpinned, unless they changed again meanwhile
+    private void releaseDetached(TableState state, List<SessionWrite> ops) {
+        for (SessionWrite w : ops) {
+            String id = w.op().uniqueId();
+            if (!state.detachedSessions().remove(id)) continue;
+            if (state.dirtySessions().contains(id)) state.detachedSessions().add(id);
+            else state.sessions().remove(id, w.obj());
+        }
+    }
+
+    public void scheduleSessionAutosave(TableState state) {
+        if (!state.markSessionAutosaveScheduled() || state.settings().sessionAutosaveMillis() <= 0) return;
+
+        String key = state.owner().getName().toLowerCase() + "|" + state.table() + "|sessions";
+        long periodTicks = Math.max(20, state.settings().sessionAutosaveMillis() / 50);
+        AtomicBoolean running = new AtomicBoolean();
+
+        // encode on the main thread (where the objects are changed), write off it
+        backgroundTasks.computeIfAbsent(key, k -> Bukkit.getScheduler().runTaskTimer(core, () -> {
+            if (state.dirtySessions().isEmpty() || !running.compareAndSet(false, true)) return;
+            List<SessionWrite> ops = encodeSessions(state, List.copyOf(state.dirtySessions()), false);
+            Bukkit.getScheduler().runTaskAsynchronously(core, () -> {
+                try {
+                    writeSessions(state, ops);
+                    releaseDetached(state, ops);
+                } catch (Exception e) {
+                    // still pinned -> written by the next autosave or on quit
+                    ops.forEach(w -> {
+                        if (state.sessions().containsKey(w.op().uniqueId())) state.dirtySessions().add(w.op().uniqueId());
+                    });
+                    state.owner().getLogger().warning("[VertexCore] Session autosave failed for " + state.table() + ": " + e.getMessage());
+                } finally {
+                    running.set(false);
+                }
+            });
+        }, periodTicks, periodTicks));
+    }
+
+    private record SessionWrite(DataObject obj, DatabaseBackend.WriteOp op) {}
+
+    // takes the dirty objects among ids (and unpins all ids when evicting)
+    private List<SessionWrite> encodeSessions(TableState state, Collection<String> ids, boolean evict) {
+        List<SessionWrite> ops = new ArrayList<>();
+        for (String id : ids) {
+            DataObject obj = evict ? state.sessions().remove(id) : state.sessions().get(id);
+            boolean dirty = state.dirtySessions().remove(id);
+            if (obj != null && dirty) {
+                ops.add(new SessionWrite(obj, new DatabaseBackend.WriteOp(state.table(), id, encode(state.sessionType(), obj))));
+            }
+        }
+        return ops;
+    }
+
+    private <T extends DataObject> String encode(Class<T> type, DataObject obj) {
+        return json.toJson(type, type.cast(obj));
+    }
+
+    // like saveObject: the objects include the counter deltas pending when they were loaded, flushed ones are added back
+    private void writeSessions(TableState state, List<SessionWrite> ops) {
+        if (ops.isEmpty()) return;
+        synchronized (state) {
+            List<DatabaseBackend.WriteOp> batch = new ArrayList<>(ops.size());
+            for (SessionWrite w : ops) {
+                Map<String, Long> written = state.writtenSinceLoad(w.obj());
+                DatabaseBackend.WriteOp op = w.op();
+                batch.add(written.isEmpty() ? op : new DatabaseBackend.WriteOp(op.table(), op.uniqueId(), JsonFields.applyDeltas(op.json(), written)));
+            }
+            backendFor(state.owner(), state.settings()).applyBatch(batch);
+            for (SessionWrite w : ops) state.consumeAbsorbed(w.obj());
+        }
+        metrics.add(DatabaseMetrics.key(state.owner().getName(), state.table(), "session.written"), ops.size());
+    }
+
+    private void flushAllSessions(Predicate<TableState> filter) {
+        for (TableState state : tables.values()) {
+            if (!filter.test(state) || state.dirtySessions().isEmpty()) continue;
+            try {
+                List<SessionWrite> ops = encodeSessions(state, List.copyOf(state.dirtySessions()), false);
+                writeSessions(state, ops);
+                releaseDetached(state, ops);
+            } catch (Exception e) {
+                state.owner().getLogger().severe("[VertexCore] Lost session changes for " + state.table() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void flushAllCounters(Predicate<TableState> filter) {
+        for (TableState state : tables.values()) {
+            if (!filter.test(state)) continue;
+            try {
+                flushCounters(state);
+            } catch (Exception e) {
+                state.owner().getLogger().severe("[VertexCore] Lost counter deltas for " + state.table() + ": " + e.getMessage());
+            }
+        }
     }
 
     public void closeFor(Plugin owner) {
         String prefix = owner.getName().toLowerCase() + "|";
+        backgroundTasks.entrySet().removeIf(e -> {
+            if (e.getKey().startsWith(prefix)) {
+                e.getValue().cancel();
+                return true;
+            }
+            return false;
+        });
+        flushAllSessions(state -> state.owner() == owner);
+        flushAllCounters(state -> state.owner() == owner);
+        tables.keySet().removeIf(k -> k.startsWith(prefix));
         backends.entrySet().removeIf(e -> {
             if(e.getKey().startsWith(prefix)) {
                 e.getValue().close();
@@ -60,6 +648,8 @@ public class DatabaseService implements Listener {
             return false;
         });
         queues.remove(owner.getName().toLowerCase());
+        closeJournals(prefix);
+        metrics.clear(prefix.replace('|', '/'));
     }
 
     public CompletableFuture<Void> warmupFor(Plugin plugin) {
@@ -69,9 +659,18 @@ public class DatabaseService implements Listener {
         DatabaseSettings settings = entry.settingsSupplier().get();
 
         return CompletableFuture.runAsync(() -> {
-            DatabaseBackend backend = backendFor(plugin, settings);
-            backend.warmup();
-            plugin.getLogger().info("[VertexCore] Database warmup done (" + settings.backend() + ")");
+            // one pass per backend the plugin's tables are routed to
+            for (DatabaseSettings routed : entry.routedSettings(settings)) {
+                DatabaseBackend backend = backendFor(plugin, routed);
+                backend.warmup();
+                for (String table : registeredTables(plugin, routed, type -> true)) {
+                    backend.warmupTable(table);
+                }
+                for (Class<?> type : entry.dataClassesOn(routed)) {
+                    if (routed.resident(type)) Database.preloadResident(plugin, routed, type.asSubclass(DataObject.class));
+                }
+                plugin.getLogger().info("[VertexCore] Database warmup done (" + routed.backend() + ")");
+            }
         }, r -> Bukkit.getScheduler().runTaskAsynchronously(core, r));
     }
 
@@ -95,8 +694,16 @@ public class DatabaseService implements Listener {
     }
 
     public void closeAll() {
+        backgroundTasks.values().forEach(BukkitTask::cancel);
+        backgroundTasks.clear();
+        flushAllSessions(state -> true);
+        flushAllCounters(state -> true);
+        tables.clear();
+        decodePools.values().forEach(ForkJoinPool::shutdownNow);
+        decodePools.clear();
         backends.values().forEach(DatabaseBackend::close);
         backends.clear();
+        closeJournals("");
     }
 
     private static Throwable unwrap(Throwable t) {
@@ -110,7 +717,10 @@ public class DatabaseService implements Listener {
         String base = owner.getName().toLowerCase() + "|" + b + "|" + s.poolSize() + "|" + s.tablePrefix();
 
         if (b.equals("mysql")) {
-            return base + "|" + s.mysqlUrl() + "|" + s.mysqlUser();
+            return base + "|" + s.mysqlUrl() + "|" + s.mysqlUser() + "|" + s.mysqlReplicaUrls();
+        }
+        if (b.equals("sharded")) {
+            return base + "|" + s.shards() + "|" + s.shardVirtualNodes();
         }
         return base;
     }
@@ -1,5 +1,12 @@
 package de.tebrox.vertexCore.database;
 
+import de.tebrox.vertexCore.database.annotation.DbBackend;
+import de.tebrox.vertexCore.database.internal.SettingsOverrides;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 public interface DatabaseSettings {
 
     // "h2" | "mysql" | "json"
@@ -9,6 +16,9 @@ public interface DatabaseSettings {
     default boolean useQueue() { return true; }
     default long timeoutMillis() { return 5000; }
 
+    // Concurrent loadObjectAsync calls for one id share a single read; false = every caller gets its own copy
+    default boolean shareCoalescedLoads() { return false; }
+
     // Pool
     default int poolSize() { return 5; }
 
@@ -17,6 +27,104 @@ public interface DatabaseSettings {
     default String mysqlUser() { return null; }
     default String mysqlPassword() { return null; }
 
+    // Optional MySQL read replicas (own pools of replicaPoolSize, primary credentials). Bulk reads (scans, id
+    // listings, counts, aggregates) go to a replica; point reads too, except for rows/tables written through
+    // this server within the last replicaReadYourWritesMillis, which are read from the primary
+    default List<String> mysqlReplicaUrls() { return List.of(); }
+    default int replicaPoolSize() { return poolSize(); }
+    default long replicaReadYourWritesMillis() { return 2_000; }
+
+    // backend "sharded": rows are spread over these databases by consistent hashing of the id.
+    // name -> JDBC url (jdbc:mysql:/jdbc:h2:, mysql credentials) or "h2:<file>" for an H2 file in the plugin folder.
+    // Names place the rows and must stay stable; after adding shards run /vc rebalance <plugin>
+    default Map<String, String> shards() { return Map.of(); }
+    default int shardVirtualNodes() { return 160; }
+
+    // TTL (0 = keep forever). @DbTtl on the data class takes precedence.
+    default long ttlMillis(Class<?> type) { return 0; }
+    default long purgeIntervalMillis() { return 60_000; }
+    default int purgeBatchSize() { return 500; }
+
+    // Bulk loads: decode rows in chunks on a fork-join pool (never on the calling thread)
+    default boolean parallelDecode() { return false; }
+    default int decodeParallelism() { return Math.max(1, Runtime.getRuntime().availableProcessors() - 1); }
+    default int decodeChunkSize() { return 256; }
+    default boolean decodePreserveOrder() { return true; }
+
+    // Bloom filter for negative lookups (registered data classes only); budget is per table.
+    // It only sees rows written through this server: it's rebuilt from the ids every bloomRebuildMillis, until then
+    // a row another server (or an H2 AUTO_SERVER client) inserted may look absent. bloomSingleWriter = nobody else
+    // writes these tables: no rebuilds, misses are always trusted.
+    default boolean bloomFilter(Class<?> type) { return false; }
+    default double bloomFalsePositiveRate() { return 0.01; }
+    default long bloomMaxBytes() { return 4L * 1024 * 1024; }
+    default boolean bloomSingleWriter() { return false; }
+    default long bloomRebuildMillis() { return 60_000; }
+
+    // Local persistent copy (embedded H2) of remote MySQL rows; rows are re-validated after localCacheFreshMillis
+    default boolean localCache(Class<?> type) { return false; }
+    default long localCacheFreshMillis() { return 30_000; }
+
+    // Off-heap row cache (direct memory, no GC cost) in front of the backend; budget is shared by all its tables.
+    // Entries expire after offHeapCacheFreshMillis so writes from other servers show up eventually
+    default boolean offHeapCache(Class<?> type) { return false; }
+    default long offHeapCacheBytes() { return 256L * 1024 * 1024; }
+    default long offHeapCacheFreshMillis() { return 60_000; }
+
+    // Warm start: write a snapshot of the table on shutdown, serve it (memory-mapped) after the next start
+    // and only re-read rows changed since. Only for tables that no other server writes to.
+    default boolean snapshot(Class<?> type) { return false; }
+
+    // Resident: the whole table is kept in memory (loaded at warmup), all reads are served from it.
+    // For small, read-mostly tables only written through this server. Ignored for TTL tables.
+    default boolean resident(Class<?> type) { return false; }
+
+    // Session tables (id = player UUID): rows are loaded at pre-login and kept in memory while the player is
+    // online; saves only mark them dirty, they are written on quit and every sessionAutosaveMillis
+    default boolean session(Class<?> type) { return false; }
+    default long sessionAutosaveMillis() { return 5 * 60_000; }
+
+    // Counters (Database#increment): buffered deltas are written in one batch per table and interval
+    default long counterFlushIntervalMillis() { return 5_000; }
+
+    // H2 file maintenance: every interval, compact (SHUTDOWN COMPACT) when less than h2CompactBelowFillRate
+    // percent of the file is live data and no connection was taken for h2CompactIdleMillis. 0 = off
+    default long h2MaintenanceIntervalMillis() { return 15 * 60_000; }
+    default int h2CompactBelowFillRate() { return 50; }
+    default long h2CompactIdleMillis() { return 60_000; }
+
+    // Crash safety: saveObjectAsync/deleteObjectAsync are appended to a local journal (group-commit fsync)
+    // before they are queued; entries not applied before a crash are replayed on the next start
+    default boolean journal() { return false; }
+
+    // JDBC circuit breaker: after circuitBreakerFailures consecutive connection failures calls fail fast for
+    // circuitBreakerOpenMillis (doubling per failed probe). Transient errors are retried up to retryAttempts
+    // times with jittered exponential backoff starting at retryBaseMillis (never for counter updates)
+    default boolean circuitBreaker() { return true; }
+    default int circuitBreakerFailures() { return 5; }
+    default long circuitBreakerOpenMillis() { return 5_000; }
+    default int retryAttempts() { return 3; }
+    default long retryBaseMillis() { return 50; }
+
+    // Per-table routing (null = not configured). Precedence: this, @DbBackend on the class, backend()
+    default String backend(Class<?> type) { return null; }
+
+    // settings as seen by one data class: backend() is the backend the table is routed to
+    default DatabaseSettings forType(Class<?> type) {
+        String routed = backend(type);
+        if (routed == null) {
+            DbBackend ann = type.getAnnotation(DbBackend.class);
+            if (ann != null) routed = ann.value();
+        }
+        if (routed == null || routed.isBlank() || routed.equalsIgnoreCase(backend())) return this;
+        return withBackend(routed.toLowerCase(Locale.ROOT));
+    }
+
     // Optional: Prefix für Tabellen (für mysql/h2)
     default String tablePrefix() { return ""; }
+
+    // same settings, different backend (everything else is forwarded to this instance)
+    default DatabaseSettings withBackend(String backend) {
+        return SettingsOverrides.withBackend(this, backend);
+    }
 }
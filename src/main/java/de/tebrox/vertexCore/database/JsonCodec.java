@@ -1,19 +1,85 @@
 package de.tebrox.vertexCore.database;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import de.tebrox.vertexCore.database.annotation.DbExpose;
+import de.tebrox.vertexCore.database.annotation.DbVersion;
+import de.tebrox.vertexCore.database.codec.GeneratedCodec;
 
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 
 public final class JsonCodec {
-    private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    public static final String VERSION_KEY = "_v";
+
+    private final Gson gson = new GsonBuilder()
+            .disableHtmlEscaping()
+            .registerTypeHierarchyAdapter(Ref.class, Ref.ADAPTER)
+            .create();
+
+    // type -> (fromVersion -> upcaster to fromVersion + 1)
+    private final Map<Class<?>, Map<Integer, UnaryOperator<JsonObject>>> upcasters = new ConcurrentHashMap<>();
+
+    // generated codecs (CodecProcessor), looked up once per type; empty = reflection
+    private final Map<Class<?>, Optional<GeneratedCodec<?>>> generated = new ConcurrentHashMap<>();
+
+    public void registerUpcaster(Class<?> type, int fromVersion, UnaryOperator<JsonObject> upcaster) {
+        int current = schemaVersion(type);
+        if (fromVersion < 0 || fromVersion >= current) {
+            throw new IllegalArgumentException("Upcaster " + fromVersion + "->" + (fromVersion + 1)
+                    + " outside of schema range of " + type.getName() + " (current=" + current + ")");
+        }
+        upcasters.computeIfAbsent(type, k -> new ConcurrentHashMap<>()).put(fromVersion, upcaster);
+    }
+
+    public static int schemaVersion(Class<?> type) {
+        DbVersion v = type.getAnnotation(DbVersion.class);
+        return v == null ? 0 : v.value();
+    }
+
+    // payloads without stamp are version 0; the stamp is written first, so this usually reads one token
+    public int payloadVersion(String json) {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals(VERSION_KEY) && reader.peek() == JsonToken.NUMBER) return reader.nextInt();
+                reader.skipValue();
+            }
+            return 0;
+        } catch (Exception e) {
+            throw new RuntimeException("JSON version read failed", e);
+        }
+    }
+
+    public boolean isOutdated(Class<?> type, String json) {
+        return payloadVersion(json) < schemaVersion(type);
+    }
+
+    public boolean hasGeneratedCodec(Class<?> type) {
+        return generatedCodec(type) != null;
+    }
 
     public <T> String toJson(Class<T> type, T obj) {
+        GeneratedCodec<T> codec = generatedCodec(type);
+        if (codec != null) return toJsonGenerated(codec, obj);
+
         try {
             Map<String, Object> map = new LinkedHashMap<>();
+            int version = schemaVersion(type);
+            if (version > 0) map.put(VERSION_KEY, version);
+
             for(Field f : type.getDeclaredFields()) {
                 if(Modifier.isStatic(f.getModifiers())) continue;
                 if(!f.isAnnotationPresent(DbExpose.class)) continue;
@@ -27,8 +93,17 @@ public final class JsonCodec {
     }
 
     public <T> T fromJson(Class<T> type, String json) {
+        GeneratedCodec<T> codec = generatedCodec(type);
+        if (codec != null) {
+            T fast = fromJsonGenerated(codec, json);
+            if (fast != null) return fast;
+        }
+        return fromJsonReflective(type, json);
+    }
+
+    private <T> T fromJsonReflective(Class<T> type, String json) {
         try {
-            JsonObject obj = JsonParser.parseString(json).getAsJsonObject();
+            JsonObject obj = upcast(type, JsonParser.parseString(json).getAsJsonObject());
             T instance = type.getDeclaredConstructor().newInstance();
 
             for(Field f : type.getDeclaredFields()) {
@@ -47,4 +122,91 @@ public final class JsonCodec {
             throw new RuntimeException("JSON deserialize failed: " + type.getName(), e);
         }
     }
+
+    private <T> String toJsonGenerated(GeneratedCodec<T> codec, T obj) {
+        try {
+            StringWriter sw = new StringWriter();
+            JsonWriter out = gson.newJsonWriter(sw);
+            out.beginObject();
+            int version = schemaVersion(codec.type());
+            if (version > 0) out.name(VERSION_KEY).value(version);
+            codec.writeFields(obj, out);
+            out.endObject();
+            out.flush();
+            return sw.toString();
+        } catch (Exception e) {
+            throw new RuntimeException("JSON serialize failed: " + codec.type().getName(), e);
+        }
+    }
+
+    // null = payload is outdated and needs the tree based upcast path
+    private <T> T fromJsonGenerated(GeneratedCodec<T> codec, String json) {
+        int current = schemaVersion(codec.type());
+        try (JsonReader in = new JsonReader(new StringReader(json))) {
+            T instance = codec.newInstance();
+            int version = 0;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (name.equals(VERSION_KEY)) {
+                    version = in.nextInt();
+                    if (version < current) return null;
+                } else if (!codec.readField(instance, name, in)) {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return version < current ? null : instance;
+        } catch (Exception e) {
+            throw new RuntimeException("JSON deserialize failed: " + codec.type().getName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> GeneratedCodec<T> generatedCodec(Class<T> type) {
+        return (GeneratedCodec<T>) generated.computeIfAbsent(type, this::discoverCodec).orElse(null);
+    }
+
+    private Optional<GeneratedCodec<?>> discoverCodec(Class<?> type) {
+        ClassLoader loader = type.getClassLoader();
+        if (loader == null) return Optional.empty();
+
+        Iterator<GeneratedCodec<?>> it = codecServices(loader).iterator();
+        for (int errors = 0; errors < 16; ) {
+            try {
+                if (!it.hasNext()) break;
+                GeneratedCodec<?> codec = it.next();
+                if (codec.type() != type) continue;
+                codec.bind(gson);
+                return Optional.of(codec);
+            } catch (ServiceConfigurationError e) {
+                // stale service entry (e.g. class removed) -> keep looking, reflection as last resort
+                errors++;
+            }
+        }
+        return Optional.empty();
+    }
+
+    // ServiceLoader only takes the raw class; every provider implements GeneratedCodec<X> for some X
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ServiceLoader<GeneratedCodec<?>> codecServices(ClassLoader loader) {
+        return (ServiceLoader) ServiceLoader.load(GeneratedCodec.class, loader);
+    }
+
+    private JsonObject upcast(Class<?> type, JsonObject obj) {
+        int current = schemaVersion(type);
+        JsonElement stamp = obj.get(VERSION_KEY);
+        int version = stamp != null && stamp.isJsonPrimitive() ? stamp.getAsInt() : 0;
+        if (version >= current) return obj;
+
+        Map<Integer, UnaryOperator<JsonObject>> chain = upcasters.getOrDefault(type, Map.of());
+        for (int v = version; v < current; v++) {
+            UnaryOperator<JsonObject> step = chain.get(v);
+            // missing steps are fine when the shape didn't change between two versions
+            if (step != null) obj = step.apply(obj);
+        }
+        obj.addProperty(VERSION_KEY, current);
+        return obj;
+    }
 }
@@ -0,0 +1,86 @@
+package de.tebrox.vertexCore.database;
+
+import de.tebrox.vertexCore.database.internal.RankedIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory ranking of one numeric {@code @DbExpose} field, highest score first.
+ * Built once by a scan of the table, then kept current by saves, deletes and increments
+ * through any {@link Database} of this table on this server. Lookups are O(log n).
+ */
+public final class Leaderboard {
+
+    public record Entry(String uniqueId, double score, int rank) {}
+
+    private final String field;
+    private final RankedIndex index = new RankedIndex();
+    private final AtomicBoolean buildStarted = new AtomicBoolean();
+    private final CompletableFuture<Void> built = new CompletableFuture<>();
+
+    Leaderboard(String field) {
+        this.field = field;
+    }
+
+    public String field() {
+        return field;
+    }
+
+    public boolean isBuilt() {
+        return built.isDone() && !built.isCompletedExceptionally();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public List<Entry> top(int n) {
+        return page(1, n);
+    }
+
+    // ranks are 1-based
+    public List<Entry> page(int fromRank, int count) {
+        List<Entry> out = new ArrayList<>(Math.max(0, Math.min(count, 1024)));
+        int[] rank = { fromRank };
+        index.range(fromRank, count, (id, score) -> out.add(new Entry(id, score, rank[0]++)));
+        return out;
+    }
+
+    // -1 if the id has no score
+    public int rankOf(String uniqueId) {
+        return index.rank(uniqueId);
+    }
+
+    public Double scoreOf(String uniqueId) {
+        return index.score(uniqueId);
+    }
+
+    public Entry entry(String uniqueId) {
+        Double score = index.score(uniqueId);
+        int rank = index.rank(uniqueId);
+        return score == null || rank < 0 ? null : new Entry(uniqueId, score, rank);
+    }
+
+    RankedIndex index() {
+        return index;
+    }
+
+    // first caller runs the scan, everyone else waits for it
+    void ensureBuilt(Runnable scan) {
+        if (built.isDone() || !buildStarted.compareAndSet(false, true)) {
+            built.join();
+            return;
+        }
+        try {
+            scan.run();
+            index.finishBuild();
+            built.complete(null);
+        } catch (RuntimeException e) {
+            built.completeExceptionally(e);
+            throw e;
+        }
+    }
+}
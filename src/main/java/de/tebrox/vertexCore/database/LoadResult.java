@@ -0,0 +1,15 @@
+package de.tebrox.vertexCore.database;
+
+import java.util.List;
+
+// result of a bulk load with backend I/O and json decode time measured separately
+public record LoadResult<T>(List<T> objects, long ioNanos, long decodeNanos, boolean parallel) {
+
+    public long ioMillis() {
+        return ioNanos / 1_000_000;
+    }
+
+    public long decodeMillis() {
+        return decodeNanos / 1_000_000;
+    }
+}
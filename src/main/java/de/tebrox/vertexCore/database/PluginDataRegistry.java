@@ -3,6 +3,9 @@ package de.tebrox.vertexCore.database;
 import de.tebrox.vertexCore.database.DatabaseSettings;
 import org.bukkit.plugin.Plugin;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -10,7 +13,28 @@ import java.util.function.Supplier;
 
 public final class PluginDataRegistry {
 
-    public record Entry(Supplier<DatabaseSettings> settingsSupplier, Class<?>[] dataClasses) {}
+    public record Entry(Supplier<DatabaseSettings> settingsSupplier, Class<?>[] dataClasses) {
+
+        // data classes whose table is routed to the backend of these settings (which may be a routed view)
+        public List<Class<?>> dataClassesOn(DatabaseSettings settings) {
+            List<Class<?>> out = new ArrayList<>();
+            for (Class<?> type : dataClasses) {
+                if (settings.forType(type).backend().equalsIgnoreCase(settings.backend())) out.add(type);
+            }
+            return out;
+        }
+
+        // one settings instance per distinct backend used by the data classes, default backend first
+        public List<DatabaseSettings> routedSettings(DatabaseSettings settings) {
+            Map<String, DatabaseSettings> out = new LinkedHashMap<>();
+            out.put(settings.backend().toLowerCase(), settings);
+            for (Class<?> type : dataClasses) {
+                DatabaseSettings routed = settings.forType(type);
+                out.putIfAbsent(routed.backend().toLowerCase(), routed);
+            }
+            return new ArrayList<>(out.values());
+        }
+    }
 
     private final Map<String, Entry> entries = new ConcurrentHashMap<>();
 
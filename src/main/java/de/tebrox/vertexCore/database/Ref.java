@@ -0,0 +1,89 @@
+package de.tebrox.vertexCore.database;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Lazy pointer to another DataObject, stored as its uniqueId.
+ * Resolve through the target's {@link Database}: {@link Database#resolve(Ref)} for one,
+ * {@link Database#resolveAll(java.util.Collection)} for many (one backend call for all unloaded ids).
+ */
+public final class Ref<T extends DataObject> {
+
+    private final String id;
+    private volatile T value;
+
+    private Ref(String id, T value) {
+        this.id = Objects.requireNonNull(id, "id");
+        this.value = value;
+    }
+
+    public static <T extends DataObject> Ref<T> of(String uniqueId) {
+        return new Ref<>(uniqueId, null);
+    }
+
+    // already resolved, no lookup needed
+    public static <T extends DataObject> Ref<T> to(T obj) {
+        return new Ref<>(obj.getUniqueId(), obj);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public boolean isLoaded() {
+        return value != null;
+    }
+
+    // null until resolved (or if the target doesn't exist)
+    public T getIfLoaded() {
+        return value;
+    }
+
+    public T get(Database<T> db) {
+        T v = value;
+        return v != null ? v : db.resolve(this);
+    }
+
+    void set(T value) {
+        this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Ref<?> other && id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Ref(" + id + ")";
+    }
+
+    // json: the plain id string
+    static final TypeAdapter<Ref<?>> ADAPTER = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, Ref<?> ref) throws IOException {
+            if (ref == null) out.nullValue();
+            else out.value(ref.id);
+        }
+
+        @Override
+        public Ref<?> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return new Ref<>(in.nextString(), null);
+        }
+    };
+}
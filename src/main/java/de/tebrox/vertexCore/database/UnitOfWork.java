@@ -0,0 +1,123 @@
+package de.tebrox.vertexCore.database;
+
+import de.tebrox.vertexCore.database.DatabaseBackend.WriteOp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Collects saves and deletes across several {@link Database} instances and writes them in one
+ * backend call: one JDBC transaction on one connection, staged files + rename for flatfile.
+ * All databases must resolve to the same backend (same plugin and routed backend).
+ * Objects are serialized when added, so later changes to them are not part of the unit.
+ */
+public final class UnitOfWork {
+
+    private record Pending(Database<?> db, WriteOp op, DataObject obj) {}
+
+    // "table|id" -> last write, so a save followed by a delete of the same row stays a delete
+    private final Map<String, Pending> writes = new LinkedHashMap<>();
+    private DatabaseBackend backend;
+    private Database<?> first;
+    private boolean committed;
+
+    public static UnitOfWork begin() {
+        return new UnitOfWork();
+    }
+
+    public synchronized <T extends DataObject> UnitOfWork save(Database<T> db, T obj) {
+        add(db, new WriteOp(db.table(), obj.getUniqueId(), db.encode(obj)), obj);
+        return this;
+    }
+
+    public synchronized UnitOfWork delete(Database<?> db, String uniqueId) {
+        add(db, new WriteOp(db.table(), uniqueId, null), null);
+        return this;
+    }
+
+    public synchronized int size() {
+        return writes.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return writes.isEmpty();
+    }
+
+    private void add(Database<?> db, WriteOp op, DataObject obj) {
+        if (committed) throw new IllegalStateException("Unit of work already committed");
+
+        DatabaseBackend b = db.backend();
+        if (backend == null) {
+            backend = b;
+            first = db;
+        } else if (backend != b) {
+            throw new IllegalArgumentException("Unit of work spans different backends (" + db.table() + ")");
+        }
+        writes.remove(op.table() + "|" + op.uniqueId());
+        writes.put(op.table() + "|" + op.uniqueId(), new Pending(db, op, obj));
+    }
+
+    public synchronized void commit() {
+        if (committed) throw new IllegalStateException("Unit of work already committed");
+        committed = true;
+        if (writes.isEmpty()) return;
+
+        List<Pending> pending = new ArrayList<>(writes.values());
+
+        // tables of saved objects that were loaded with counter deltas are locked like in saveObject (fixed order, no deadlock)
+        List<Database<?>> locked = new ArrayList<>();
+        for (Pending p : pending) {
+            if (p.obj() != null && p.db().hasAbsorbedCounters(p.obj()) && !locked.contains(p.db())) {
+                locked.add(p.db());
+            }
+        }
+        locked.sort(Comparator.comparing(Database::table));
+        withLocks(locked, 0, () -> {
+            // counter deltas flushed since an object was loaded are added back, like in saveObject
+            List<WriteOp> ops = new ArrayList<>(pending.size());
+            for (Pending p : pending) {
+                WriteOp op = p.op();
+                if (p.obj() != null) op = new WriteOp(op.table(), op.uniqueId(), p.db().withWrittenCounters(p.obj(), op.json()));
+                ops.add(op);
+            }
+            backend.applyBatch(ops);
+            for (Pending p : pending) {
+                if (p.obj() != null) p.db().consumeAbsorbedCounters(p.obj());
+            }
+        });
+
+        for (Pending p : pending) {
+            if (p.obj() != null) p.db().afterSave(p.obj());
+            else p.db().afterDelete(p.op().uniqueId());
+        }
+    }
+
+    public CompletableFuture<Void> commitAsync() {
+        Database<?> db;
+        synchronized (this) {
+            db = first;
+        }
+        if (db == null) {
+            commit();
+            return CompletableFuture.completedFuture(null);
+        }
+        return db.async(() -> {
+            commit();
+            return null;
+        });
+    }
+
+    private static void withLocks(List<Database<?>> dbs, int i, Runnable body) {
+        if (i == dbs.size()) {
+            body.run();
+            return;
+        }
+        synchronized (dbs.get(i).counterLock()) {
+            withLocks(dbs, i + 1, body);
+        }
+    }
+}
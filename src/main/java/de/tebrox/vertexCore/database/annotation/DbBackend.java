@@ -0,0 +1,14 @@
+package de.tebrox.vertexCore.database.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// stores this table in another backend than the plugin default ("json", "h2" or "mysql").
+// DatabaseSettings#backend(Class) takes precedence, so servers can re-route without a rebuild.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DbBackend {
+    String value();
+}
@@ -0,0 +1,15 @@
+package de.tebrox.vertexCore.database.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+// rows older than this (last save) are treated as absent and purged in the background
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DbTtl {
+    long value();
+    TimeUnit unit() default TimeUnit.SECONDS;
+}
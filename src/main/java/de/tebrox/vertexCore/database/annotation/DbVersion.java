@@ -0,0 +1,13 @@
+package de.tebrox.vertexCore.database.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// current payload schema version; older payloads are upcast on load (see JsonCodec.registerUpcaster)
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DbVersion {
+    int value();
+}
@@ -0,0 +1,163 @@
+package de.tebrox.vertexCore.database.backend;
+
+import de.tebrox.vertexCore.database.DatabaseBackend;
+import de.tebrox.vertexCore.database.DatabaseMetrics;
+import de.tebrox.vertexCore.database.internal.BloomFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Answers definite misses of get/exists from an in-memory Bloom filter per table.
+ * Filters are built from the id set in warmupTable and updated on every set.
+ * Deletes leave their bits set; that only costs a real lookup, never a wrong answer.
+ * Rows inserted by anyone else are missed until the next {@link #rebuild()}: with rebuildMillis > 0
+ * misses are only trusted while the filter is at most two periods old (rebuilds failing -> every
+ * lookup goes through), with 0 the backend must have no other writer.
+ */
+public final class BloomFilterBackend extends ForwardingDatabaseBackend {
+
+    private final Set<String> tables;
+    private final double falsePositiveRate;
+    private final long maxBytes;
+    private final long rebuildMillis;
+    private final DatabaseMetrics metrics;
+    private final String metricsOwner;
+
+    // the filter answering lookups, and when its build started
+    private final Map<String, BloomFilter> filters = new ConcurrentHashMap<>();
+    private final Map<String, Long> builtAt = new ConcurrentHashMap<>();
+    // filters being built; they get every set too, so nothing written during the build is missed
+    private final Map<String, BloomFilter> building = new ConcurrentHashMap<>();
+
+    public BloomFilterBackend(DatabaseBackend delegate, Set<String> tables, double falsePositiveRate, long maxBytes,
+                              long rebuildMillis, DatabaseMetrics metrics, String metricsOwner) {
+        super(delegate);
+        this.tables = Set.copyOf(tables);
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxBytes = maxBytes;
+        this.rebuildMillis = rebuildMillis;
+        this.metrics = metrics;
+        this.metricsOwner = metricsOwner;
+    }
+
+    @Override
+    public void warmupTable(String table) {
+        super.warmupTable(table);
+        if (tables.contains(table)) build(table);
+    }
+
+    // builds every filter again from the current ids (picks up rows other servers inserted); the old one answers meanwhile
+    public void rebuild() {
+        for (String table : List.copyOf(builtAt.keySet())) build(table);
+    }
+
+    private void build(String table) {
+        long started = System.nanoTime();
+        // ids only, payloads are never read
+        long count = delegate.count(table);
+        // headroom for growth, the filter degrades gracefully once it's fuller than planned
+        BloomFilter filter = BloomFilter.create(Math.max(10_000, count * 2), falsePositiveRate, maxBytes);
+        building.put(table, filter);
+        try {
+            try (Stream<String> ids = delegate.ids(table)) {
+                ids.forEach(filter::put);
+            }
+            filters.put(table, filter);
+            builtAt.put(table, started);
+        } finally {
+            building.remove(table, filter);
+        }
+
+        metrics.set(DatabaseMetrics.key(metricsOwner, table, "bloom.bytes"), filter.sizeInBytes());
+    }
+
+    private boolean definitelyAbsent(String table, String uniqueId) {
+        Long built = builtAt.get(table);
+        if (built == null) return false;
+        if (rebuildMillis > 0 && System.nanoTime() - built > 2 * rebuildMillis * 1_000_000L) return false;
+        BloomFilter f = filters.get(table);
+        if (f == null || f.mightContain(uniqueId)) return false;
+
+        metrics.increment(DatabaseMetrics.key(metricsOwner, table, "bloom.avoided"));
+        return true;
+    }
+
+    @Override
+    public String get(String table, String uniqueId) {
+        if (definitelyAbsent(table, uniqueId)) return null;
+        return super.get(table, uniqueId);
+    }
+
+    @Override
+    public String getFresh(String table, String uniqueId, long maxAgeMillis) {
+        if (definitelyAbsent(table, uniqueId)) return null;
+        return super.getFresh(table, uniqueId, maxAgeMillis);
+    }
+
+    @Override
+    public Map<String, String> getMany(String table, Collection<String> uniqueIds) {
+        List<String> candidates = new ArrayList<>(uniqueIds.size());
+        for (String id : uniqueIds) {
+            if (!definitelyAbsent(table, id)) candidates.add(id);
+        }
+        return candidates.isEmpty() ? Map.of() : super.getMany(table, candidates);
+    }
+
+    @Override
+    public Versioned getVersioned(String table, String uniqueId) {
+        if (definitelyAbsent(table, uniqueId)) return null;
+        return super.getVersioned(table, uniqueId);
+    }
+
+    @Override
+    public long version(String table, String uniqueId) {
+        if (definitelyAbsent(table, uniqueId)) return -1;
+        return super.version(table, uniqueId);
+    }
+
+    @Override
+    public boolean exists(String table, String uniqueId) {
+        if (definitelyAbsent(table, uniqueId)) return false;
+        return super.exists(table, uniqueId);
+    }
+
+    @Override
+    public boolean existsFresh(String table, String uniqueId, long maxAgeMillis) {
+        if (definitelyAbsent(table, uniqueId)) return false;
+        return super.existsFresh(table, uniqueId, maxAgeMillis);
+    }
+
+    @Override
+    public void set(String table, String uniqueId, String json) {
+        super.set(table, uniqueId, json);
+        remember(table, uniqueId);
+    }
+
+    @Override
+    public void addToFields(String table, Map<String, Map<String, Long>> deltas, String templateJson) {
+        super.addToFields(table, deltas, templateJson);
+        deltas.keySet().forEach(id -> remember(table, id));
+    }
+
+    @Override
+    public void applyBatch(List<WriteOp> ops) {
+        super.applyBatch(ops);
+        for (WriteOp op : ops) {
+            if (!op.isDelete()) remember(op.table(), op.uniqueId());
+        }
+    }
+
+    private void remember(String table, String uniqueId) {
+        // building first: a build that finishes in between has already published its filter
+        BloomFilter next = building.get(table);
+        if (next != null) next.put(uniqueId);
+        BloomFilter f = filters.get(table);
+        if (f != null) f.put(uniqueId);
+    }
+}
@@ -0,0 +1,351 @@
+package de.tebrox.vertexCore.database.backend;
+
+import de.tebrox.vertexCore.database.DatabaseBackend;
+import de.tebrox.vertexCore.database.DatabaseMetrics;
+import de.tebrox.vertexCore.database.query.AggregateQuery;
+import de.tebrox.vertexCore.database.query.FieldCondition;
+import de.tebrox.vertexCore.util.Deadline;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Fails fast while the database is unreachable instead of letting every call wait for the pool's
+ * connection timeout. After {@code failureThreshold} consecutive connection failures the breaker
+ * opens: calls are rejected until {@code openMillis} passed, then one call probes (half open).
+ * A failed probe opens it again for twice as long (up to {@link #MAX_OPEN_MILLIS}).
+ * Transient errors (lost connection, deadlock, lock wait timeout) are retried with jittered
+ * exponential backoff while the breaker is closed; addToFields and streaming reads never are.
+ */
+public final class CircuitBreakerBackend extends ForwardingDatabaseBackend {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public record Status(State state, int failures, long openRemainingMillis, long opened, long rejected, long retried) {}
+
+    private static final long MAX_OPEN_MILLIS = 60_000;
+    private static final long MAX_BACKOFF_MILLIS = 1_000;
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final int retryAttempts;
+    private final long retryBaseMillis;
+    private final DatabaseMetrics metrics;
+    private final String metricsOwner;
+    private final String name;
+    private final String metricsTable;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private int failures;
+    private long openUntil;
+    private long currentOpenMillis;
+    private boolean probing;
+
+    public CircuitBreakerBackend(DatabaseBackend delegate, int failureThreshold, long openMillis, int retryAttempts,
+                                 long retryBaseMillis, DatabaseMetrics metrics, String metricsOwner, String backendName) {
+        super(delegate);
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(100, openMillis);
+        this.retryAttempts = Math.max(0, retryAttempts);
+        this.retryBaseMillis = Math.max(1, retryBaseMillis);
+        this.metrics = metrics;
+        this.metricsOwner = metricsOwner;
+        this.name = backendName;
+        this.metricsTable = backendName + ".breaker";
+        this.currentOpenMillis = this.openMillis;
+    }
+
+    // backend name, e.g. "mysql" or "mysql.replica0"
+    public String name() {
+        return name;
+    }
+
+    public synchronized Status status() {
+        State s = state == State.OPEN && System.currentTimeMillis() >= openUntil ? State.HALF_OPEN : state;
+        long remaining = state == State.OPEN ? Math.max(0, openUntil - System.currentTimeMillis()) : 0;
+        return new Status(s, failures, remaining, metric("opened"), metric("rejected"), metric("retried"));
+    }
+
+    private long metric(String metric) {
+        return metrics.get(DatabaseMetrics.key(metricsOwner, metricsTable, metric));
+    }
+
+    // ---------------- state machine ----------------
+
+    // true if this call is the half-open probe
+    private synchronized boolean acquire() {
+        if (state == State.CLOSED) return false;
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            state = State.HALF_OPEN;
+            probing = false;
+            recordState();
+        }
+        if (state == State.HALF_OPEN && !probing) {
+            probing = true;
+            return true;
+        }
+        metrics.increment(DatabaseMetrics.key(metricsOwner, metricsTable, "rejected"));
+        // same shape as a real connection failure: RuntimeException with the SQLException as cause
+        throw new RuntimeException("Database unavailable (circuit open, " + metricsTable + ")",
+                new SQLTransientConnectionException("Circuit breaker open"));
+    }
+
+    private synchronized void succeeded(boolean probe) {
+        failures = 0;
+        if (probe || state != State.CLOSED) {
+            state = State.CLOSED;
+            probing = false;
+            currentOpenMillis = openMillis;
+            recordState();
+        }
+    }
+
+    private synchronized void failed(boolean probe, RuntimeException e) {
+        if (!isConnectionFailure(e)) {
+            // the database answered: it is reachable, whatever went wrong
+            succeeded(probe);
+            return;
+        }
+        if (probe) {
+            currentOpenMillis = Math.min(MAX_OPEN_MILLIS, currentOpenMillis * 2);
+            open();
+            return;
+        }
+        if (state == State.CLOSED && ++failures >= failureThreshold) open();
+    }
+
+    private void open() {
+        state = State.OPEN;
+        probing = false;
+        openUntil = System.currentTimeMillis() + currentOpenMillis;
+        metrics.increment(DatabaseMetrics.key(metricsOwner, metricsTable, "opened"));
+        recordState();
+    }
+
+    private synchronized boolean closed() {
+        return state == State.CLOSED;
+    }
+
+    private void recordState() {
+        metrics.set(DatabaseMetrics.key(metricsOwner, metricsTable, "state"), state.ordinal());
+    }
+
+    // ---------------- calls ----------------
+
+    private <T> T call(Supplier<T> op, boolean retry) {
+        for (int attempt = 0; ; attempt++) {
+            boolean probe = acquire();
+            try {
+                T result = op.get();
+                succeeded(probe);
+                return result;
+            } catch (RuntimeException e) {
+                failed(probe, e);
+                if (!retry || attempt >= retryAttempts || !isTransient(e) || !closed() || !backoff(attempt)) throw e;
+                metrics.increment(DatabaseMetrics.key(metricsOwner, metricsTable, "retried"));
+            }
+        }
+    }
+
+    private void run(Runnable op, boolean retry) {
+        call(() -> {
+            op.run();
+            return null;
+        }, retry);
+    }
+
+    // full jitter; false if the task's deadline would pass while sleeping
+    private boolean backoff(int attempt) {
+        long cap = Math.min(MAX_BACKOFF_MILLIS, retryBaseMillis << Math.min(attempt, 20));
+        long sleep = ThreadLocalRandom.current().nextLong(cap + 1);
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.remainingMillis() <= sleep) return false;
+        try {
+            Thread.sleep(sleep);
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static SQLException sqlCause(Throwable t) {
+        for (; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql) return sql;
+        }
+        return null;
+    }
+
+    // the database could not be reached (pool timeout, connection refused / lost)
+    static boolean isConnectionFailure(Throwable t) {
+        SQLException e = sqlCause(t);
+        if (e == null) return false;
+        if (e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException) return true;
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+
+    // worth another attempt: connection problems and lost lock races (deadlock 1213, lock wait timeout 1205)
+    static boolean isTransient(Throwable t) {
+        SQLException e = sqlCause(t);
+        if (e == null) return false;
+        if (isConnectionFailure(e) || e instanceof SQLTransactionRollbackException) return true;
+        String state = e.getSQLState();
+        return "40001".equals(state) || e.getErrorCode() == 1213 || e.getErrorCode() == 1205;
+    }
+
+    // ---------------- reads ----------------
+
+    @Override
+    public String get(String table, String uniqueId) {
+        return call(() -> delegate.get(table, uniqueId), true);
+    }
+
+    @Override
+    public long count(String table) {
+        return call(() -> delegate.count(table), true);
+    }
+
+    @Override
+    public long countFresh(String table, long maxAgeMillis) {
+        return call(() -> delegate.countFresh(table, maxAgeMillis), true);
+    }
+
+    // lazy: only opening the stream is guarded
+    @Override
+    public Stream<String> ids(String table) {
+        return call(() -> delegate.ids(table), false);
+    }
+
+    @Override
+    public Stream<String> idsFresh(String table, long maxAgeMillis) {
+        return call(() -> delegate.idsFresh(table, maxAgeMillis), false);
+    }
+
+    @Override
+    public Map<String, String> getMany(String table, Collection<String> uniqueIds) {
+        return call(() -> delegate.getMany(table, uniqueIds), true);
+    }
+
+    @Override
+    public Versioned getVersioned(String table, String uniqueId) {
+        return call(() -> delegate.getVersioned(table, uniqueId), true);
+    }
+
+    @Override
+    public long version(String table, String uniqueId) {
+        return call(() -> delegate.version(table, uniqueId), true);
+    }
+
+    @Override
+    public Map<String, Long> versions(String table) {
+        return call(() -> delegate.versions(table), true);
+    }
+
+    @Override
+    public boolean exists(String table, String uniqueId) {
+        return call(() -> delegate.exists(table, uniqueId), true);
+    }
+
+    @Override
+    public List<String[]> loadAllRaw(String table) {
+        return call(() -> delegate.loadAllRaw(table), true);
+    }
+
+    // the consumer may already have seen rows when it fails: no retry
+    @Override
+    public void forEachRaw(String table, BiConsumer<String, String> consumer) {
+        run(() -> delegate.forEachRaw(table, consumer), false);
+    }
+
+    @Override
+    public String getFresh(String table, String uniqueId, long maxAgeMillis) {
+        return call(() -> delegate.getFresh(table, uniqueId, maxAgeMillis), true);
+    }
+
+    @Override
+    public boolean existsFresh(String table, String uniqueId, long maxAgeMillis) {
+        return call(() -> delegate.existsFresh(table, uniqueId, maxAgeMillis), true);
+    }
+
+    @Override
+    public List<String[]> loadAllRawFresh(String table, long maxAgeMillis) {
+        return call(() -> delegate.loadAllRawFresh(table, maxAgeMillis), true);
+    }
+
+    @Override
+    public Map<String, Double> aggregate(String table, AggregateQuery query) {
+        return call(() -> delegate.aggregate(table, query), true);
+    }
+
+    @Override
+    public Map<String, Double> aggregateFresh(String table, AggregateQuery query, long maxAgeMillis) {
+        return call(() -> delegate.aggregateFresh(table, query, maxAgeMillis), true);
+    }
+
+    // ---------------- writes (all idempotent except addToFields) ----------------
+
+    @Override
+    public void set(String table, String uniqueId, String json) {
+        run(() -> delegate.set(table, uniqueId, json), true);
+    }
+
+    @Override
+    public void delete(String table, String uniqueId) {
+        run(() -> delegate.delete(table, uniqueId), true);
+    }
+
+    @Override
+    public void applyBatch(List<WriteOp> ops) {
+        run(() -> delegate.applyBatch(ops), true);
+    }
+
+    // additive: a retry after a commit whose acknowledgement was lost would count twice
+    @Override
+    public void addToFields(String table, Map<String, Map<String, Long>> deltas, String templateJson) {
+        run(() -> delegate.addToFields(table, deltas, templateJson), false);
+    }
+
+    @Override
+    public long deleteAll(String table) {
+        return call(() -> delegate.deleteAll(table), true);
+    }
+
+    // progress may have been reported: no retry
+    @Override
+    public long deleteIds(String table, Collection<String> uniqueIds, LongConsumer progress) {
+        return call(() -> delegate.deleteIds(table, uniqueIds, progress), false);
+    }
+
+    @Override
+    public long deleteWhere(String table, List<FieldCondition> where, LongConsumer progress) {
+        return call(() -> delegate.deleteWhere(table, where, progress), false);
+    }
+
+    @Override
+    public int purgeExpired(String table, long maxAgeMillis, int batchSize) {
+        return call(() -> delegate.purgeExpired(table, maxAgeMillis, batchSize), true);
+    }
+
+    @Override
+    public void warmup() {
+        run(delegate::warmup, true);
+    }
+
+    @Override
+    public void warmupTable(String table) {
+        run(() -> delegate.warmupTable(table), true);
+    }
+}
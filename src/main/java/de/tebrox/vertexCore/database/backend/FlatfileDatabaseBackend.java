@@ -1,13 +1,28 @@
 package de.tebrox.vertexCore.database.backend;
 
 import de.tebrox.vertexCore.database.DatabaseBackend;
+import de.tebrox.vertexCore.database.internal.JsonAggregator;
+import de.tebrox.vertexCore.database.internal.JsonFilter;
+import de.tebrox.vertexCore.database.query.AggregateQuery;
+import de.tebrox.vertexCore.database.query.FieldCondition;
 import org.bukkit.plugin.Plugin;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public final class FlatfileDatabaseBackend implements DatabaseBackend {
 
@@ -51,6 +66,88 @@ public final class FlatfileDatabaseBackend implements DatabaseBackend {
         }
     }
 
+    // ---------------- bulk deletes: parallel file sweep, progress after every chunk ----------------
+
+    private static final int SWEEP_CHUNK = 1000;
+
+    @Override
+    public long deleteAll(String table) {
+        return sweep(Arrays.asList(jsonFiles(table)), f -> true, null);
+    }
+
+    @Override
+    public long deleteIds(String table, Collection<String> uniqueIds, LongConsumer progress) {
+        List<File> files = new ArrayList<>(uniqueIds.size());
+        for (String id : uniqueIds) files.add(file(table, id));
+        return sweep(files, f -> true, progress);
+    }
+
+    @Override
+    public long deleteWhere(String table, List<FieldCondition> where, LongConsumer progress) {
+        return sweep(Arrays.asList(jsonFiles(table)), f -> {
+            String json = readIfExists(f);
+            return json != null && JsonFilter.matches(json, where);
+        }, progress);
+    }
+
+    private long sweep(List<File> files, Predicate<File> filter, LongConsumer progress) {
+        long deleted = 0;
+        for (int from = 0; from < files.size(); from += SWEEP_CHUNK) {
+            deleted += files.subList(from, Math.min(files.size(), from + SWEEP_CHUNK)).parallelStream()
+                    .filter(filter)
+                    .filter(File::delete)
+                    .count();
+            if (progress != null) progress.accept(deleted);
+        }
+        return deleted;
+    }
+
+    private String readIfExists(File f) {
+        try {
+            return Files.readString(f.toPath(), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read: " + f.getAbsolutePath(), e);
+        }
+    }
+
+    // staged: every file is written next to its target first, then renamed in place and deletes run last.
+    // A failure while staging leaves all targets untouched.
+    @Override
+    public void applyBatch(List<WriteOp> ops) {
+        String tx = Long.toHexString(System.nanoTime());
+        List<Path[]> staged = new ArrayList<>();
+        try {
+            for (WriteOp op : ops) {
+                if (op.isDelete()) continue;
+                File f = file(op.table(), op.uniqueId());
+                File parent = f.getParentFile();
+                if (!parent.exists() && !parent.mkdirs()) {
+                    throw new RuntimeException("Failed to create folder: " + parent.getAbsolutePath());
+                }
+                // ".tmp" suffix keeps staged files out of jsonFiles()
+                Path tmp = new File(parent, f.getName() + "." + tx + ".tmp").toPath();
+                Files.writeString(tmp, op.json(), StandardCharsets.UTF_8);
+                staged.add(new Path[]{ tmp, f.toPath() });
+            }
+        } catch (Exception e) {
+            for (Path[] p : staged) p[0].toFile().delete();
+            throw e instanceof RuntimeException re ? re : new RuntimeException("Failed to stage batch", e);
+        }
+
+        try {
+            for (Path[] p : staged) {
+                Files.move(p[0], p[1], StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to commit batch", e);
+        }
+        for (WriteOp op : ops) {
+            if (op.isDelete()) delete(op.table(), op.uniqueId());
+        }
+    }
+
     @Override
     public void delete(String table, String uniqueId) {
         File f = file(table, uniqueId);
@@ -63,26 +160,121 @@ public final class FlatfileDatabaseBackend implements DatabaseBackend {
     }
 
     @Override
-    public List<String[]> loadAllRaw(String table) {
-        File dir = tableDir(table);
+    public String getFresh(String table, String uniqueId, long maxAgeMillis) {
+        File f = file(table, uniqueId);
+        if (isExpired(f, maxAgeMillis)) return null;
+        return get(table, uniqueId);
+    }
+
+    @Override
+    public boolean existsFresh(String table, String uniqueId, long maxAgeMillis) {
+        File f = file(table, uniqueId);
+        return f.exists() && !isExpired(f, maxAgeMillis);
+    }
+
+    @Override
+    public List<String[]> loadAllRawFresh(String table, long maxAgeMillis) {
         List<String[]> out = new ArrayList<>();
-        if (!dir.exists()) return out;
+        for (File f : jsonFiles(table)) {
+            if (isExpired(f, maxAgeMillis)) continue;
+            out.add(new String[]{idOf(f), read(f)});
+        }
+        return out;
+    }
 
-        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
-        if (files == null) return out;
+    @Override
+    public int purgeExpired(String table, long maxAgeMillis, int batchSize) {
+        int deleted = 0;
+        for (File f : jsonFiles(table)) {
+            if (deleted >= batchSize) break;
+            if (isExpired(f, maxAgeMillis) && f.delete()) deleted++;
+        }
+        return deleted;
+    }
+
+    // mtime is the time of the last save; lastModified() == 0 means the file is gone
+    private static boolean isExpired(File f, long maxAgeMillis) {
+        long modified = f.lastModified();
+        return modified == 0 || modified < System.currentTimeMillis() - maxAgeMillis;
+    }
+
+    @Override
+    public List<String[]> loadAllRaw(String table) {
+        File[] files = jsonFiles(table);
+        List<String[]> out = new ArrayList<>(files.length);
 
         for (File f : files) {
-            try {
-                String id = f.getName().substring(0, f.getName().length() - 5);
-                String json = Files.readString(f.toPath(), StandardCharsets.UTF_8);
-                out.add(new String[]{id, json});
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to read: " + f.getAbsolutePath(), e);
-            }
+            out.add(new String[]{idOf(f), read(f)});
         }
         return out;
     }
 
+    @Override
+    public long count(String table) {
+        return jsonFiles(table).length;
+    }
+
+    @Override
+    public long countFresh(String table, long maxAgeMillis) {
+        return Arrays.stream(jsonFiles(table)).filter(f -> !isExpired(f, maxAgeMillis)).count();
+    }
+
+    // directory listing only, the files are never opened
+    @Override
+    public Stream<String> ids(String table) {
+        return jsonPaths(table).map(p -> idOf(p.toFile()));
+    }
+
+    @Override
+    public Stream<String> idsFresh(String table, long maxAgeMillis) {
+        return jsonPaths(table).map(Path::toFile).filter(f -> !isExpired(f, maxAgeMillis)).map(FlatfileDatabaseBackend::idOf);
+    }
+
+    private Stream<Path> jsonPaths(String table) {
+        File dir = tableDir(table);
+        if (!dir.isDirectory()) return Stream.empty();
+        try {
+            return Files.list(dir.toPath()).filter(p -> p.getFileName().toString().endsWith(".json"));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list: " + dir.getAbsolutePath(), e);
+        }
+    }
+
+    @Override
+    public void forEachRaw(String table, BiConsumer<String, String> consumer) {
+        for (File f : jsonFiles(table)) {
+            // deleted since the listing
+            if (!f.exists()) continue;
+            consumer.accept(idOf(f), read(f));
+        }
+    }
+
+    @Override
+    public Map<String, Double> aggregate(String table, AggregateQuery query) {
+        // files are read and reduced in parallel, nothing but the per-group accumulators is kept
+        return JsonAggregator.aggregate(Arrays.stream(jsonFiles(table)).parallel().map(this::read), query);
+    }
+
+    private File[] jsonFiles(String table) {
+        File dir = tableDir(table);
+        if (!dir.exists()) return new File[0];
+
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
+        return files == null ? new File[0] : files;
+    }
+
+    private String read(File f) {
+        try {
+            return Files.readString(f.toPath(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read: " + f.getAbsolutePath(), e);
+        }
+    }
+
+    private static String idOf(File f) {
+        return f.getName().substring(0, f.getName().length() - 5);
+    }
+
     private File tableDir(String table) {
         // ✅ pro Database-Klasse ein Unterordner mit ihrem Namen (table)
         return new File(root, sanitize(table));
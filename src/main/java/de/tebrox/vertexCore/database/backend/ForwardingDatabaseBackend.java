@@ -0,0 +1,173 @@
+package de.tebrox.vertexCore.database.backend;
+
+import de.tebrox.vertexCore.database.DatabaseBackend;
+import de.tebrox.vertexCore.database.query.AggregateQuery;
+import de.tebrox.vertexCore.database.query.FieldCondition;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+// base for backend decorators: forwards everything, subclasses override what they add
+public abstract class ForwardingDatabaseBackend implements DatabaseBackend {
+
+    protected final DatabaseBackend delegate;
+
+    protected ForwardingDatabaseBackend(DatabaseBackend delegate) {
+        this.delegate = delegate;
+    }
+
+    public DatabaseBackend delegate() {
+        return delegate;
+    }
+
+    // this chain, unless a layer below reads from somewhere else (replicas): then that layer's primary path
+    @Override
+    public DatabaseBackend primary() {
+        DatabaseBackend p = delegate.primary();
+        return p == delegate ? this : p;
+    }
+
+    @Override
+    public String get(String table, String uniqueId) {
+        return delegate.get(table, uniqueId);
+    }
+
+    @Override
+    public long count(String table) {
+        return delegate.count(table);
+    }
+
+    @Override
+    public long countFresh(String table, long maxAgeMillis) {
+        return delegate.countFresh(table, maxAgeMillis);
+    }
+
+    @Override
+    public Stream<String> ids(String table) {
+        return delegate.ids(table);
+    }
+
+    @Override
+    public Stream<String> idsFresh(String table, long maxAgeMillis) {
+        return delegate.idsFresh(table, maxAgeMillis);
+    }
+
+    @Override
+    public long deleteAll(String table) {
+        return delegate.deleteAll(table);
+    }
+
+    @Override
+    public long deleteIds(String table, Collection<String> uniqueIds, LongConsumer progress) {
+        return delegate.deleteIds(table, uniqueIds, progress);
+    }
+
+    @Override
+    public long deleteWhere(String table, List<FieldCondition> where, LongConsumer progress) {
+        return delegate.deleteWhere(table, where, progress);
+    }
+
+    @Override
+    public void applyBatch(List<WriteOp> ops) {
+        delegate.applyBatch(ops);
+    }
+
+    @Override
+    public Map<String, String> getMany(String table, Collection<String> uniqueIds) {
+        return delegate.getMany(table, uniqueIds);
+    }
+
+    @Override
+    public Versioned getVersioned(String table, String uniqueId) {
+        return delegate.getVersioned(table, uniqueId);
+    }
+
+    @Override
+    public long version(String table, String uniqueId) {
+        return delegate.version(table, uniqueId);
+    }
+
+    @Override
+    public Map<String, Long> versions(String table) {
+        return delegate.versions(table);
+    }
+
+    @Override
+    public void set(String table, String uniqueId, String json) {
+        delegate.set(table, uniqueId, json);
+    }
+
+    @Override
+    public void delete(String table, String uniqueId) {
+        delegate.delete(table, uniqueId);
+    }
+
+    @Override
+    public boolean exists(String table, String uniqueId) {
+        return delegate.exists(table, uniqueId);
+    }
+
+    @Override
+    public List<String[]> loadAllRaw(String table) {
+        return delegate.loadAllRaw(table);
+    }
+
+    @Override
+    public void forEachRaw(String table, BiConsumer<String, String> consumer) {
+        delegate.forEachRaw(table, consumer);
+    }
+
+    @Override
+    public String getFresh(String table, String uniqueId, long maxAgeMillis) {
+        return delegate.getFresh(table, uniqueId, maxAgeMillis);
+    }
+
+    @Override
+    public boolean existsFresh(String table, String uniqueId, long maxAgeMillis) {
+        return delegate.existsFresh(table, uniqueId, maxAgeMillis);
+    }
+
+    @Override
+    public List<String[]> loadAllRawFresh(String table, long maxAgeMillis) {
+        return delegate.loadAllRawFresh(table, maxAgeMillis);
+    }
+
+    @Override
+    public int purgeExpired(String table, long maxAgeMillis, int batchSize) {
+        return delegate.purgeExpired(table, maxAgeMillis, batchSize);
+    }
+
+    @Override
+    public Map<String, Double> aggregate(String table, AggregateQuery query) {
+        return delegate.aggregate(table, query);
+    }
+
+    @Override
+    public Map<String, Double> aggregateFresh(String table, AggregateQuery query, long maxAgeMillis) {
+        return delegate.aggregateFresh(table, query, maxAgeMillis);
+    }
+
+    @Override
+    public void addToFields(String table, Map<String, Map<String, Long>> deltas, String templateJson) {
+        delegate.addToFields(table, deltas, templateJson);
+    }
+
+    @Override
+    public void warmup() {
+        delegate.warmup();
+    }
+
+    @Override
+    public void warmupTable(String table) {
+        delegate.warmupTable(table);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -4,12 +4,25 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import de.tebrox.vertexCore.database.DatabaseBackend;
 import de.tebrox.vertexCore.database.DatabaseSettings;
+import de.tebrox.vertexCore.database.internal.JsonFields;
+import de.tebrox.vertexCore.database.query.AggregateFunction;
+import de.tebrox.vertexCore.database.query.AggregateQuery;
+import de.tebrox.vertexCore.database.query.FieldCondition;
+import de.tebrox.vertexCore.util.Deadline;
 import org.bukkit.plugin.Plugin;
 
 import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class JdbcDatabaseBackend implements DatabaseBackend {
 
@@ -21,11 +34,7 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
         String pass;
 
         if(backend.equals("h2")) {
-            File folder = owner.getDataFolder();
-            if(!folder.exists()) folder.mkdirs();
-
-            String abs = new File(folder, "database").getAbsolutePath().replace("\\", "/");
-            url = "jdbc:h2:file:" + abs + ";AUTO_SERVER=TRUE";
+            url = h2Url(owner, "database");
 
             user = "sa";
             pass = "";
@@ -44,16 +53,49 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
             throw new IllegalArgumentException("Jdbc backend used but backend=" + settings.backend());
         }
 
+        return pool(url, user, pass, settings.poolSize(), "VertexCore-" + owner.getName(), false);
+    }
+
+    // read-only pool for one MySQL read replica, same credentials as the primary
+    public static HikariDataSource createReplicaDataSource(Plugin owner, DatabaseSettings settings, String url, int index) {
+        String user = settings.mysqlUser() == null ? "" : settings.mysqlUser();
+        String pass = settings.mysqlPassword() == null ? "" : settings.mysqlPassword();
+        return pool(url, user, pass, settings.replicaPoolSize(), "VertexCore-" + owner.getName() + "-replica" + index, true);
+    }
+
+    // one shard of the sharded backend: "h2:<file>" is an H2 file in the plugin folder, anything else a JDBC url
+    public static HikariDataSource createShardDataSource(Plugin owner, DatabaseSettings settings, String name, String url) {
+        if (url.regionMatches(true, 0, "h2:", 0, 3)) return createLocalDataSource(owner, url.substring(3), settings.poolSize());
+        String user = settings.mysqlUser() == null ? "" : settings.mysqlUser();
+        String pass = settings.mysqlPassword() == null ? "" : settings.mysqlPassword();
+        return pool(url, user, pass, settings.poolSize(), "VertexCore-" + owner.getName() + "-shard-" + name, false);
+    }
+
+    // separate embedded H2 file in the plugin folder (e.g. local caches), independent of the configured backend
+    public static HikariDataSource createLocalDataSource(Plugin owner, String fileName, int poolSize) {
+        return pool(h2Url(owner, fileName), "sa", "", poolSize, "VertexCore-" + owner.getName() + "-" + fileName, false);
+    }
+
+    private static String h2Url(Plugin owner, String fileName) {
+        File folder = owner.getDataFolder();
+        if(!folder.exists()) folder.mkdirs();
+
+        String abs = new File(folder, fileName).getAbsolutePath().replace("\\", "/");
+        return "jdbc:h2:file:" + abs + ";AUTO_SERVER=TRUE";
+    }
+
+    private static HikariDataSource pool(String url, String user, String pass, int poolSize, String poolName, boolean readOnly) {
         HikariConfig cfg = new HikariConfig();
         cfg.setJdbcUrl(url);
         cfg.setUsername(user);
         cfg.setPassword(pass);
-        cfg.setMaximumPoolSize(Math.max(1, settings.poolSize()));
-        cfg.setPoolName("VertexCore-" + owner.getName());
+        cfg.setMaximumPoolSize(Math.max(1, poolSize));
+        cfg.setPoolName(poolName);
         cfg.setInitializationFailTimeout(10_000);
         cfg.setMinimumIdle(1);
         cfg.setConnectionTimeout(10_000);
         cfg.setValidationTimeout(5_000);
+        cfg.setReadOnly(readOnly);
 
         String lower = url.toLowerCase();
         if (lower.startsWith("jdbc:h2:")) cfg.setDriverClassName("org.h2.Driver");
@@ -68,19 +110,72 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
         return new HikariDataSource(cfg);
     }
 
+    // ids per IN (...) statement, keeps statements well below driver/server parameter limits
+    private static final int IN_CHUNK = 500;
+    private static final int DELETE_CHUNK = 1000;
+    // numeric json strings for aggregates, as Double.parseDouble reads them (surrounding whitespace allowed)
+    private static final String NUMERIC_TEXT = "^[[:space:]]*[-+]?([0-9]+[.]?[0-9]*|[.][0-9]+)([eE][-+]?[0-9]+)?[[:space:]]*$";
+
     private final HikariDataSource ds;
     private final Dialect dialect;
     private final Set<String> ensuredTables = ConcurrentHashMap.newKeySet();
+    // replica: tables are created on the primary and replicated, no DDL here
+    private final boolean readOnly;
+
+    // H2 maintenance: compaction holds the write lock, taking a connection needs the read lock
+    private final ReentrantReadWriteLock maintenance = new ReentrantReadWriteLock();
+    private volatile long lastUseNanos = System.nanoTime();
 
     public JdbcDatabaseBackend(HikariDataSource ds, String jdbcUrl) {
+        this(ds, jdbcUrl, false);
+    }
+
+    public JdbcDatabaseBackend(HikariDataSource ds, String jdbcUrl, boolean readOnly) {
         this.ds = ds;
         this.dialect = jdbcUrl.toLowerCase().contains("mysql") ? Dialect.MYSQL : Dialect.H2;
+        this.readOnly = readOnly;
+    }
+
+    private Connection connection() throws SQLException {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.expired()) throw new SQLTimeoutException("Task deadline passed before the query started");
+
+        Connection c;
+        maintenance.readLock().lock();
+        try {
+            lastUseNanos = System.nanoTime();
+            c = ds.getConnection();
+        } finally {
+            maintenance.readLock().unlock();
+        }
+        return deadline == null ? c : withDeadline(c, deadline);
+    }
+
+    // statements created through the returned connection time out with what is left of the task's budget
+    private static Connection withDeadline(Connection c, Deadline deadline) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{ Connection.class }, (proxy, m, args) -> {
+            Object result;
+            try {
+                result = m.invoke(c, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement st) {
+                long remaining = deadline.remainingMillis();
+                if (remaining <= 0) {
+                    st.close();
+                    throw new SQLTimeoutException("Task deadline passed");
+                }
+                st.setQueryTimeout((int) Math.max(1, (remaining + 999) / 1000));
+            }
+            return result;
+        });
     }
 
     public void ensureTable(String table) {
         table = sanitizeTableName(table);
 
-        if (!ensuredTables.add(table)) return;
+        if (readOnly || !ensuredTables.add(table)) return;
 
         String ddl = switch (dialect) {
             case MYSQL -> """
@@ -88,7 +183,8 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
                   unique_id VARCHAR(128) NOT NULL,
                   json LONGTEXT NOT NULL,
                   updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-                  PRIMARY KEY (unique_id)
+                  PRIMARY KEY (unique_id),
+                  KEY idx_updated_at (updated_at)
                 )
                 """.formatted(table);
             case H2 -> """
@@ -101,20 +197,42 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
                 """.formatted(table);
         };
 
-        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+        try (Connection c = connection(); Statement st = c.createStatement()) {
             st.execute(ddl);
+            if (dialect == Dialect.H2) {
+                st.execute("CREATE INDEX IF NOT EXISTS " + table + "_updated_at ON " + table + " (updated_at)");
+            } else {
+                ensureUpdatedAtIndex(c, table);
+            }
         } catch (SQLException e) {
             throw new RuntimeException("Failed to init table: " + table, e);
         }
     }
 
+    // tables created before idx_updated_at was part of the DDL get it here (MySQL has no CREATE INDEX IF NOT EXISTS)
+    private static void ensureUpdatedAtIndex(Connection c, String table) throws SQLException {
+        String sql = "SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = 'idx_updated_at' LIMIT 1";
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return;
+            }
+        }
+        try (Statement st = c.createStatement()) {
+            st.execute("ALTER TABLE " + table + " ADD KEY idx_updated_at (updated_at)");
+        } catch (SQLException e) {
+            // 1061 = duplicate key name: another server added it in the meantime
+            if (e.getErrorCode() != 1061) throw e;
+        }
+    }
+
     @Override
     public String get(String table, String uniqueId) {
         table = sanitizeTableName(table);
         ensureTable(table);
 
         String sql = "SELECT json FROM " + table + " WHERE unique_id=?";
-        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, uniqueId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) return null;
@@ -130,38 +248,169 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
         table = sanitizeTableName(table);
         ensureTable(table);
 
-        try (Connection c = ds.getConnection()) {
-            switch (dialect) {
-                case MYSQL -> upsertMySql(c, table, uniqueId, json);
-                case H2 -> upsertH2(c, table, uniqueId, json);
-            }
+        try (Connection c = connection()) {
+            upsert(c, table, uniqueId, json);
         } catch (SQLException e) {
             throw new RuntimeException("DB set failed (table=" + table + ")", e);
         }
     }
 
-    private void upsertMySql(Connection c, String table, String id, String json) throws SQLException {
-        String sql = """
-            INSERT INTO %s (unique_id, json) VALUES (?, ?)
-            ON DUPLICATE KEY UPDATE json=VALUES(json)
-            """.formatted(table);
-
-        try (PreparedStatement ps = c.prepareStatement(sql)) {
+    private void upsert(Connection c, String table, String id, String json) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(upsertSql(table))) {
             ps.setString(1, id);
             ps.setString(2, json);
             ps.executeUpdate();
         }
     }
 
-    private void upsertH2(Connection c, String table, String id, String json) throws SQLException {
-        String sql = """
-            MERGE INTO %s (unique_id, json) KEY (unique_id) VALUES (?, ?)
-            """.formatted(table);
+    // parameters: unique_id, json
+    private String upsertSql(String table) {
+        return switch (dialect) {
+            case MYSQL -> """
+                INSERT INTO %s (unique_id, json) VALUES (?, ?)
+                ON DUPLICATE KEY UPDATE json=VALUES(json), updated_at=CURRENT_TIMESTAMP
+                """.formatted(table);
+            case H2 -> """
+                MERGE INTO %s (unique_id, json, updated_at) KEY (unique_id) VALUES (?, ?, LOCALTIMESTAMP)
+                """.formatted(table);
+        };
+    }
 
-        try (PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, id);
-            ps.setString(2, json);
-            ps.executeUpdate();
+    // ---------------- bulk deletes ----------------
+
+    @Override
+    public long deleteAll(String table) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        try (Connection c = connection(); Statement st = c.createStatement()) {
+            long rows;
+            try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                rs.next();
+                rows = rs.getLong(1);
+            }
+            st.execute("TRUNCATE TABLE " + table);
+            return rows;
+        } catch (SQLException e) {
+            throw new RuntimeException("DB truncate failed (table=" + table + ")", e);
+        }
+    }
+
+    // one DELETE ... IN (...) per chunk, each chunk commits on its own
+    @Override
+    public long deleteIds(String table, Collection<String> uniqueIds, LongConsumer progress) {
+        if (uniqueIds.isEmpty()) return 0;
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(uniqueIds));
+        long deleted = 0;
+        try (Connection c = connection()) {
+            for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+                List<String> chunk = ids.subList(from, Math.min(ids.size(), from + IN_CHUNK));
+                String sql = "DELETE FROM " + table + " WHERE unique_id IN ("
+                        + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) ps.setString(i + 1, chunk.get(i));
+                    deleted += ps.executeUpdate();
+                }
+                if (progress != null) progress.accept(deleted);
+            }
+            return deleted;
+        } catch (SQLException e) {
+            throw new RuntimeException("DB delete failed (table=" + table + ", deleted=" + deleted + ")", e);
+        }
+    }
+
+    // MySQL: set based, DELETE ... LIMIT in chunks so locks and undo log stay small. H2 has no JSON paths -> scan.
+    @Override
+    public long deleteWhere(String table, List<FieldCondition> where, LongConsumer progress) {
+        if (dialect != Dialect.MYSQL || where.isEmpty()) {
+            return where.isEmpty() ? deleteAll(table) : DatabaseBackend.super.deleteWhere(table, where, progress);
+        }
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        StringJoiner cond = new StringJoiner(" AND ");
+        for (FieldCondition c : where) cond.add(conditionSql(c));
+        String sql = "DELETE FROM " + table + " WHERE " + cond + " LIMIT " + DELETE_CHUNK;
+
+        long deleted = 0;
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            int i = 1;
+            for (FieldCondition fc : where) {
+                if (!(fc.value() instanceof Boolean)) ps.setObject(i++, fc.value());
+            }
+            int n;
+            do {
+                n = ps.executeUpdate();
+                deleted += n;
+                if (progress != null) progress.accept(deleted);
+            } while (n >= DELETE_CHUNK);
+            return deleted;
+        } catch (SQLException e) {
+            throw new RuntimeException("DB deleteWhere failed (table=" + table + ", deleted=" + deleted + ")", e);
+        }
+    }
+
+    // same semantics as JsonFilter: missing fields and type mismatches never match
+    private static String conditionSql(FieldCondition c) {
+        String value = "JSON_EXTRACT(json, '$." + c.field() + "')";
+        if (c.value() instanceof Boolean b) {
+            return value + " " + c.op().sql() + " CAST('" + b + "' AS JSON)";
+        }
+        if (c.value() instanceof Number) {
+            return "(JSON_TYPE(" + value + ") IN ('INTEGER', 'DOUBLE', 'DECIMAL', 'UNSIGNED INTEGER') AND "
+                    + value + " + 0 " + c.op().sql() + " ?)";
+        }
+        return "(JSON_TYPE(" + value + ") = 'STRING' AND JSON_UNQUOTE(" + value + ") " + c.op().sql() + " ?)";
+    }
+
+    // one connection, one transaction: upserts and deletes are batched per table
+    @Override
+    public void applyBatch(List<WriteOp> ops) {
+        if (ops.isEmpty()) return;
+
+        Map<String, List<WriteOp>> byTable = new LinkedHashMap<>();
+        for (WriteOp op : ops) {
+            byTable.computeIfAbsent(sanitizeTableName(op.table()), k -> new ArrayList<>()).add(op);
+        }
+        byTable.keySet().forEach(this::ensureTable);
+
+        try (Connection c = connection()) {
+            boolean auto = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                for (Map.Entry<String, List<WriteOp>> e : byTable.entrySet()) {
+                    String table = e.getKey();
+                    try (PreparedStatement upsert = c.prepareStatement(upsertSql(table));
+                         PreparedStatement delete = c.prepareStatement("DELETE FROM " + table + " WHERE unique_id=?")) {
+                        boolean upserts = false, deletes = false;
+                        for (WriteOp op : e.getValue()) {
+                            if (op.isDelete()) {
+                                delete.setString(1, op.uniqueId());
+                                delete.addBatch();
+                                deletes = true;
+                            } else {
+                                upsert.setString(1, op.uniqueId());
+                                upsert.setString(2, op.json());
+                                upsert.addBatch();
+                                upserts = true;
+                            }
+                        }
+                        if (upserts) upsert.executeBatch();
+                        if (deletes) delete.executeBatch();
+                    }
+                }
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(auto);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB batch failed (" + ops.size() + " writes)", e);
         }
     }
 
@@ -171,7 +420,7 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
         ensureTable(table);
 
         String sql = "DELETE FROM " + table + " WHERE unique_id=?";
-        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, uniqueId);
             ps.executeUpdate();
         } catch (SQLException e) {
@@ -185,7 +434,7 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
         ensureTable(table);
 
         String sql = "SELECT 1 FROM " + table + " WHERE unique_id=? LIMIT 1";
-        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setString(1, uniqueId);
             try (ResultSet rs = ps.executeQuery()) {
                 return rs.next();
@@ -195,9 +444,174 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
         }
     }
 
+    @Override
+    public String getFresh(String table, String uniqueId, long maxAgeMillis) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        String sql = "SELECT json FROM " + table + " WHERE unique_id=? AND updated_at >= " + cutoff();
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, uniqueId);
+            ps.setLong(2, -ageSeconds(maxAgeMillis));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                return rs.getString(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB get failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public boolean existsFresh(String table, String uniqueId, long maxAgeMillis) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        String sql = "SELECT 1 FROM " + table + " WHERE unique_id=? AND updated_at >= " + cutoff() + " LIMIT 1";
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, uniqueId);
+            ps.setLong(2, -ageSeconds(maxAgeMillis));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB exists failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public List<String[]> loadAllRawFresh(String table, long maxAgeMillis) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        String sql = "SELECT unique_id, json FROM " + table + " WHERE updated_at >= " + cutoff();
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setLong(1, -ageSeconds(maxAgeMillis));
+            try (ResultSet rs = ps.executeQuery()) {
+                List<String[]> out = new ArrayList<>();
+                while (rs.next()) {
+                    out.add(new String[]{ rs.getString(1), rs.getString(2) });
+                }
+                return out;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB loadAll failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public int purgeExpired(String table, long maxAgeMillis, int batchSize) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        String limit = dialect == Dialect.MYSQL ? " LIMIT ?" : " FETCH FIRST ? ROWS ONLY";
+        String sql = "DELETE FROM " + table + " WHERE updated_at < " + cutoff() + limit;
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setLong(1, -ageSeconds(maxAgeMillis));
+            ps.setInt(2, Math.max(1, batchSize));
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("DB purge failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> getMany(String table, Collection<String> uniqueIds) {
+        if (uniqueIds.isEmpty()) return Map.of();
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(uniqueIds));
+        Map<String, String> out = new HashMap<>(ids.size() * 2);
+        try (Connection c = connection()) {
+            for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+                List<String> chunk = ids.subList(from, Math.min(ids.size(), from + IN_CHUNK));
+                String sql = "SELECT unique_id, json FROM " + table + " WHERE unique_id IN ("
+                        + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) ps.setString(i + 1, chunk.get(i));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) out.put(rs.getString(1), rs.getString(2));
+                    }
+                }
+            }
+            return out;
+        } catch (SQLException e) {
+            throw new RuntimeException("DB getMany failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public Versioned getVersioned(String table, String uniqueId) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        String sql = "SELECT json, updated_at, " + now() + " FROM " + table + " WHERE unique_id=?";
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, uniqueId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                long version = rs.getTimestamp(2).getTime();
+                // MySQL TIMESTAMP has second precision: a write in the same second could reuse this version
+                boolean settled = rs.getTimestamp(3).getTime() / 1000 > version / 1000;
+                return new Versioned(rs.getString(1), version, settled);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB get failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public long version(String table, String uniqueId) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        String sql = "SELECT updated_at FROM " + table + " WHERE unique_id=?";
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, uniqueId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getTimestamp(1).getTime() : -1;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB version failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public Map<String, Long> versions(String table) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        String sql = "SELECT unique_id, updated_at FROM " + table;
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            Map<String, Long> out = new HashMap<>();
+            while (rs.next()) {
+                out.put(rs.getString(1), rs.getTimestamp(2).getTime());
+            }
+            return out;
+        } catch (SQLException e) {
+            throw new RuntimeException("DB versions failed (table=" + table + ")", e);
+        }
+    }
+
+    private String now() {
+        return dialect == Dialect.MYSQL ? "CURRENT_TIMESTAMP" : "LOCALTIMESTAMP";
+    }
+
+    // compared on the DB clock so app/db clock skew doesn't matter; one parameter: negative age in seconds
+    private String cutoff() {
+        return "TIMESTAMPADD(SECOND, ?, " + now() + ")";
+    }
+
+    private static long ageSeconds(long maxAgeMillis) {
+        return Math.max(1, (maxAgeMillis + 999) / 1000);
+    }
+
     @Override
     public void warmup() {
-        try (Connection c = ds.getConnection()) {
+        try (Connection c = connection()) {
 
         }catch(Exception e) {
             throw new RuntimeException("DB warmup failed", e);
@@ -209,6 +623,80 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
         ds.close();
     }
 
+    // ---------------- H2 maintenance (embedded file databases only) ----------------
+
+    // fillRate: percentage of the file holding live data (-1 = unknown)
+    public record StorageStats(File file, long fileBytes, int fillRate, long idleMillis) {}
+
+    public record CompactResult(long bytesBefore, long bytesAfter, long millis) {}
+
+    // the .mv.db file behind this pool, null for MySQL and in-memory / server H2 urls
+    public File h2File() {
+        if (dialect != Dialect.H2) return null;
+        String url = ds.getJdbcUrl();
+        if (url == null || !url.toLowerCase().startsWith("jdbc:h2:file:")) return null;
+
+        String path = url.substring("jdbc:h2:file:".length());
+        int params = path.indexOf(';');
+        if (params >= 0) path = path.substring(0, params);
+        return new File(path + ".mv.db");
+    }
+
+    public StorageStats storageStats() {
+        File file = h2File();
+        if (file == null) return null;
+
+        int fillRate = -1;
+        try (Connection c = connection();
+             PreparedStatement ps = c.prepareStatement(
+                     "SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = 'info.FILL_RATE'");
+             ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) fillRate = Integer.parseInt(rs.getString(1).trim());
+        } catch (SQLException | NumberFormatException e) {
+            // older / newer H2 without this setting: size only
+        }
+        long idle = (System.nanoTime() - lastUseNanos) / 1_000_000;
+        return new StorageStats(file, file.length(), fillRate, idle);
+    }
+
+    /**
+     * Rewrites the H2 file without free space (SHUTDOWN COMPACT). New connections wait while it
+     * runs; returns null without doing anything if connections are still in use after drainMillis.
+     * The database is closed by the compaction, pooled connections are replaced afterwards.
+     */
+    public CompactResult compact(long drainMillis) {
+        File file = h2File();
+        if (file == null) throw new IllegalStateException("Not an embedded H2 file database");
+
+        maintenance.writeLock().lock();
+        try {
+            long deadline = System.nanoTime() + drainMillis * 1_000_000;
+            while (ds.getHikariPoolMXBean().getActiveConnections() > 0) {
+                if (System.nanoTime() > deadline) return null;
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+
+            long before = file.length();
+            long start = System.nanoTime();
+            try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+                st.execute("SHUTDOWN COMPACT");
+            } catch (SQLException e) {
+                throw new RuntimeException("H2 compaction failed (" + file.getName() + ")", e);
+            } finally {
+                // every pooled connection points to the closed database now
+                ds.getHikariPoolMXBean().softEvictConnections();
+            }
+            return new CompactResult(before, file.length(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            maintenance.writeLock().unlock();
+        }
+    }
+
     private static String sanitizeTableName(String table) {
         if (table == null || table.isBlank()) throw new IllegalArgumentException("table is blank");
         String safe = table.toLowerCase().replaceAll("[^a-z0-9_]", "_");
@@ -223,7 +711,7 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
         ensureTable(table);
 
         String sql = "SELECT unique_id, json FROM " + table;
-        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql);
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
             List<String[]> out = new ArrayList<>();
@@ -236,5 +724,261 @@ public final class JdbcDatabaseBackend implements DatabaseBackend {
         }
     }
 
+    @Override
+    public long count(String table) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM " + table);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new RuntimeException("DB count failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public long countFresh(String table, long maxAgeMillis) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        String sql = "SELECT COUNT(*) FROM " + table + " WHERE updated_at >= " + cutoff();
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setLong(1, -ageSeconds(maxAgeMillis));
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB count failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public Stream<String> ids(String table) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+        return streamIds(table, "SELECT unique_id FROM " + table, null);
+    }
+
+    @Override
+    public Stream<String> idsFresh(String table, long maxAgeMillis) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+        return streamIds(table, "SELECT unique_id FROM " + table + " WHERE updated_at >= " + cutoff(), -ageSeconds(maxAgeMillis));
+    }
+
+    // lazily streamed result set; connection, statement and result set are released when the stream is closed
+    private Stream<String> streamIds(String table, String sql, Long param) {
+        Connection c = null;
+        try {
+            c = connection();
+            PreparedStatement ps = c.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(dialect == Dialect.MYSQL ? Integer.MIN_VALUE : 1000);
+            if (param != null) ps.setLong(1, param);
+            ResultSet rs = ps.executeQuery();
+
+            Connection conn = c;
+            Spliterator<String> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super String> action) {
+                    try {
+                        if (!rs.next()) return false;
+                        action.accept(rs.getString(1));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new RuntimeException("DB ids failed (table=" + table + ")", e);
+                    }
+                }
+            };
+            return StreamSupport.stream(rows, false).onClose(() -> {
+                try (conn; ps; rs) {
+                    // closed in reverse order
+                } catch (SQLException e) {
+                    throw new RuntimeException("DB ids close failed (table=" + table + ")", e);
+                }
+            });
+        } catch (SQLException e) {
+            if (c != null) {
+                try {
+                    c.close();
+                } catch (SQLException ignored) {
+                }
+            }
+            throw new RuntimeException("DB ids failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public void forEachRaw(String table, BiConsumer<String, String> consumer) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        String sql = "SELECT unique_id, json FROM " + table;
+        try (Connection c = connection();
+             PreparedStatement ps = c.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // MySQL Connector/J only streams rows with MIN_VALUE; H2 pages with a regular fetch size
+            ps.setFetchSize(dialect == Dialect.MYSQL ? Integer.MIN_VALUE : 1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs.getString(1), rs.getString(2));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB scan failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public Map<String, Double> aggregate(String table, AggregateQuery query) {
+        // H2 has no JSON path functions -> generic in-memory reduction
+        if (dialect != Dialect.MYSQL) return DatabaseBackend.super.aggregate(table, query);
+        return aggregateMysql(table, query, 0);
+    }
+
+    @Override
+    public Map<String, Double> aggregateFresh(String table, AggregateQuery query, long maxAgeMillis) {
+        if (dialect != Dialect.MYSQL) return DatabaseBackend.super.aggregateFresh(table, query, maxAgeMillis);
+        return aggregateMysql(table, query, maxAgeMillis);
+    }
+
+    // maxAgeMillis 0 = all rows
+    private Map<String, Double> aggregateMysql(String table, AggregateQuery query, long maxAgeMillis) {
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        String where = maxAgeMillis > 0 ? " WHERE updated_at >= " + cutoff() : "";
+        String sql = query.grouped()
+                ? "SELECT " + groupKey(query.groupBy()) + " AS grp, " + aggregateExpr(query) + " AS val FROM " + table + where + " GROUP BY grp"
+                : "SELECT NULL AS grp, " + aggregateExpr(query) + " AS val FROM " + table + where;
+
+        try (Connection c = connection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            if (maxAgeMillis > 0) ps.setLong(1, -ageSeconds(maxAgeMillis));
+            try (ResultSet rs = ps.executeQuery()) {
+                Map<String, Double> out = new HashMap<>();
+                while (rs.next()) {
+                    double v = rs.getDouble(2);
+                    if (rs.wasNull()) continue;
+                    out.put(rs.getString(1), v);
+                }
+                return out;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB aggregate failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public void addToFields(String table, Map<String, Map<String, Long>> deltas, String templateJson) {
+        if (deltas.isEmpty()) return;
+        table = sanitizeTableName(table);
+        ensureTable(table);
+
+        try (Connection c = connection()) {
+            boolean auto = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                switch (dialect) {
+                    case MYSQL -> addToFieldsMySql(c, table, deltas, templateJson);
+                    case H2 -> addToFieldsH2(c, table, deltas, templateJson);
+                }
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(auto);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("DB addToFields failed (table=" + table + ")", e);
+        }
+    }
+
+    // one additive upsert batch per distinct field set, the server does the arithmetic
+    private void addToFieldsMySql(Connection c, String table, Map<String, Map<String, Long>> deltas,
+                                  String templateJson) throws SQLException {
+        Map<List<String>, List<String>> byFields = new LinkedHashMap<>();
+        deltas.forEach((id, fields) -> {
+            List<String> key = new ArrayList<>(new TreeSet<>(fields.keySet()));
+            byFields.computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+        });
+
+        for (Map.Entry<List<String>, List<String>> group : byFields.entrySet()) {
+            List<String> fields = group.getKey();
+            StringJoiner set = new StringJoiner(", ");
+            for (String field : fields) {
+                String path = "'$." + JsonFields.requireFieldName(field) + "'";
+                set.add(path + ", CAST(COALESCE(JSON_EXTRACT(json, " + path + "), 0) AS SIGNED) + ?");
+            }
+            String sql = """
+                INSERT INTO %s (unique_id, json) VALUES (?, ?)
+                ON DUPLICATE KEY UPDATE json=JSON_SET(json, %s), updated_at=CURRENT_TIMESTAMP
+                """.formatted(table, set);
+
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (String id : group.getValue()) {
+                    Map<String, Long> d = deltas.get(id);
+                    ps.setString(1, id);
+                    ps.setString(2, JsonFields.applyDeltas(templateJson, d));
+                    int i = 3;
+                    for (String field : fields) ps.setLong(i++, d.get(field));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    // no JSON_SET in H2 -> lock the rows, merge in java, write back as one batch
+    private void addToFieldsH2(Connection c, String table, Map<String, Map<String, Long>> deltas,
+                               String templateJson) throws SQLException {
+        String select = "SELECT json FROM " + table + " WHERE unique_id=? FOR UPDATE";
+        String merge = "MERGE INTO " + table + " (unique_id, json, updated_at) KEY (unique_id) VALUES (?, ?, LOCALTIMESTAMP)";
+
+        try (PreparedStatement read = c.prepareStatement(select); PreparedStatement write = c.prepareStatement(merge)) {
+            for (Map.Entry<String, Map<String, Long>> e : deltas.entrySet()) {
+                read.setString(1, e.getKey());
+                String json;
+                try (ResultSet rs = read.executeQuery()) {
+                    json = rs.next() ? rs.getString(1) : templateJson;
+                }
+                write.setString(1, e.getKey());
+                write.setString(2, JsonFields.applyDeltas(json, e.getValue()));
+                write.addBatch();
+            }
+            write.executeBatch();
+        }
+    }
+
+    // same semantics as JsonAggregator: JSON null and missing fields are skipped, numbers and numeric
+    // strings count as numbers, anything else (other strings, booleans, objects) is NULL
+    private static String aggregateExpr(AggregateQuery query) {
+        if (query.field() == null) return "COUNT(*)";
+
+        String value = jsonValue(query.field());
+        String number = "CASE WHEN JSON_TYPE(" + value + ") IN ('INTEGER', 'UNSIGNED INTEGER', 'DOUBLE', 'DECIMAL')"
+                + " OR (JSON_TYPE(" + value + ") = 'STRING' AND JSON_UNQUOTE(" + value + ") REGEXP '" + NUMERIC_TEXT + "')"
+                // "+ 0" forces numeric comparison/summing instead of JSON semantics
+                + " THEN JSON_UNQUOTE(" + value + ") + 0 END";
+        return switch (query.function()) {
+            case COUNT -> "COUNT(CASE WHEN JSON_TYPE(" + value + ") <> 'NULL' THEN 1 END)";
+            case SUM -> "SUM(" + number + ")";
+            case MIN -> "MIN(" + number + ")";
+            case MAX -> "MAX(" + number + ")";
+            case AVG -> "AVG(" + number + ")";
+        };
+    }
+
+    private static String jsonValue(String field) {
+        return "JSON_EXTRACT(json, '$." + field + "')";
+    }
+
+    // group key: JSON null and missing fields group under the null key, not under the text "null"
+    private static String groupKey(String field) {
+        String value = jsonValue(field);
+        return "CASE WHEN JSON_TYPE(" + value + ") <> 'NULL' THEN JSON_UNQUOTE(" + value + ") END";
+    }
+
     private enum Dialect { MYSQL, H2 }
 }
@@ -0,0 +1,116 @@
+package de.tebrox.vertexCore.database.backend;
+
+import com.zaxxer.hikari.HikariDataSource;
+import de.tebrox.vertexCore.database.DatabaseBackend.Versioned;
+
+import java.sql.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// embedded H2 file holding copies of remote rows together with the remote version they were read at
+final class LocalCacheStore implements AutoCloseable {
+
+    private final HikariDataSource ds;
+
+    LocalCacheStore(HikariDataSource ds) {
+        this.ds = ds;
+        try (Connection c = ds.getConnection(); Statement st = c.createStatement()) {
+            st.execute("""
+                CREATE TABLE IF NOT EXISTS vc_l2 (
+                  tbl VARCHAR(128) NOT NULL,
+                  unique_id VARCHAR(128) NOT NULL,
+                  json CLOB NOT NULL,
+                  version BIGINT NOT NULL,
+                  settled BOOLEAN NOT NULL,
+                  PRIMARY KEY (tbl, unique_id)
+                )
+                """);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to init local cache", e);
+        }
+    }
+
+    Versioned get(String table, String uniqueId) {
+        String sql = "SELECT json, version, settled FROM vc_l2 WHERE tbl=? AND unique_id=?";
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, table);
+            ps.setString(2, uniqueId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                return new Versioned(rs.getString(1), rs.getLong(2), rs.getBoolean(3));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Local cache get failed (table=" + table + ")", e);
+        }
+    }
+
+    void put(String table, String uniqueId, Versioned row) {
+        String sql = "MERGE INTO vc_l2 (tbl, unique_id, json, version, settled) KEY (tbl, unique_id) VALUES (?, ?, ?, ?, ?)";
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, table);
+            ps.setString(2, uniqueId);
+            ps.setString(3, row.json());
+            ps.setLong(4, row.version());
+            ps.setBoolean(5, row.settled());
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Local cache put failed (table=" + table + ")", e);
+        }
+    }
+
+    void remove(String table, String uniqueId) {
+        String sql = "DELETE FROM vc_l2 WHERE tbl=? AND unique_id=?";
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, table);
+            ps.setString(2, uniqueId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Local cache delete failed (table=" + table + ")", e);
+        }
+    }
+
+    void removeAll(String table, Collection<String> uniqueIds) {
+        if (uniqueIds.isEmpty()) return;
+        String sql = "DELETE FROM vc_l2 WHERE tbl=? AND unique_id=?";
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            for (String id : uniqueIds) {
+                ps.setString(1, table);
+                ps.setString(2, id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException("Local cache delete failed (table=" + table + ")", e);
+        }
+    }
+
+    // id -> cached version, settled rows only (the others are re-read anyway)
+    Map<String, Long> settledVersions(String table) {
+        String sql = "SELECT unique_id, version FROM vc_l2 WHERE tbl=? AND settled";
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                Map<String, Long> out = new HashMap<>();
+                while (rs.next()) out.put(rs.getString(1), rs.getLong(2));
+                return out;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Local cache scan failed (table=" + table + ")", e);
+        }
+    }
+
+    void clear(String table) {
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement("DELETE FROM vc_l2 WHERE tbl=?")) {
+            ps.setString(1, table);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Local cache clear failed (table=" + table + ")", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        ds.close();
+    }
+}
@@ -0,0 +1,200 @@
+package de.tebrox.vertexCore.database.backend;
+
+import de.tebrox.vertexCore.database.DatabaseBackend;
+import de.tebrox.vertexCore.database.DatabaseMetrics;
+import de.tebrox.vertexCore.database.internal.OffHeapStore;
+import de.tebrox.vertexCore.database.query.FieldCondition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Read-through cache of row json for selected tables, stored off-heap ({@link OffHeapStore}) so
+ * large caches add neither heap nor GC work; rows are decoded by the caller on access.
+ * Writes through this backend update or drop the cached row. Entries expire after freshMillis,
+ * which bounds how long writes from other servers stay invisible.
+ */
+public final class OffHeapCacheBackend extends ForwardingDatabaseBackend {
+
+    private static final int STRIPES = 256;
+
+    private final Set<String> tables;
+    private final OffHeapStore store;
+    private final long freshMillis;
+    private final DatabaseMetrics metrics;
+    private final String metricsOwner;
+
+    // table -> epoch; bumping it orphans every cached row of the table (bulk deletes)
+    private final Map<String, Long> epochs = new ConcurrentHashMap<>();
+    // write generations per key stripe: a read that raced with a write must not be cached
+    private final AtomicLongArray writes = new AtomicLongArray(STRIPES);
+
+    public OffHeapCacheBackend(DatabaseBackend delegate, Set<String> tables, long budgetBytes, long freshMillis,
+                               DatabaseMetrics metrics, String metricsOwner) {
+        super(delegate);
+        this.tables = Set.copyOf(tables);
+        // a few dozen slabs: eviction drops 2-5 % of the cache at a time
+        int slabBytes = (int) Math.min(16L << 20, Math.max(1L << 20, budgetBytes / 32));
+        this.store = new OffHeapStore(budgetBytes, slabBytes);
+        this.freshMillis = freshMillis;
+        this.metrics = metrics;
+        this.metricsOwner = metricsOwner;
+    }
+
+    private String key(String table, String uniqueId) {
+        return table + '\0' + epochs.getOrDefault(table, 0L) + '\0' + uniqueId;
+    }
+
+    private int stripe(String table, String uniqueId) {
+        return (table.hashCode() * 31 + uniqueId.hashCode()) & (STRIPES - 1);
+    }
+
+    private long expiresAt() {
+        return freshMillis > 0 ? System.currentTimeMillis() + freshMillis : 0;
+    }
+
+    private void fill(String table, String uniqueId, String json, long gen) {
+        if (json == null || writes.get(stripe(table, uniqueId)) != gen) return;
+        store.put(key(table, uniqueId), json, expiresAt());
+    }
+
+    private void written(String table, String uniqueId, String json) {
+        writes.incrementAndGet(stripe(table, uniqueId));
+        if (json == null) store.remove(key(table, uniqueId));
+        else store.put(key(table, uniqueId), json, expiresAt());
+    }
+
+    private void dropTable(String table) {
+        for (int i = 0; i < STRIPES; i++) writes.incrementAndGet(i);
+        epochs.merge(table, 1L, Long::sum);
+    }
+
+    private void recordSize() {
+        metrics.set(DatabaseMetrics.key(metricsOwner, "offheap", "entries"), store.size());
+        metrics.set(DatabaseMetrics.key(metricsOwner, "offheap", "bytes"), store.bytes());
+        metrics.set(DatabaseMetrics.key(metricsOwner, "offheap", "evicted"), store.evictedEntries());
+    }
+
+    // ---------------- reads ----------------
+
+    @Override
+    public String get(String table, String uniqueId) {
+        if (!tables.contains(table)) return super.get(table, uniqueId);
+
+        String cached = store.get(key(table, uniqueId));
+        if (cached != null) {
+            metrics.increment(DatabaseMetrics.key(metricsOwner, table, "offheap.hit"));
+            return cached;
+        }
+        metrics.increment(DatabaseMetrics.key(metricsOwner, table, "offheap.miss"));
+
+        long gen = writes.get(stripe(table, uniqueId));
+        String json = super.get(table, uniqueId);
+        fill(table, uniqueId, json, gen);
+        recordSize();
+        return json;
+    }
+
+    @Override
+    public boolean exists(String table, String uniqueId) {
+        if (!tables.contains(table)) return super.exists(table, uniqueId);
+        return store.get(key(table, uniqueId)) != null || super.exists(table, uniqueId);
+    }
+
+    @Override
+    public Map<String, String> getMany(String table, Collection<String> uniqueIds) {
+        if (!tables.contains(table)) return super.getMany(table, uniqueIds);
+
+        Map<String, String> out = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : uniqueIds) {
+            String cached = store.get(key(table, id));
+            if (cached != null) out.put(id, cached);
+            else missing.add(id);
+        }
+        metrics.add(DatabaseMetrics.key(metricsOwner, table, "offheap.hit"), out.size());
+        metrics.add(DatabaseMetrics.key(metricsOwner, table, "offheap.miss"), missing.size());
+        if (missing.isEmpty()) return out;
+
+        Map<String, Long> gens = new HashMap<>();
+        for (String id : missing) gens.put(id, writes.get(stripe(table, id)));
+        Map<String, String> loaded = super.getMany(table, missing);
+        loaded.forEach((id, json) -> fill(table, id, json, gens.get(id)));
+        out.putAll(loaded);
+        recordSize();
+        return out;
+    }
+
+    // ---------------- writes ----------------
+
+    @Override
+    public void set(String table, String uniqueId, String json) {
+        super.set(table, uniqueId, json);
+        if (tables.contains(table)) written(table, uniqueId, json);
+    }
+
+    @Override
+    public void delete(String table, String uniqueId) {
+        super.delete(table, uniqueId);
+        if (tables.contains(table)) written(table, uniqueId, null);
+    }
+
+    @Override
+    public void applyBatch(List<WriteOp> ops) {
+        super.applyBatch(ops);
+        for (WriteOp op : ops) {
+            if (tables.contains(op.table())) written(op.table(), op.uniqueId(), op.json());
+        }
+    }
+
+    // the backend adds to the stored values, the result is not known here
+    @Override
+    public void addToFields(String table, Map<String, Map<String, Long>> deltas, String templateJson) {
+        super.addToFields(table, deltas, templateJson);
+        if (tables.contains(table)) deltas.keySet().forEach(id -> written(table, id, null));
+    }
+
+    @Override
+    public long deleteAll(String table) {
+        long deleted = super.deleteAll(table);
+        if (tables.contains(table)) dropTable(table);
+        return deleted;
+    }
+
+    @Override
+    public long deleteIds(String table, Collection<String> uniqueIds, LongConsumer progress) {
+        long deleted = super.deleteIds(table, uniqueIds, progress);
+        if (tables.contains(table)) uniqueIds.forEach(id -> written(table, id, null));
+        return deleted;
+    }
+
+    @Override
+    public long deleteWhere(String table, List<FieldCondition> where, LongConsumer progress) {
+        long deleted = super.deleteWhere(table, where, progress);
+        if (deleted > 0 && tables.contains(table)) dropTable(table);
+        return deleted;
+    }
+
+    @Override
+    public int purgeExpired(String table, long maxAgeMillis, int batchSize) {
+        int purged = super.purgeExpired(table, maxAgeMillis, batchSize);
+        if (purged > 0 && tables.contains(table)) dropTable(table);
+        return purged;
+    }
+
+    @Override
+    public void close() {
+        try {
+            store.clear();
+        } finally {
+            super.close();
+        }
+    }
+}
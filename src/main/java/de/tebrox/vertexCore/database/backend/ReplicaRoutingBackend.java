@@ -0,0 +1,326 @@
+package de.tebrox.vertexCore.database.backend;
+
+import de.tebrox.vertexCore.database.DatabaseBackend;
+import de.tebrox.vertexCore.database.DatabaseMetrics;
+import de.tebrox.vertexCore.database.query.AggregateQuery;
+import de.tebrox.vertexCore.database.query.FieldCondition;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Sends reads to MySQL read replicas (round robin), writes to the primary (the delegate).
+ * Bulk reads always go to a replica and may lag behind by the replication delay.
+ * Point reads go to the primary for rows written through this backend within readYourWritesMillis
+ * (whole tables after bulk deletes), so a save is visible to the next load on this server.
+ * A replica that can't be reached is skipped; with none left the primary answers.
+ * {@link #primary()} reads without routing, for copies that must match {@link #versions}.
+ */
+public final class ReplicaRoutingBackend extends ForwardingDatabaseBackend {
+
+    private static final int SWEEP_ABOVE = 10_000;
+
+    private final List<DatabaseBackend> replicas;
+    private final long readYourWritesMillis;
+    private final DatabaseMetrics metrics;
+    private final String metricsOwner;
+
+    private final AtomicInteger next = new AtomicInteger();
+    // "table\0id" / table -> primary reads until (epoch millis); Long.MAX_VALUE while a write is running
+    private final Map<String, Long> recentRows = new ConcurrentHashMap<>();
+    private final Map<String, Long> recentTables = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingBackend(DatabaseBackend primary, List<DatabaseBackend> replicas, long readYourWritesMillis,
+                                 DatabaseMetrics metrics, String metricsOwner) {
+        super(primary);
+        this.replicas = List.copyOf(replicas);
+        this.readYourWritesMillis = readYourWritesMillis;
+        this.metrics = metrics;
+        this.metricsOwner = metricsOwner;
+    }
+
+    public List<DatabaseBackend> replicas() {
+        return replicas;
+    }
+
+    // ---------------- routing ----------------
+
+    private <T> T replicaRead(Function<DatabaseBackend, T> read) {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            DatabaseBackend replica = replicas.get((start + i) % replicas.size());
+            try {
+                T result = read.apply(replica);
+                metrics.increment(DatabaseMetrics.key(metricsOwner, "replica", "reads"));
+                return result;
+            } catch (RuntimeException e) {
+                // unreachable, or the table was not replicated yet: next replica, then the primary
+                metrics.increment(DatabaseMetrics.key(metricsOwner, "replica", "fallbacks"));
+            }
+        }
+        return read.apply(delegate);
+    }
+
+    private <T> T pointRead(String table, String uniqueId, Function<DatabaseBackend, T> read) {
+        if (recent(table, uniqueId)) {
+            metrics.increment(DatabaseMetrics.key(metricsOwner, "replica", "primary.reads"));
+            return read.apply(delegate);
+        }
+        return replicaRead(read);
+    }
+
+    private boolean recent(String table, String uniqueId) {
+        long now = System.currentTimeMillis();
+        Long wholeTable = recentTables.get(table);
+        if (wholeTable != null && wholeTable > now) return true;
+        Long row = recentRows.get(table + '\0' + uniqueId);
+        return row != null && row > now;
+    }
+
+    // ---------------- read-your-writes bookkeeping ----------------
+
+    private void writing(String table, String uniqueId) {
+        recentRows.put(table + '\0' + uniqueId, Long.MAX_VALUE);
+    }
+
+    private void written(String table, String uniqueId) {
+        recentRows.put(table + '\0' + uniqueId, System.currentTimeMillis() + readYourWritesMillis);
+        if (recentRows.size() > SWEEP_ABOVE) {
+            long now = System.currentTimeMillis();
+            recentRows.values().removeIf(until -> until <= now);
+        }
+    }
+
+    private void writingTable(String table) {
+        recentTables.put(table, Long.MAX_VALUE);
+    }
+
+    private void writtenTable(String table) {
+        recentTables.put(table, System.currentTimeMillis() + readYourWritesMillis);
+    }
+
+    // ---------------- point reads ----------------
+
+    @Override
+    public String get(String table, String uniqueId) {
+        return pointRead(table, uniqueId, b -> b.get(table, uniqueId));
+    }
+
+    @Override
+    public boolean exists(String table, String uniqueId) {
+        return pointRead(table, uniqueId, b -> b.exists(table, uniqueId));
+    }
+
+    @Override
+    public Versioned getVersioned(String table, String uniqueId) {
+        return pointRead(table, uniqueId, b -> b.getVersioned(table, uniqueId));
+    }
+
+    @Override
+    public long version(String table, String uniqueId) {
+        return pointRead(table, uniqueId, b -> b.version(table, uniqueId));
+    }
+
+    @Override
+    public String getFresh(String table, String uniqueId, long maxAgeMillis) {
+        return pointRead(table, uniqueId, b -> b.getFresh(table, uniqueId, maxAgeMillis));
+    }
+
+    @Override
+    public boolean existsFresh(String table, String uniqueId, long maxAgeMillis) {
+        return pointRead(table, uniqueId, b -> b.existsFresh(table, uniqueId, maxAgeMillis));
+    }
+
+    @Override
+    public Map<String, String> getMany(String table, Collection<String> uniqueIds) {
+        for (String id : uniqueIds) {
+            if (recent(table, id)) {
+                metrics.increment(DatabaseMetrics.key(metricsOwner, "replica", "primary.reads"));
+                return delegate.getMany(table, uniqueIds);
+            }
+        }
+        return replicaRead(b -> b.getMany(table, uniqueIds));
+    }
+
+    // ---------------- bulk reads ----------------
+
+    @Override
+    public List<String[]> loadAllRaw(String table) {
+        return replicaRead(b -> b.loadAllRaw(table));
+    }
+
+    @Override
+    public List<String[]> loadAllRawFresh(String table, long maxAgeMillis) {
+        return replicaRead(b -> b.loadAllRawFresh(table, maxAgeMillis));
+    }
+
+    // like replicaRead, but only until the first row: rows already passed to the consumer can't be taken back
+    @Override
+    public void forEachRaw(String table, BiConsumer<String, String> consumer) {
+        AtomicBoolean started = new AtomicBoolean();
+        BiConsumer<String, String> tracked = (id, json) -> {
+            started.set(true);
+            consumer.accept(id, json);
+        };
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            DatabaseBackend replica = replicas.get((start + i) % replicas.size());
+            try {
+                replica.forEachRaw(table, tracked);
+                metrics.increment(DatabaseMetrics.key(metricsOwner, "replica", "reads"));
+                return;
+            } catch (RuntimeException e) {
+                if (started.get()) throw e;
+                metrics.increment(DatabaseMetrics.key(metricsOwner, "replica", "fallbacks"));
+            }
+        }
+        delegate.forEachRaw(table, consumer);
+    }
+
+    @Override
+    public Stream<String> ids(String table) {
+        return replicaRead(b -> b.ids(table));
+    }
+
+    @Override
+    public Stream<String> idsFresh(String table, long maxAgeMillis) {
+        return replicaRead(b -> b.idsFresh(table, maxAgeMillis));
+    }
+
+    @Override
+    public long count(String table) {
+        return replicaRead(b -> b.count(table));
+    }
+
+    @Override
+    public long countFresh(String table, long maxAgeMillis) {
+        return replicaRead(b -> b.countFresh(table, maxAgeMillis));
+    }
+
+    @Override
+    public Map<String, Double> aggregate(String table, AggregateQuery query) {
+        return replicaRead(b -> b.aggregate(table, query));
+    }
+
+    @Override
+    public Map<String, Double> aggregateFresh(String table, AggregateQuery query, long maxAgeMillis) {
+        return replicaRead(b -> b.aggregateFresh(table, query, maxAgeMillis));
+    }
+
+    // high-water marks of caches and snapshots must not lag behind: primary
+    @Override
+    public Map<String, Long> versions(String table) {
+        return delegate.versions(table);
+    }
+
+    // rows for those high-water marks, unrouted
+    @Override
+    public DatabaseBackend primary() {
+        return delegate.primary();
+    }
+
+    // ---------------- writes (primary) ----------------
+
+    @Override
+    public void set(String table, String uniqueId, String json) {
+        writing(table, uniqueId);
+        try {
+            delegate.set(table, uniqueId, json);
+        } finally {
+            written(table, uniqueId);
+        }
+    }
+
+    @Override
+    public void delete(String table, String uniqueId) {
+        writing(table, uniqueId);
+        try {
+            delegate.delete(table, uniqueId);
+        } finally {
+            written(table, uniqueId);
+        }
+    }
+
+    @Override
+    public void applyBatch(List<WriteOp> ops) {
+        ops.forEach(op -> writing(op.table(), op.uniqueId()));
+        try {
+            delegate.applyBatch(ops);
+        } finally {
+            ops.forEach(op -> written(op.table(), op.uniqueId()));
+        }
+    }
+
+    @Override
+    public void addToFields(String table, Map<String, Map<String, Long>> deltas, String templateJson) {
+        deltas.keySet().forEach(id -> writing(table, id));
+        try {
+            delegate.addToFields(table, deltas, templateJson);
+        } finally {
+            deltas.keySet().forEach(id -> written(table, id));
+        }
+    }
+
+    @Override
+    public long deleteIds(String table, Collection<String> uniqueIds, LongConsumer progress) {
+        uniqueIds.forEach(id -> writing(table, id));
+        try {
+            return delegate.deleteIds(table, uniqueIds, progress);
+        } finally {
+            uniqueIds.forEach(id -> written(table, id));
+        }
+    }
+
+    @Override
+    public long deleteAll(String table) {
+        writingTable(table);
+        try {
+            return delegate.deleteAll(table);
+        } finally {
+            writtenTable(table);
+        }
+    }
+
+    @Override
+    public long deleteWhere(String table, List<FieldCondition> where, LongConsumer progress) {
+        writingTable(table);
+        try {
+            return delegate.deleteWhere(table, where, progress);
+        } finally {
+            writtenTable(table);
+        }
+    }
+
+    @Override
+    public int purgeExpired(String table, long maxAgeMillis, int batchSize) {
+        writingTable(table);
+        try {
+            return delegate.purgeExpired(table, maxAgeMillis, batchSize);
+        } finally {
+            writtenTable(table);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            for (DatabaseBackend replica : replicas) {
+                try {
+                    replica.close();
+                } catch (Exception ignored) {
+                    // the primary is closed regardless
+                }
+            }
+        } finally {
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package de.tebrox.vertexCore.database.backend;
+
+import de.tebrox.vertexCore.database.DatabaseBackend;
+import de.tebrox.vertexCore.database.internal.HashRing;
+import de.tebrox.vertexCore.database.query.AggregateFunction;
+import de.tebrox.vertexCore.database.query.AggregateQuery;
+import de.tebrox.vertexCore.database.query.FieldCondition;
+import de.tebrox.vertexCore.util.Deadline;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Spreads the rows of every table over several backends (shards) by consistent hashing of the id
+ * ({@link HashRing}). Point operations go to the owning shard; scans, counts and bulk deletes run
+ * on all shards in parallel and are merged. applyBatch is atomic per shard only.
+ * <p>
+ * The shard names of the last completed rebalance are kept in ringFile. If the configured shards
+ * differ, rows may still sit on their old shard until they were moved ({@link #move}): meanwhile
+ * point reads that miss look on the other shards, scans drop duplicates, deletes go to every
+ * shard, and writes are serialized with the moves per id stripe.
+ */
+public final class ShardedDatabaseBackend implements DatabaseBackend {
+
+    private static final int STRIPES = 64;
+
+    private final List<DatabaseBackend> shards;
+    private final HashRing ring;
+    private final Path ringFile;
+    private final ExecutorService fanOut;
+    private final Object[] stripes = new Object[STRIPES];
+
+    private volatile boolean rebalancePending;
+
+    public ShardedDatabaseBackend(Map<String, DatabaseBackend> shards, int virtualNodes, Path ringFile) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("Sharded backend needs at least one shard");
+        this.shards = List.copyOf(shards.values());
+        this.ring = new HashRing(new ArrayList<>(shards.keySet()), virtualNodes);
+        this.ringFile = ringFile;
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+
+        AtomicInteger n = new AtomicInteger();
+        this.fanOut = Executors.newFixedThreadPool(this.shards.size(), r -> {
+            Thread t = new Thread(r, "VertexCore-Shard-" + n.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+
+        Set<String> current = new TreeSet<>(shards.keySet());
+        try {
+            if (Files.exists(ringFile)) {
+                rebalancePending = !new TreeSet<>(Files.readAllLines(ringFile)).equals(current);
+            } else {
+                // first start: nothing can be misplaced yet
+                Files.createDirectories(ringFile.toAbsolutePath().getParent());
+                Files.write(ringFile, current);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard ring file not accessible: " + ringFile, e);
+        }
+    }
+
+    public List<String> shardNames() {
+        return ring.nodes();
+    }
+
+    public List<DatabaseBackend> shards() {
+        return shards;
+    }
+
+    public boolean rebalancePending() {
+        return rebalancePending;
+    }
+
+    private DatabaseBackend owner(String uniqueId) {
+        return shards.get(ring.nodeOf(uniqueId));
+    }
+
+    private Object stripe(String uniqueId) {
+        return stripes[uniqueId.hashCode() & (STRIPES - 1)];
+    }
+
+    // ---------------- fan-out ----------------
+
+    // one task per shard, in parallel; the caller's deadline applies on the worker threads too
+    private <T> List<T> onAll(Function<DatabaseBackend, T> task) {
+        Deadline deadline = Deadline.current();
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+        for (DatabaseBackend shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> deadline == null ? task.apply(shard) : deadline.run(() -> task.apply(shard)), fanOut));
+        }
+        List<T> out = new ArrayList<>(shards.size());
+        try {
+            for (CompletableFuture<T> f : futures) out.add(f.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+        return out;
+    }
+
+    private <K> Map<DatabaseBackend, List<K>> byShard(Collection<K> items, Function<K, String> id) {
+        Map<DatabaseBackend, List<K>> out = new LinkedHashMap<>();
+        for (K item : items) out.computeIfAbsent(owner(id.apply(item)), k -> new ArrayList<>()).add(item);
+        return out;
+    }
+
+    // ---------------- point reads ----------------
+
+    // the owner answers; while rebalancing a miss is looked up on every shard, under the id's stripe so a concurrent move can't hide the row
+    private <T> T locate(String uniqueId, Function<DatabaseBackend, T> read, T absent) {
+        T v = read.apply(owner(uniqueId));
+        if (!Objects.equals(v, absent) || !rebalancePending) return v;
+        synchronized (stripe(uniqueId)) {
+            for (DatabaseBackend shard : shards) {
+                v = read.apply(shard);
+                if (!Objects.equals(v, absent)) return v;
+            }
+        }
+        return absent;
+    }
+
+    @Override
+    public String get(String table, String uniqueId) {
+        return locate(uniqueId, shard -> shard.get(table, uniqueId), null);
+    }
+
+    @Override
+    public boolean exists(String table, String uniqueId) {
+        return locate(uniqueId, shard -> shard.exists(table, uniqueId), false);
+    }
+
+    @Override
+    public Versioned getVersioned(String table, String uniqueId) {
+        return locate(uniqueId, shard -> shard.getVersioned(table, uniqueId), null);
+    }
+
+    @Override
+    public long version(String table, String uniqueId) {
+        return locate(uniqueId, shard -> shard.version(table, uniqueId), -1L);
+    }
+
+    @Override
+    public String getFresh(String table, String uniqueId, long maxAgeMillis) {
+        return locate(uniqueId, shard -> shard.getFresh(table, uniqueId, maxAgeMillis), null);
+    }
+
+    @Override
+    public boolean existsFresh(String table, String uniqueId, long maxAgeMillis) {
+        return getFresh(table, uniqueId, maxAgeMillis) != null;
+    }
+
+    @Override
+    public Map<String, String> getMany(String table, Collection<String> uniqueIds) {
+        Map<String, String> out = new HashMap<>();
+        byShard(uniqueIds, id -> id).forEach((shard, ids) -> out.putAll(shard.getMany(table, ids)));
+        if (rebalancePending && out.size() < uniqueIds.size()) {
+            for (String id : uniqueIds) {
+                if (!out.containsKey(id)) {
+                    String json = get(table, id);
+                    if (json != null) out.put(id, json);
+                }
+            }
+        }
+        return out;
+    }
+
+    // ---------------- scans ----------------
+
+    @Override
+    public List<String[]> loadAllRaw(String table) {
+        return merge(onAll(shard -> shard.loadAllRaw(table)));
+    }
+
+    @Override
+    public List<String[]> loadAllRawFresh(String table, long maxAgeMillis) {
+        return merge(onAll(shard -> shard.loadAllRawFresh(table, maxAgeMillis)));
+    }
+
+    private List<String[]> merge(List<List<String[]>> parts) {
+        int size = 0;
+        for (List<String[]> p : parts) size += p.size();
+        List<String[]> out = new ArrayList<>(size);
+        if (!rebalancePending) {
+            parts.forEach(out::addAll);
+            return out;
+        }
+        // a row being moved can be on two shards: keep the copy on its owner
+        Map<String, String[]> rows = new HashMap<>(size);
+        for (int s = 0; s < parts.size(); s++) {
+            for (String[] row : parts.get(s)) {
+                if (shards.get(s) == owner(row[0])) rows.put(row[0], row);
+                else rows.putIfAbsent(row[0], row);
+            }
+        }
+        out.addAll(rows.values());
+        return out;
+    }
+
+    // shards stream in parallel; the consumer is called by one thread at a time
+    @Override
+    public void forEachRaw(String table, BiConsumer<String, String> consumer) {
+        Object lock = new Object();
+        boolean pending = rebalancePending;
+        Set<String> seen = pending ? new HashSet<>() : null;
+        onAll(shard -> {
+            shard.forEachRaw(table, (id, json) -> {
+                // while rebalancing, only the owner's copy counts; rows not on their owner are looked up there
+                if (pending && shard != owner(id) && owner(id).exists(table, id)) return;
+                synchronized (lock) {
+                    if (seen != null && !seen.add(id)) return;
+                    consumer.accept(id, json);
+                }
+            });
+            return null;
+        });
+    }
+
+    // ids only, collected per shard in parallel
+    @Override
+    public Stream<String> ids(String table) {
+        return mergeIds(onAll(shard -> {
+            try (Stream<String> s = shard.ids(table)) {
+                return s.toList();
+            }
+        }));
+    }
+
+    @Override
+    public Stream<String> idsFresh(String table, long maxAgeMillis) {
+        return mergeIds(onAll(shard -> {
+            try (Stream<String> s = shard.idsFresh(table, maxAgeMillis)) {
+                return s.toList();
+            }
+        }));
+    }
+
+    private Stream<String> mergeIds(List<List<String>> parts) {
+        Stream<String> all = parts.stream().flatMap(List::stream);
+        return rebalancePending ? all.distinct() : all;
+    }
+
+    @Override
+    public long count(String table) {
+        if (rebalancePending) {
+            try (Stream<String> ids = ids(table)) {
+                return ids.count();
+            }
+        }
+        return onAll(shard -> shard.count(table)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public long countFresh(String table, long maxAgeMillis) {
+        if (rebalancePending) {
+            try (Stream<String> ids = idsFresh(table, maxAgeMillis)) {
+                return ids.count();
+            }
+        }
+        return onAll(shard -> shard.countFresh(table, maxAgeMillis)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    // null as soon as one shard has no versions
+    @Override
+    public Map<String, Long> versions(String table) {
+        Map<String, Long> out = new HashMap<>();
+        for (Map<String, Long> part : onAll(shard -> shard.versions(table))) {
+            if (part == null) return null;
+            part.forEach((id, v) -> out.merge(id, v, Math::max));
+        }
+        return out;
+    }
+
+    // computed by every shard and merged; while rebalancing a row may sit on two shards, so reduce over the merged scan
+    @Override
+    public Map<String, Double> aggregate(String table, AggregateQuery query) {
+        if (rebalancePending) return DatabaseBackend.super.aggregate(table, query);
+        return aggregateOnAll(query, (shard, q) -> shard.aggregate(table, q));
+    }
+
+    @Override
+    public Map<String, Double> aggregateFresh(String table, AggregateQuery query, long maxAgeMillis) {
+        if (rebalancePending) return DatabaseBackend.super.aggregateFresh(table, query, maxAgeMillis);
+        return aggregateOnAll(query, (shard, q) -> shard.aggregateFresh(table, q, maxAgeMillis));
+    }
+
+    // COUNT / SUM add up, MIN / MAX take the extreme; AVG is total sum / total count.
+    // A group missing on a shard has no rows (or values) there.
+    private Map<String, Double> aggregateOnAll(AggregateQuery query, BiFunction<DatabaseBackend, AggregateQuery, Map<String, Double>> run) {
+        Map<String, Double> out = new HashMap<>();
+        switch (query.function()) {
+            case COUNT, SUM -> onAll(shard -> run.apply(shard, query)).forEach(part -> part.forEach((k, v) -> out.merge(k, v, Double::sum)));
+            case MIN -> onAll(shard -> run.apply(shard, query)).forEach(part -> part.forEach((k, v) -> out.merge(k, v, Math::min)));
+            case MAX -> onAll(shard -> run.apply(shard, query)).forEach(part -> part.forEach((k, v) -> out.merge(k, v, Math::max)));
+            case AVG -> {
+                // AVG is only allowed on numeric fields, so COUNT(field) counts the same values SUM adds up
+                AggregateQuery sum = new AggregateQuery(AggregateFunction.SUM, query.field(), query.groupBy());
+                AggregateQuery count = new AggregateQuery(AggregateFunction.COUNT, query.field(), query.groupBy());
+                Map<String, Double> sums = new HashMap<>();
+                Map<String, Double> counts = new HashMap<>();
+                for (List<Map<String, Double>> part : onAll(shard -> List.of(run.apply(shard, sum), run.apply(shard, count)))) {
+                    part.get(0).forEach((k, v) -> sums.merge(k, v, Double::sum));
+                    part.get(1).forEach((k, v) -> counts.merge(k, v, Double::sum));
+                }
+                sums.forEach((k, v) -> {
+                    double n = counts.getOrDefault(k, 0.0);
+                    if (n > 0) out.put(k, v / n);
+                });
+            }
+        }
+        return out;
+    }
+
+    // ---------------- writes ----------------
+
+    @Override
+    public void set(String table, String uniqueId, String json) {
+        if (!rebalancePending) {
+            owner(uniqueId).set(table, uniqueId, json);
+            return;
+        }
+        synchronized (stripe(uniqueId)) {
+            owner(uniqueId).set(table, uniqueId, json);
+        }
+    }
+
+    @Override
+    public void delete(String table, String uniqueId) {
+        if (!rebalancePending) {
+            owner(uniqueId).delete(table, uniqueId);
+            return;
+        }
+        // an old copy on another shard would come back through the fallback reads
+        synchronized (stripe(uniqueId)) {
+            for (DatabaseBackend shard : shards) shard.delete(table, uniqueId);
+        }
+    }
+
+    @Override
+    public void applyBatch(List<WriteOp> ops) {
+        if (!rebalancePending) {
+            byShard(ops, WriteOp::uniqueId).forEach(DatabaseBackend::applyBatch);
+            return;
+        }
+        withStripes(ops.stream().map(WriteOp::uniqueId).toList(), () -> {
+            Map<DatabaseBackend, List<WriteOp>> out = new LinkedHashMap<>();
+            for (WriteOp op : ops) {
+                if (op.isDelete()) {
+                    for (DatabaseBackend shard : shards) out.computeIfAbsent(shard, k -> new ArrayList<>()).add(op);
+                } else {
+                    out.computeIfAbsent(owner(op.uniqueId()), k -> new ArrayList<>()).add(op);
+                }
+            }
+            out.forEach(DatabaseBackend::applyBatch);
+        });
+    }
+
+    // additive: a row still on its old shard is moved first, or the deltas would start from the template
+    @Override
+    public void addToFields(String table, Map<String, Map<String, Long>> deltas, String templateJson) {
+        if (!rebalancePending) {
+            byShard(deltas.keySet(), id -> id).forEach((shard, ids) -> {
+                Map<String, Map<String, Long>> part = new HashMap<>();
+                for (String id : ids) part.put(id, deltas.get(id));
+                shard.addToFields(table, part, templateJson);
+            });
+            return;
+        }
+        withStripes(deltas.keySet(), () -> {
+            for (String id : deltas.keySet()) moveLocked(table, id);
+            byShard(deltas.keySet(), id -> id).forEach((shard, ids) -> {
+                Map<String, Map<String, Long>> part = new HashMap<>();
+                for (String id : ids) part.put(id, deltas.get(id));
+                shard.addToFields(table, part, templateJson);
+            });
+        });
+    }
+
+    @Override
+    public long deleteAll(String table) {
+        return onAll(shard -> shard.deleteAll(table)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public long deleteIds(String table, Collection<String> uniqueIds, LongConsumer progress) {
+        if (rebalancePending) {
+            // every shard may hold a copy
+            return withStripesResult(uniqueIds, () -> sumProgress(progress, (shard, p) -> shard.deleteIds(table, uniqueIds, p)));
+        }
+        Map<DatabaseBackend, List<String>> byShard = byShard(uniqueIds, id -> id);
+        return sumProgress(progress, (shard, p) -> {
+            List<String> ids = byShard.get(shard);
+            return ids == null ? 0 : shard.deleteIds(table, ids, p);
+        });
+    }
+
+    @Override
+    public long deleteWhere(String table, List<FieldCondition> where, LongConsumer progress) {
+        return sumProgress(progress, (shard, p) -> shard.deleteWhere(table, where, p));
+    }
+
+    @Override
+    public int purgeExpired(String table, long maxAgeMillis, int batchSize) {
+        // batchSize per shard: one round removes up to shards * batchSize rows
+        return onAll(shard -> shard.purgeExpired(table, maxAgeMillis, batchSize)).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private interface ShardDelete {
+        long run(DatabaseBackend shard, LongConsumer progress);
+    }
+
+    // runs on all shards in parallel; progress gets the running total over all shards
+    private long sumProgress(LongConsumer progress, ShardDelete delete) {
+        AtomicLongArray done = new AtomicLongArray(shards.size());
+        return onAll(shard -> {
+            int s = shards.indexOf(shard);
+            LongConsumer p = progress == null ? null : n -> {
+                done.set(s, n);
+                long total = 0;
+                for (int i = 0; i < done.length(); i++) total += done.get(i);
+                synchronized (done) {
+                    progress.accept(total);
+                }
+            };
+            return delete.run(shard, p);
+        }).stream().mapToLong(Long::longValue).sum();
+    }
+
+    // ---------------- stripes ----------------
+
+    private void withStripes(Collection<String> ids, Runnable body) {
+        withStripesResult(ids, () -> {
+            body.run();
+            return 0L;
+        });
+    }
+
+    private long withStripesResult(Collection<String> ids, LongSupplier body) {
+        TreeSet<Integer> idx = new TreeSet<>();
+        for (String id : ids) idx.add(id.hashCode() & (STRIPES - 1));
+        return lockStripes(new ArrayList<>(idx), 0, body);
+    }
+
+    // ascending order: no deadlock with other multi-stripe writers
+    private long lockStripes(List<Integer> idx, int i, LongSupplier body) {
+        if (i == idx.size()) return body.getAsLong();
+        synchronized (stripes[idx.get(i)]) {
+            return lockStripes(idx, i + 1, body);
+        }
+    }
+
+    // ---------------- rebalancing ----------------
+
+    // shard -> ids on it that belong to another shard (ids only)
+    public Map<DatabaseBackend, List<String>> misplaced(String table) {
+        List<List<String>> parts = onAll(shard -> {
+            try (Stream<String> ids = shard.ids(table)) {
+                return ids.filter(id -> owner(id) != shard).toList();
+            }
+        });
+        Map<DatabaseBackend, List<String>> out = new LinkedHashMap<>();
+        for (int s = 0; s < shards.size(); s++) {
+            if (!parts.get(s).isEmpty()) out.put(shards.get(s), parts.get(s));
+        }
+        return out;
+    }
+
+    public record MoveResult(long moved, long skipped) {}
+
+    /**
+     * Moves rows from one shard to their owners: copied in one batch per target, then deleted on
+     * {@code from}. A row its owner already has was written since the shards changed and is newer:
+     * the old copy is only deleted.
+     */
+    public MoveResult move(String table, DatabaseBackend from, List<String> ids) {
+        long[] r = new long[2];
+        withStripes(ids, () -> {
+            Map<String, String> rows = from.getMany(table, ids);
+            byShard(new ArrayList<>(rows.keySet()), id -> id).forEach((target, targetIds) -> {
+                if (target == from) return;
+                Set<String> present = target.getMany(table, targetIds).keySet();
+                List<WriteOp> copy = new ArrayList<>();
+                for (String id : targetIds) {
+                    if (present.contains(id)) r[1]++;
+                    else copy.add(new WriteOp(table, id, rows.get(id)));
+                }
+                if (!copy.isEmpty()) target.applyBatch(copy);
+                r[0] += copy.size();
+            });
+            from.deleteIds(table, rows.keySet(), null);
+        });
+        return new MoveResult(r[0], r[1]);
+    }
+
+    // all tables rebalanced without failures: the current shards become the reference
+    public void completeRebalance() {
+        try {
+            Files.write(ringFile, new TreeSet<>(ring.nodes()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard ring file not writable: " + ringFile, e);
+        }
+        rebalancePending = false;
+    }
+
+    // caller holds the id's stripe
+    private void moveLocked(String table, String uniqueId) {
+        DatabaseBackend target = owner(uniqueId);
+        if (target.exists(table, uniqueId)) return;
+        for (DatabaseBackend shard : shards) {
+            if (shard == target) continue;
+            String json = shard.get(table, uniqueId);
+            if (json == null) continue;
+            target.set(table, uniqueId, json);
+            shard.delete(table, uniqueId);
+            return;
+        }
+    }
+
+    // ---------------- lifecycle ----------------
+
+    @Override
+    public void warmup() {
+        onAll(shard -> {
+            shard.warmup();
+            return null;
+        });
+    }
+
+    @Override
+    public void warmupTable(String table) {
+        onAll(shard -> {
+            shard.warmupTable(table);
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        fanOut.shutdown();
+        RuntimeException first = null;
+        for (DatabaseBackend shard : shards) {
+            try {
+                shard.close();
+            } catch (Exception e) {
+                if (first == null) first = new RuntimeException("Closing shard failed", e);
+            }
+        }
+        if (first != null) throw first;
+    }
+}
@@ -0,0 +1,333 @@
+package de.tebrox.vertexCore.database.backend;
+
+import de.tebrox.vertexCore.database.DatabaseBackend;
+import de.tebrox.vertexCore.database.DatabaseMetrics;
+import de.tebrox.vertexCore.database.internal.SnapshotFile;
+import de.tebrox.vertexCore.database.query.FieldCondition;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Serves selected tables from a memory-mapped snapshot written on the previous shutdown.
+ * warmupTable maps the file (reads are served from then on), then reconciles against the
+ * remote: one id/updated_at listing, and only rows changed since the snapshot's high-water
+ * mark are fetched. Writes go to the remote and into an in-memory overlay; close() writes
+ * snapshot + overlay as the next snapshot.
+ * Writes from other servers after the reconcile are not seen: meant for tables owned by one server.
+ */
+public final class SnapshotBackend extends ForwardingDatabaseBackend {
+
+    // overlay markers: deleted, and "changed remotely in an unknown way" (e.g. counter flush) -> ask the remote
+    private static final String DELETED = new String("<deleted>");
+    private static final String UNKNOWN = new String("<unknown>");
+
+    // rows written in the high-water second may not be covered by the snapshot yet
+    private static final long HIGH_WATER_SLACK_MILLIS = 1000;
+    private static final int FETCH_CHUNK = 1000;
+
+    private final File dir;
+    private final Set<String> tables;
+    private final DatabaseMetrics metrics;
+    private final String metricsOwner;
+    private final Logger logger;
+
+    private final Map<String, TableSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    public SnapshotBackend(DatabaseBackend delegate, File dir, Set<String> tables,
+                           DatabaseMetrics metrics, String metricsOwner, Logger logger) {
+        super(delegate);
+        this.dir = dir;
+        this.tables = Set.copyOf(tables);
+        this.metrics = metrics;
+        this.metricsOwner = metricsOwner;
+        this.logger = logger;
+    }
+
+    private static final class TableSnapshot {
+        final SnapshotFile file;
+        final Map<String, String> overlay = new ConcurrentHashMap<>();
+        volatile long highWater;
+
+        TableSnapshot(SnapshotFile file) {
+            this.file = file;
+            this.highWater = file.highWater();
+        }
+
+        String get(String id) {
+            String v = overlay.get(id);
+            if (v == null) return file.get(id);
+            return v == DELETED ? null : v;
+        }
+    }
+
+    private Path path(String table) {
+        return new File(dir, table + ".snap").toPath();
+    }
+
+    @Override
+    public void warmupTable(String table) {
+        super.warmupTable(table);
+        if (!tables.contains(table)) return;
+
+        SnapshotFile file;
+        try {
+            file = SnapshotFile.open(path(table));
+        } catch (IOException e) {
+            logger.warning("[VertexCore] Snapshot of " + table + " unreadable, loading from the backend: " + e.getMessage());
+            return;
+        }
+        if (file == null) return;
+
+        TableSnapshot snap = new TableSnapshot(file);
+        // reads are served from the snapshot right away, the reconcile below fixes what changed
+        snapshots.put(table, snap);
+        try {
+            reconcile(table, snap);
+        } catch (RuntimeException e) {
+            snapshots.remove(table, snap);
+            throw e;
+        }
+    }
+
+    // versions and rows from the primary: a lagging replica would return rows older than the high-water mark
+    private void reconcile(String table, TableSnapshot snap) {
+        DatabaseBackend primary = delegate.primary();
+        Map<String, Long> remote = primary.versions(table);
+        if (remote == null) {
+            // no versions -> can't tell what changed
+            snapshots.remove(table, snap);
+            return;
+        }
+
+        long since = snap.file.highWater() - HIGH_WATER_SLACK_MILLIS;
+        long highWater = snap.file.highWater();
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, Long> e : remote.entrySet()) {
+            highWater = Math.max(highWater, e.getValue());
+            if (e.getValue() >= since || !snap.file.contains(e.getKey())) changed.add(e.getKey());
+        }
+
+        int deleted = 0;
+        for (String id : snap.file.ids()) {
+            if (!remote.containsKey(id) && snap.overlay.putIfAbsent(id, DELETED) == null) deleted++;
+        }
+
+        for (int from = 0; from < changed.size(); from += FETCH_CHUNK) {
+            List<String> chunk = changed.subList(from, Math.min(changed.size(), from + FETCH_CHUNK));
+            Map<String, String> rows = primary.getMany(table, chunk);
+            for (String id : chunk) {
+                String json = rows.get(id);
+                // writes through this backend since startup win
+                snap.overlay.putIfAbsent(id, json == null ? DELETED : json);
+            }
+        }
+        snap.highWater = highWater;
+
+        metrics.set(DatabaseMetrics.key(metricsOwner, table, "snapshot.rows"), snap.file.size());
+        metrics.set(DatabaseMetrics.key(metricsOwner, table, "snapshot.reconciled"), changed.size() + deleted);
+    }
+
+    // ---------------- reads ----------------
+
+    @Override
+    public String get(String table, String uniqueId) {
+        TableSnapshot snap = snapshots.get(table);
+        if (snap == null) return super.get(table, uniqueId);
+
+        String v = snap.overlay.get(uniqueId);
+        if (v == UNKNOWN) {
+            String json = super.get(table, uniqueId);
+            snap.overlay.replace(uniqueId, UNKNOWN, json == null ? DELETED : json);
+            return json;
+        }
+        return snap.get(uniqueId);
+    }
+
+    @Override
+    public boolean exists(String table, String uniqueId) {
+        if (!snapshots.containsKey(table)) return super.exists(table, uniqueId);
+        return get(table, uniqueId) != null;
+    }
+
+    @Override
+    public Map<String, String> getMany(String table, Collection<String> uniqueIds) {
+        if (!snapshots.containsKey(table)) return super.getMany(table, uniqueIds);
+
+        Map<String, String> out = new HashMap<>();
+        for (String id : uniqueIds) {
+            String json = get(table, id);
+            if (json != null) out.put(id, json);
+        }
+        return out;
+    }
+
+    @Override
+    public long count(String table) {
+        if (!snapshots.containsKey(table)) return super.count(table);
+        try (Stream<String> ids = ids(table)) {
+            return ids.count();
+        }
+    }
+
+    @Override
+    public Stream<String> ids(String table) {
+        TableSnapshot snap = snapshots.get(table);
+        if (snap == null) return super.ids(table);
+
+        List<String> changed = new ArrayList<>();
+        snap.overlay.forEach((id, v) -> {
+            if (v != DELETED) changed.add(id);
+        });
+        return Stream.concat(snap.file.ids().stream().filter(id -> !snap.overlay.containsKey(id)), changed.stream());
+    }
+
+    @Override
+    public List<String[]> loadAllRaw(String table) {
+        if (!snapshots.containsKey(table)) return super.loadAllRaw(table);
+
+        List<String[]> out = new ArrayList<>();
+        forEachRaw(table, (id, json) -> out.add(new String[]{ id, json }));
+        return out;
+    }
+
+    @Override
+    public void forEachRaw(String table, BiConsumer<String, String> consumer) {
+        TableSnapshot snap = snapshots.get(table);
+        if (snap == null) {
+            super.forEachRaw(table, consumer);
+            return;
+        }
+
+        snap.file.forEach((id, json) -> {
+            if (!snap.overlay.containsKey(id)) consumer.accept(id, json);
+        });
+        for (String id : new ArrayList<>(snap.overlay.keySet())) {
+            String json = get(table, id);
+            if (json != null) consumer.accept(id, json);
+        }
+    }
+
+    // ---------------- writes ----------------
+
+    @Override
+    public void set(String table, String uniqueId, String json) {
+        super.set(table, uniqueId, json);
+        TableSnapshot snap = snapshots.get(table);
+        if (snap != null) snap.overlay.put(uniqueId, json);
+    }
+
+    @Override
+    public void delete(String table, String uniqueId) {
+        super.delete(table, uniqueId);
+        TableSnapshot snap = snapshots.get(table);
+        if (snap != null) snap.overlay.put(uniqueId, DELETED);
+    }
+
+    @Override
+    public long deleteAll(String table) {
+        long deleted = super.deleteAll(table);
+        snapshots.remove(table);
+        return deleted;
+    }
+
+    @Override
+    public long deleteIds(String table, Collection<String> uniqueIds, LongConsumer progress) {
+        long deleted = super.deleteIds(table, uniqueIds, progress);
+        TableSnapshot snap = snapshots.get(table);
+        if (snap != null) uniqueIds.forEach(id -> snap.overlay.put(id, DELETED));
+        return deleted;
+    }
+
+    // the deleted ids are unknown here -> back to the remote until the next snapshot
+    @Override
+    public long deleteWhere(String table, List<FieldCondition> where, LongConsumer progress) {
+        long deleted = super.deleteWhere(table, where, progress);
+        if (deleted > 0) snapshots.remove(table);
+        return deleted;
+    }
+
+    @Override
+    public void applyBatch(List<WriteOp> ops) {
+        super.applyBatch(ops);
+        for (WriteOp op : ops) {
+            TableSnapshot snap = snapshots.get(op.table());
+            if (snap != null) snap.overlay.put(op.uniqueId(), op.isDelete() ? DELETED : op.json());
+        }
+    }
+
+    @Override
+    public void addToFields(String table, Map<String, Map<String, Long>> deltas, String templateJson) {
+        super.addToFields(table, deltas, templateJson);
+        TableSnapshot snap = snapshots.get(table);
+        if (snap != null) deltas.keySet().forEach(id -> snap.overlay.put(id, UNKNOWN));
+    }
+
+    @Override
+    public int purgeExpired(String table, long maxAgeMillis, int batchSize) {
+        int purged = super.purgeExpired(table, maxAgeMillis, batchSize);
+        // purged ids are unknown here -> stop serving this table from the snapshot
+        if (purged > 0) snapshots.remove(table);
+        return purged;
+    }
+
+    // ---------------- shutdown ----------------
+
+    @Override
+    public void close() {
+        try {
+            for (String table : tables) {
+                try {
+                    writeSnapshot(table);
+                } catch (Exception e) {
+                    logger.warning("[VertexCore] Snapshot of " + table + " not written: " + e.getMessage());
+                }
+            }
+        } finally {
+            super.close();
+        }
+    }
+
+    private void writeSnapshot(String table) throws IOException {
+        TableSnapshot snap = snapshots.get(table);
+        if (snap == null) {
+            // first run (or snapshot dropped): one full scan, the high-water mark is taken before it.
+            // Both from the primary, so no row can be older than the mark
+            DatabaseBackend primary = delegate.primary();
+            Map<String, Long> versions = primary.versions(table);
+            if (versions == null) return;
+            long highWater = versions.values().stream().mapToLong(Long::longValue).max().orElse(0);
+
+            try (SnapshotFile.Writer w = SnapshotFile.writer(path(table), highWater)) {
+                primary.forEachRaw(table, (id, json) -> write(w, id, json));
+                w.commit();
+            }
+            return;
+        }
+
+        try (SnapshotFile.Writer w = SnapshotFile.writer(path(table), snap.highWater)) {
+            forEachRaw(table, (id, json) -> write(w, id, json));
+            w.commit();
+        }
+    }
+
+    private static void write(SnapshotFile.Writer w, String id, String json) {
+        try {
+            w.write(id, json);
+        } catch (IOException e) {
+            throw new RuntimeException("Snapshot write failed", e);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package de.tebrox.vertexCore.database.backend;
+
+import com.zaxxer.hikari.HikariDataSource;
+import de.tebrox.vertexCore.database.DatabaseBackend;
+import de.tebrox.vertexCore.database.DatabaseMetrics;
+import de.tebrox.vertexCore.database.query.FieldCondition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Local persistent copy of remote rows (embedded H2) in front of a remote backend.
+ * A cached row is served without any remote call for freshMillis after its last validation;
+ * after that one cheap version lookup (updated_at) decides between the local copy and a re-read.
+ * Writes go to the remote first and drop the local copy. warmupTable validates the whole
+ * local copy against the remote versions in one query, so restarts begin warm.
+ */
+public final class TieredCacheBackend extends ForwardingDatabaseBackend {
+
+    private final LocalCacheStore local;
+    private final Set<String> tables;
+    private final long freshMillis;
+    private final DatabaseMetrics metrics;
+    private final String metricsOwner;
+
+    // "table|id" -> local time of the last successful validation against the remote
+    private final Map<String, Long> validatedAt = new ConcurrentHashMap<>();
+    // "table|id" -> write count; a read only caches what it fetched if no write happened meanwhile
+    private final Map<String, Long> writes = new ConcurrentHashMap<>();
+
+    public TieredCacheBackend(DatabaseBackend remote, HikariDataSource localDataSource, Set<String> tables,
+                              long freshMillis, DatabaseMetrics metrics, String metricsOwner) {
+        super(remote);
+        this.local = new LocalCacheStore(localDataSource);
+        this.tables = Set.copyOf(tables);
+        this.freshMillis = Math.max(0, freshMillis);
+        this.metrics = metrics;
+        this.metricsOwner = metricsOwner;
+    }
+
+    @Override
+    public String get(String table, String uniqueId) {
+        if (!tables.contains(table)) return super.get(table, uniqueId);
+
+        String key = key(table, uniqueId);
+        Versioned cached = local.get(table, uniqueId);
+        if (cached != null && cached.settled() && cached.version() > 0) {
+            Long checked = validatedAt.get(key);
+            if (checked != null && System.currentTimeMillis() - checked <= freshMillis) {
+                count(table, "l2.hit");
+                return cached.json();
+            }
+
+            long remoteVersion = delegate.version(table, uniqueId);
+            if (remoteVersion == cached.version()) {
+                validatedAt.put(key, System.currentTimeMillis());
+                count(table, "l2.validated");
+                return cached.json();
+            }
+        }
+
+        count(table, "l2.miss");
+        long writesBefore = writes.getOrDefault(key, 0L);
+        Versioned fresh = delegate.getVersioned(table, uniqueId);
+
+        if (fresh == null || !fresh.settled()) {
+            if (cached != null) local.remove(table, uniqueId);
+            validatedAt.remove(key);
+        } else if (writes.getOrDefault(key, 0L) == writesBefore) {
+            local.put(table, uniqueId, fresh);
+            validatedAt.put(key, System.currentTimeMillis());
+        }
+        return fresh == null ? null : fresh.json();
+    }
+
+    // locally fresh rows from the copy, everything else in one remote call (not cached)
+    @Override
+    public Map<String, String> getMany(String table, Collection<String> uniqueIds) {
+        if (!tables.contains(table)) return super.getMany(table, uniqueIds);
+
+        Map<String, String> out = new HashMap<>();
+        List<String> remote = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (String id : uniqueIds) {
+            Long checked = validatedAt.get(key(table, id));
+            Versioned cached = checked != null && now - checked <= freshMillis ? local.get(table, id) : null;
+            if (cached != null) {
+                out.put(id, cached.json());
+                count(table, "l2.hit");
+            } else {
+                remote.add(id);
+            }
+        }
+        if (!remote.isEmpty()) out.putAll(super.getMany(table, remote));
+        return out;
+    }
+
+    @Override
+    public boolean exists(String table, String uniqueId) {
+        if (tables.contains(table)) {
+            Long checked = validatedAt.get(key(table, uniqueId));
+            if (checked != null && System.currentTimeMillis() - checked <= freshMillis) {
+                count(table, "l2.hit");
+                return true;
+            }
+        }
+        return super.exists(table, uniqueId);
+    }
+
+    @Override
+    public void set(String table, String uniqueId, String json) {
+        super.set(table, uniqueId, json);
+        invalidate(table, uniqueId);
+    }
+
+    @Override
+    public void delete(String table, String uniqueId) {
+        super.delete(table, uniqueId);
+        invalidate(table, uniqueId);
+    }
+
+    @Override
+    public void addToFields(String table, Map<String, Map<String, Long>> deltas, String templateJson) {
+        super.addToFields(table, deltas, templateJson);
+        deltas.keySet().forEach(id -> invalidate(table, id));
+    }
+
+    @Override
+    public void applyBatch(List<WriteOp> ops) {
+        super.applyBatch(ops);
+        for (WriteOp op : ops) invalidate(op.table(), op.uniqueId());
+    }
+
+    @Override
+    public long deleteAll(String table) {
+        long deleted = super.deleteAll(table);
+        clearTable(table);
+        return deleted;
+    }
+
+    @Override
+    public long deleteIds(String table, Collection<String> uniqueIds, LongConsumer progress) {
+        long deleted = super.deleteIds(table, uniqueIds, progress);
+        uniqueIds.forEach(id -> invalidate(table, id));
+        return deleted;
+    }
+
+    // the deleted ids are unknown here
+    @Override
+    public long deleteWhere(String table, List<FieldCondition> where, LongConsumer progress) {
+        long deleted = super.deleteWhere(table, where, progress);
+        if (deleted > 0) clearTable(table);
+        return deleted;
+    }
+
+    private void clearTable(String table) {
+        if (!tables.contains(table)) return;
+        String prefix = table + "|";
+        writes.replaceAll((k, v) -> k.startsWith(prefix) ? v + 1 : v);
+        validatedAt.keySet().removeIf(k -> k.startsWith(prefix));
+        local.clear(table);
+    }
+
+    // remote version is unknown after a write -> drop the copy, the next read caches the new row
+    private void invalidate(String table, String uniqueId) {
+        if (!tables.contains(table)) return;
+        String key = key(table, uniqueId);
+        writes.merge(key, 1L, Long::sum);
+        validatedAt.remove(key);
+        local.remove(table, uniqueId);
+    }
+
+    @Override
+    public void warmupTable(String table) {
+        super.warmupTable(table);
+        if (!tables.contains(table)) return;
+
+        Map<String, Long> remote = delegate.versions(table);
+        if (remote == null) {
+            local.clear(table);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        List<String> stale = new ArrayList<>();
+        long[] warm = new long[1];
+        local.settledVersions(table).forEach((id, version) -> {
+            if (version.equals(remote.get(id))) {
+                validatedAt.putIfAbsent(key(table, id), now);
+                warm[0]++;
+            } else {
+                stale.add(id);
+            }
+        });
+        local.removeAll(table, stale);
+
+        metrics.set(DatabaseMetrics.key(metricsOwner, table, "l2.warm"), warm[0]);
+    }
+
+    private void count(String table, String metric) {
+        metrics.increment(DatabaseMetrics.key(metricsOwner, table, metric));
+    }
+
+    private static String key(String table, String uniqueId) {
+        return table + "|" + uniqueId;
+    }
+
+    @Override
+    public void close() {
+        try {
+            super.close();
+        } finally {
+            local.close();
+        }
+    }
+}
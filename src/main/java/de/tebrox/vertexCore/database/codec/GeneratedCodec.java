@@ -0,0 +1,27 @@
+package de.tebrox.vertexCore.database.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Compile-time generated codec for the {@code @DbExpose} fields of one data class.
+ * Implementations are generated by {@code CodecProcessor} and discovered by {@code JsonCodec} via ServiceLoader.
+ * The surrounding object (begin/end, schema version) is handled by JsonCodec.
+ */
+public interface GeneratedCodec<T> {
+
+    Class<T> type();
+
+    // called once before first use; resolves adapters for non-primitive field types
+    default void bind(Gson gson) {}
+
+    T newInstance();
+
+    void writeFields(T obj, JsonWriter out) throws IOException;
+
+    // false = not an exposed field, the caller skips the value
+    boolean readField(T obj, String name, JsonReader in) throws IOException;
+}
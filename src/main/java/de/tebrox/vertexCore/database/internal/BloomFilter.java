@@ -0,0 +1,86 @@
+package de.tebrox.vertexCore.database.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over string ids (Kirsch-Mitzenmacher double hashing).
+ * {@link #mightContain} never returns false for an id that was {@link #put}.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    private BloomFilter(long bits, int hashes) {
+        this.bits = bits;
+        this.hashes = hashes;
+        this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+    }
+
+    // sized for expectedInsertions at falsePositiveRate, but never above maxBytes
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate, long maxBytes) {
+        long n = Math.max(1, expectedInsertions);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+
+        long wanted = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        long cap = Math.max(64, Math.min(maxBytes * 8, (long) Integer.MAX_VALUE * 64));
+        long bits = Math.max(64, Math.min(wanted, cap));
+
+        int k = (int) Math.max(1, Math.min(16, Math.round((double) bits / n * Math.log(2))));
+        return new BloomFilter(bits, k);
+    }
+
+    public void put(String id) {
+        long h1 = hash(id);
+        long h2 = fmix(h1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 1; i <= hashes; i++) {
+            long bit = index(h1, h2, i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+
+            long cur;
+            do {
+                cur = words.get(word);
+                if ((cur & mask) != 0) break;
+            } while (!words.compareAndSet(word, cur, cur | mask));
+        }
+    }
+
+    public boolean mightContain(String id) {
+        long h1 = hash(id);
+        long h2 = fmix(h1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 1; i <= hashes; i++) {
+            long bit = index(h1, h2, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public long sizeInBytes() {
+        return (long) words.length() * 8;
+    }
+
+    private long index(long h1, long h2, int i) {
+        return ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+    }
+
+    // 64-bit FNV-1a + murmur finalizer
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return fmix(h);
+    }
+
+    private static long fmix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,249 @@
+package de.tebrox.vertexCore.database.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates numeric field deltas per (id, field) until they are written.
+ * Ids are spread over independently locked stripes (plain synchronized maps of long[] cells, not
+ * LongAdders: a cell also has to remember how much of it was written), so concurrent increments
+ * rarely contend.
+ *
+ * Every cell counts all deltas ever added and how many of those were consumed, i.e. written to the
+ * row. A {@link Mark} is a position in those counts. A flush drains up to a mark and commits it once
+ * the write succeeded; a failed write leaves the buffer as it was. A loaded object holds the mark of
+ * its load ({@link #absorb}): the cells stay alive while it does, so a save can tell which deltas
+ * were written after the load ({@link #writtenSince}) even if flushes ran in between.
+ */
+public final class CounterBuffer {
+
+    // sum and number of all deltas ever added, sum and number consumed, live absorb marks on the cell
+    private static final int SUM = 0, COUNT = 1, CONSUMED_SUM = 2, CONSUMED_COUNT = 3, REFS = 4;
+
+    /** A position in the cells of one id, and the deltas that were pending there. */
+    public static final class Mark {
+        private final String uniqueId;
+        private final Map<String, Long> deltas = new HashMap<>(4);
+        private final Map<String, long[]> cells = new HashMap<>(4);
+        // field -> {SUM, COUNT} of the cell when marked
+        private final Map<String, long[]> ends = new HashMap<>(4);
+
+        private Mark(String uniqueId) {
+            this.uniqueId = uniqueId;
+        }
+
+        public String uniqueId() {
+            return uniqueId;
+        }
+
+        // field -> delta that was pending when marked
+        public Map<String, Long> deltas() {
+            return deltas;
+        }
+    }
+
+    /** Deltas taken by a flush: id -> (field -> delta) for the backend, and the marks to commit after writing them. */
+    public record Drain(Map<String, Map<String, Long>> deltas, List<Mark> marks) {
+        public boolean isEmpty() {
+            return deltas.isEmpty();
+        }
+    }
+
+    private final Stripe[] stripes;
+
+    public CounterBuffer() {
+        int n = Integer.highestOneBit(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) stripes[i] = new Stripe();
+    }
+
+    public void add(String uniqueId, String field, long delta) {
+        if (delta == 0) return;
+        Stripe s = stripe(uniqueId);
+        synchronized (s) {
+            long[] cell = s.deltas.computeIfAbsent(uniqueId, k -> new HashMap<>(4))
+                    .computeIfAbsent(field, k -> new long[5]);
+            cell[SUM] += delta;
+            cell[COUNT]++;
+        }
+    }
+
+    public long pending(String uniqueId, String field) {
+        Stripe s = stripe(uniqueId);
+        synchronized (s) {
+            Map<String, long[]> fields = s.deltas.get(uniqueId);
+            if (fields == null) return 0;
+            long[] cell = fields.get(field);
+            return cell == null ? 0 : pending(cell);
+        }
+    }
+
+    public Map<String, Long> pending(String uniqueId) {
+        Stripe s = stripe(uniqueId);
+        synchronized (s) {
+            Map<String, long[]> fields = s.deltas.get(uniqueId);
+            if (fields == null) return Map.of();
+            Map<String, Long> out = new HashMap<>(fields.size());
+            fields.forEach((k, cell) -> {
+                if (pending(cell) != 0) out.put(k, pending(cell));
+            });
+            return out;
+        }
+    }
+
+    /**
+     * Mark for an object loaded now: it contains everything added so far. Covers the existing cells of
+     * uniqueId plus counterFields (cells are created for them), and keeps them alive until {@link #release}.
+     * Null if there is nothing to cover.
+     */
+    public Mark absorb(String uniqueId, Collection<String> counterFields) {
+        Stripe s = stripe(uniqueId);
+        synchronized (s) {
+            Map<String, long[]> fields = s.deltas.get(uniqueId);
+            if (fields == null) {
+                if (counterFields.isEmpty()) return null;
+                fields = new HashMap<>(4);
+                s.deltas.put(uniqueId, fields);
+            }
+            for (String f : counterFields) fields.computeIfAbsent(f, k -> new long[5]);
+
+            Mark mark = new Mark(uniqueId);
+            fields.forEach((field, cell) -> {
+                if (pending(cell) != 0) mark.deltas.put(field, pending(cell));
+                mark.cells.put(field, cell);
+                mark.ends.put(field, new long[]{cell[SUM], cell[COUNT]});
+                cell[REFS]++;
+            });
+            return mark;
+        }
+    }
+
+    // the absorbing object is gone: its cells may be dropped once nothing is pending on them
+    public void release(Mark mark) {
+        Stripe s = stripe(mark.uniqueId);
+        synchronized (s) {
+            mark.cells.values().forEach(cell -> cell[REFS]--);
+            Map<String, long[]> fields = s.deltas.get(mark.uniqueId);
+            if (fields == null) return;
+            mark.cells.forEach((field, cell) -> {
+                if (fields.get(field) == cell) removeIfDone(fields, field, cell);
+            });
+            if (fields.isEmpty()) s.deltas.remove(mark.uniqueId);
+        }
+    }
+
+    // field -> sum of the deltas added after mark that were written since (by a flush or another save)
+    public Map<String, Long> writtenSince(Mark mark) {
+        Stripe s = stripe(mark.uniqueId);
+        synchronized (s) {
+            Map<String, long[]> fields = s.deltas.get(mark.uniqueId);
+            if (fields == null) return Map.of();
+            Map<String, Long> out = new HashMap<>(4);
+            mark.cells.forEach((field, cell) -> {
+                long[] end = mark.ends.get(field);
+                if (fields.get(field) != cell || cell[CONSUMED_COUNT] <= end[COUNT]) return;
+                long written = cell[CONSUMED_SUM] - end[SUM];
+                if (written != 0) out.put(field, written);
+            });
+            return out;
+        }
+    }
+
+    // removes the deltas up to mark; cells replaced since (discard, clear) are left alone
+    public void consume(Mark mark) {
+        Stripe s = stripe(mark.uniqueId);
+        synchronized (s) {
+            Map<String, long[]> fields = s.deltas.get(mark.uniqueId);
+            if (fields == null) return;
+            mark.cells.forEach((field, cell) -> {
+                if (fields.get(field) != cell) return;
+                long[] end = mark.ends.get(field);
+                // an older mark than the last consumed one has nothing left
+                if (end[COUNT] <= cell[CONSUMED_COUNT]) return;
+                cell[CONSUMED_SUM] = end[SUM];
+                cell[CONSUMED_COUNT] = end[COUNT];
+                removeIfDone(fields, field, cell);
+            });
+            if (fields.isEmpty()) s.deltas.remove(mark.uniqueId);
+        }
+    }
+
+    public void discard(String uniqueId) {
+        Stripe s = stripe(uniqueId);
+        synchronized (s) {
+            s.deltas.remove(uniqueId);
+        }
+    }
+
+    public void clear() {
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                s.deltas = new HashMap<>();
+            }
+        }
+    }
+
+    // true if no delta is waiting to be written
+    public boolean isEmpty() {
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                for (Map<String, long[]> fields : s.deltas.values()) {
+                    for (long[] cell : fields.values()) {
+                        if (cell[COUNT] != cell[CONSUMED_COUNT]) return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // everything pending right now; the buffer keeps it until the drain is committed
+    public Drain drain() {
+        Map<String, Map<String, Long>> out = new HashMap<>();
+        List<Mark> marks = new ArrayList<>();
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                s.deltas.forEach((id, fields) -> {
+                    Mark mark = new Mark(id);
+                    // cells whose deltas cancelled out are marked too, so committing removes them
+                    fields.forEach((field, cell) -> {
+                        if (cell[COUNT] == cell[CONSUMED_COUNT]) return;
+                        if (pending(cell) != 0) mark.deltas.put(field, pending(cell));
+                        mark.cells.put(field, cell);
+                        mark.ends.put(field, new long[]{cell[SUM], cell[COUNT]});
+                    });
+                    if (mark.cells.isEmpty()) return;
+                    marks.add(mark);
+                    if (!mark.deltas.isEmpty()) out.put(id, mark.deltas);
+                });
+            }
+        }
+        return new Drain(out, marks);
+    }
+
+    // the drained deltas were written
+    public void commit(Drain drain) {
+        drain.marks().forEach(this::consume);
+    }
+
+    // caller holds the stripe lock
+    private static void removeIfDone(Map<String, long[]> fields, String field, long[] cell) {
+        if (cell[CONSUMED_COUNT] == cell[COUNT] && cell[REFS] <= 0) fields.remove(field);
+    }
+
+    private static long pending(long[] cell) {
+        return cell[SUM] - cell[CONSUMED_SUM];
+    }
+
+    private Stripe stripe(String uniqueId) {
+        int h = uniqueId.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static final class Stripe {
+        Map<String, Map<String, long[]>> deltas = new HashMap<>();
+    }
+}
@@ -0,0 +1,80 @@
+package de.tebrox.vertexCore.database.internal;
+
+import de.tebrox.vertexCore.database.annotation.DbExpose;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class ExposedFields {
+    private ExposedFields() {}
+
+    private static final Set<Class<?>> NUMERIC = Set.of(
+            byte.class, short.class, int.class, long.class, float.class, double.class,
+            Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class
+    );
+
+    private static final Set<Class<?>> INTEGRAL = Set.of(
+            byte.class, short.class, int.class, long.class,
+            Byte.class, Short.class, Integer.class, Long.class
+    );
+
+    private static final Map<Class<?>, Map<String, Field>> CACHE = new ConcurrentHashMap<>();
+
+    // same rules as JsonCodec: declared, non-static, @DbExpose
+    public static Map<String, Field> of(Class<?> type) {
+        return CACHE.computeIfAbsent(type, t -> {
+            Map<String, Field> out = new LinkedHashMap<>();
+            for (Field f : t.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers())) continue;
+                if (!f.isAnnotationPresent(DbExpose.class)) continue;
+                f.setAccessible(true);
+                out.put(f.getName(), f);
+            }
+            return Collections.unmodifiableMap(out);
+        });
+    }
+
+    public static Field require(Class<?> type, String name) {
+        Field f = of(type).get(name);
+        if (f == null) {
+            throw new IllegalArgumentException("No @DbExpose field '" + name + "' in " + type.getName());
+        }
+        return f;
+    }
+
+    public static Field requireNumeric(Class<?> type, String name) {
+        Field f = require(type, name);
+        if (!NUMERIC.contains(f.getType())) {
+            throw new IllegalArgumentException("Field '" + name + "' in " + type.getName() + " is not numeric");
+        }
+        return f;
+    }
+
+    public static Field requireIntegral(Class<?> type, String name) {
+        Field f = require(type, name);
+        if (!INTEGRAL.contains(f.getType())) {
+            throw new IllegalArgumentException("Field '" + name + "' in " + type.getName() + " is not an integral number");
+        }
+        return f;
+    }
+
+    // adds delta to an integral field, null counts as 0
+    public static void addTo(Object obj, Field f, long delta) {
+        try {
+            Object cur = f.get(obj);
+            long v = (cur == null ? 0 : ((Number) cur).longValue()) + delta;
+            Class<?> t = f.getType();
+            if (t == long.class || t == Long.class) f.set(obj, v);
+            else if (t == int.class || t == Integer.class) f.set(obj, (int) v);
+            else if (t == short.class || t == Short.class) f.set(obj, (short) v);
+            else f.set(obj, (byte) v);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Failed to update field " + f.getName(), e);
+        }
+    }
+}
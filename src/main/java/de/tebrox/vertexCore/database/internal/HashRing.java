@@ -0,0 +1,74 @@
+package de.tebrox.vertexCore.database.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent hashing of ids onto named nodes. Every node gets virtualNodes points on a 64-bit
+ * ring; an id belongs to the first point at or after its hash. Points depend only on the node
+ * name, so adding a node moves about 1/N of the ids (all onto the new node) and nothing else.
+ */
+public final class HashRing {
+
+    private final List<String> nodes;
+    // sorted ring points and the node index of each
+    private final long[] points;
+    private final int[] owners;
+
+    public HashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) throw new IllegalArgumentException("Hash ring needs at least one node");
+        this.nodes = List.copyOf(nodes);
+
+        int vn = Math.max(1, virtualNodes);
+        long[] raw = new long[nodes.size() * vn];
+        for (int n = 0; n < nodes.size(); n++) {
+            for (int v = 0; v < vn; v++) {
+                raw[n * vn + v] = hash(nodes.get(n) + "#" + v);
+            }
+        }
+        // equal hashes (practically never) are ordered by position, so the ring stays deterministic
+        Integer[] idx = new Integer[raw.length];
+        for (int i = 0; i < idx.length; i++) idx[i] = i;
+        Arrays.sort(idx, (a, b) -> raw[a] != raw[b] ? Long.compareUnsigned(raw[a], raw[b]) : Integer.compare(a, b));
+
+        this.points = new long[raw.length];
+        this.owners = new int[raw.length];
+        for (int i = 0; i < idx.length; i++) {
+            points[i] = raw[idx[i]];
+            owners[i] = idx[i] / vn;
+        }
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    // index into nodes()
+    public int nodeOf(String id) {
+        long h = hash(id);
+        // first point >= h (unsigned), wrapping around to the start
+        int lo = 0, hi = points.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(points[mid], h) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return owners[lo == points.length ? 0 : lo];
+    }
+
+    // FNV-1a 64 + splitmix finalizer (FNV alone clusters on short, similar ids)
+    static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 27;
+        h *= 0x94d049bb133111ebL;
+        h ^= h >>> 31;
+        return h;
+    }
+}
@@ -0,0 +1,100 @@
+package de.tebrox.vertexCore.database.internal;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.tebrox.vertexCore.database.query.AggregateFunction;
+import de.tebrox.vertexCore.database.query.AggregateQuery;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * In-memory reduction of raw json payloads for backends that can't push aggregates down.
+ * Safe for parallel streams: every worker reduces into its own map, maps get merged at the end.
+ */
+public final class JsonAggregator {
+    private JsonAggregator() {}
+
+    // ungrouped queries yield a single entry under the null key
+    public static Map<String, Double> aggregate(Stream<String> payloads, AggregateQuery query) {
+        Map<String, Acc> groups = payloads.collect(
+                HashMap::new,
+                (m, json) -> accumulate(m, json, query),
+                (a, b) -> b.forEach((k, v) -> a.merge(k, v, Acc::merge))
+        );
+        if (!query.grouped() && groups.isEmpty()) groups.put(null, new Acc());
+
+        Map<String, Double> out = new HashMap<>();
+        groups.forEach((k, acc) -> {
+            Double v = acc.result(query.function());
+            if (v != null) out.put(k, v);
+        });
+        return out;
+    }
+
+    private static void accumulate(Map<String, Acc> groups, String json, AggregateQuery query) {
+        JsonObject obj = JsonParser.parseString(json).getAsJsonObject();
+
+        String key = query.grouped() ? asKey(obj.get(query.groupBy())) : null;
+        Acc acc = groups.computeIfAbsent(key, k -> new Acc());
+
+        if (query.field() == null) {
+            acc.count++;
+            return;
+        }
+
+        JsonElement el = obj.get(query.field());
+        if (el == null || el.isJsonNull()) return;
+
+        if (query.function() == AggregateFunction.COUNT) {
+            acc.count++;
+            return;
+        }
+
+        if (!el.isJsonPrimitive()) return;
+        try {
+            acc.add(el.getAsDouble());
+        } catch (NumberFormatException ignored) {
+            // non numeric value -> behaves like SQL NULL
+        }
+    }
+
+    private static String asKey(JsonElement el) {
+        if (el == null || el.isJsonNull()) return null;
+        return el.isJsonPrimitive() ? el.getAsString() : el.toString();
+    }
+
+    private static final class Acc {
+        long count;
+        double sum;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        void add(double v) {
+            count++;
+            sum += v;
+            if (v < min) min = v;
+            if (v > max) max = v;
+        }
+
+        Acc merge(Acc o) {
+            count += o.count;
+            sum += o.sum;
+            min = Math.min(min, o.min);
+            max = Math.max(max, o.max);
+            return this;
+        }
+
+        Double result(AggregateFunction fn) {
+            return switch (fn) {
+                case COUNT -> (double) count;
+                case SUM -> count == 0 ? null : sum;
+                case MIN -> count == 0 ? null : min;
+                case MAX -> count == 0 ? null : max;
+                case AVG -> count == 0 ? null : sum / count;
+            };
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.tebrox.vertexCore.database.internal;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public final class JsonFields {
+    private JsonFields() {}
+
+    private static final Pattern FIELD_NAME = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    // field names are inlined into SQL JSON paths -> plain java identifiers only
+    public static String requireFieldName(String name) {
+        if (name == null || !FIELD_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid field name: " + name);
+        }
+        return name;
+    }
+
+    // adds the deltas to numeric top level fields (missing/null counts as 0)
+    public static String applyDeltas(String json, Map<String, Long> deltas) {
+        JsonObject obj = json == null ? new JsonObject() : JsonParser.parseString(json).getAsJsonObject();
+        deltas.forEach((field, delta) -> {
+            JsonElement cur = obj.get(field);
+            long base = cur == null || cur.isJsonNull() ? 0 : cur.getAsLong();
+            obj.addProperty(field, base + delta);
+        });
+        return obj.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package de.tebrox.vertexCore.database.internal;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import de.tebrox.vertexCore.database.query.FieldCondition;
+
+import java.util.List;
+
+// in-memory evaluation of FieldConditions for backends that can't push them down (same rules as the SQL)
+public final class JsonFilter {
+    private JsonFilter() {}
+
+    public static boolean matches(String json, List<FieldCondition> where) {
+        JsonObject obj = JsonParser.parseString(json).getAsJsonObject();
+        for (FieldCondition c : where) {
+            if (!matches(obj.get(c.field()), c)) return false;
+        }
+        return true;
+    }
+
+    private static boolean matches(JsonElement el, FieldCondition c) {
+        if (el == null || !el.isJsonPrimitive()) return false;
+        JsonPrimitive p = el.getAsJsonPrimitive();
+
+        int cmp;
+        if (c.value() instanceof Number n) {
+            if (!p.isNumber()) return false;
+            cmp = Double.compare(p.getAsDouble(), n.doubleValue());
+        } else if (c.value() instanceof Boolean b) {
+            if (!p.isBoolean()) return false;
+            cmp = Boolean.compare(p.getAsBoolean(), b);
+        } else {
+            if (!p.isString()) return false;
+            cmp = p.getAsString().compareTo((String) c.value());
+        }
+
+        return switch (c.op()) {
+            case EQ -> cmp == 0;
+            case NE -> cmp != 0;
+            case LT -> cmp < 0;
+            case LE -> cmp <= 0;
+            case GT -> cmp > 0;
+            case GE -> cmp >= 0;
+        };
+    }
+}
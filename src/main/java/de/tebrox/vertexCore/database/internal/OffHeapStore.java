@@ -0,0 +1,284 @@
+package de.tebrox.vertexCore.database.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * String -> String cache outside the Java heap. Entries are appended to fixed-size direct
+ * ByteBuffer slabs ([keyLen, valueLen, expiresAt, key, value], UTF-8); the only on-heap state is
+ * an open-addressing long -> long index (64-bit key hash -> slab/offset), 16 bytes per entry.
+ * Overwritten entries stay in their slab until it is evicted. Over budget, the oldest slab is
+ * dropped as a whole and its buffer is reused, so direct memory is allocated only once.
+ */
+public final class OffHeapStore {
+
+    private static final int HEADER = 4 + 4 + 8;
+
+    private final int slabBytes;
+    private final int maxSlabs;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // oldest first; slab i of the deque has the id firstSlabId + i
+    private final ArrayDeque<ByteBuffer> slabs = new ArrayDeque<>();
+    private long firstSlabId;
+    private int writePos;
+
+    // index: hash -> (slabId << 32 | offset); 0 marks an empty slot
+    private long[] keys = new long[1024];
+    private long[] locs = new long[1024];
+    private int size;
+
+    private long evictedEntries;
+
+    public OffHeapStore(long budgetBytes, int slabBytes) {
+        this.slabBytes = slabBytes;
+        this.maxSlabs = (int) Math.max(2, budgetBytes / slabBytes);
+    }
+
+    public String get(String key) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        long h = hash(k);
+        lock.readLock().lock();
+        try {
+            int slot = find(h);
+            if (slot < 0) return null;
+
+            long loc = locs[slot];
+            ByteBuffer slab = slab(loc >>> 32);
+            int at = (int) loc;
+            int keyLen = slab.getInt(at);
+            int valueLen = slab.getInt(at + 4);
+            long expiresAt = slab.getLong(at + 8);
+            if (expiresAt > 0 && System.currentTimeMillis() > expiresAt) return null;
+            if (keyLen != k.length || !sameKey(slab, at + HEADER, k)) return null;
+
+            byte[] v = new byte[valueLen];
+            slab.get(at + HEADER + keyLen, v);
+            return new String(v, StandardCharsets.UTF_8);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // expiresAt: epoch millis, 0 = until evicted. Entries larger than a slab are not stored.
+    public void put(String key, String value, long expiresAt) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        byte[] v = value.getBytes(StandardCharsets.UTF_8);
+        int len = HEADER + k.length + v.length;
+        long h = hash(k);
+
+        lock.writeLock().lock();
+        try {
+            if (len > slabBytes) {
+                removeLocked(h);
+                return;
+            }
+            if (slabs.isEmpty() || writePos + len > slabBytes) nextSlab();
+
+            ByteBuffer slab = slabs.peekLast();
+            int at = writePos;
+            slab.putInt(at, k.length);
+            slab.putInt(at + 4, v.length);
+            slab.putLong(at + 8, expiresAt);
+            slab.put(at + HEADER, k);
+            slab.put(at + HEADER + k.length, v);
+            writePos += len;
+
+            putIndex(h, (firstSlabId + slabs.size() - 1) << 32 | at);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String key) {
+        long h = hash(key.getBytes(StandardCharsets.UTF_8));
+        lock.writeLock().lock();
+        try {
+            removeLocked(h);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(keys, 0);
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // direct memory in use (allocated slabs)
+    public long bytes() {
+        lock.readLock().lock();
+        try {
+            return (long) slabs.size() * slabBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long evictedEntries() {
+        lock.readLock().lock();
+        try {
+            return evictedEntries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------- slabs ----------------
+
+    private ByteBuffer slab(long slabId) {
+        int i = (int) (slabId - firstSlabId);
+        // the deque has no index access; slabs are few, walk from the nearer end
+        if (i >= slabs.size() / 2) {
+            var it = slabs.descendingIterator();
+            for (int n = slabs.size() - 1; n > i; n--) it.next();
+            return it.next();
+        }
+        var it = slabs.iterator();
+        for (int n = 0; n < i; n++) it.next();
+        return it.next();
+    }
+
+    private void nextSlab() {
+        // end marker, a reused slab may hold older records behind the new ones
+        ByteBuffer cur = slabs.peekLast();
+        if (cur != null && writePos + HEADER <= slabBytes) cur.putInt(writePos, 0).putInt(writePos + 4, 0);
+
+        ByteBuffer buf;
+        if (slabs.size() >= maxSlabs) {
+            buf = slabs.peekFirst();
+            evictOldest();
+        } else {
+            buf = ByteBuffer.allocateDirect(slabBytes);
+        }
+        slabs.addLast(buf);
+        writePos = 0;
+    }
+
+    // drops every index entry that still points into the oldest slab (never the one being written)
+    private void evictOldest() {
+        ByteBuffer slab = slabs.peekFirst();
+        long slabId = firstSlabId;
+        int at = 0;
+        while (at + HEADER <= slabBytes) {
+            int keyLen = slab.getInt(at);
+            int valueLen = slab.getInt(at + 4);
+            if (keyLen == 0) break;
+
+            byte[] k = new byte[keyLen];
+            slab.get(at + HEADER, k);
+            long h = hash(k);
+            int slot = find(h);
+            if (slot >= 0 && locs[slot] == (slabId << 32 | at)) {
+                deleteSlot(slot);
+                evictedEntries++;
+            }
+            at += HEADER + keyLen + valueLen;
+        }
+        slabs.pollFirst();
+        firstSlabId++;
+    }
+
+    private static boolean sameKey(ByteBuffer slab, int at, byte[] k) {
+        for (int i = 0; i < k.length; i++) {
+            if (slab.get(at + i) != k[i]) return false;
+        }
+        return true;
+    }
+
+    // ---------------- index (linear probing, backward-shift deletion) ----------------
+
+    private int find(long h) {
+        int mask = keys.length - 1;
+        for (int i = mix(h) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == 0) return -1;
+            if (keys[i] == h) return i;
+        }
+    }
+
+    private void putIndex(long h, long loc) {
+        if ((size + 1) * 4L > keys.length * 3L) grow();
+        int mask = keys.length - 1;
+        for (int i = mix(h) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == 0) {
+                keys[i] = h;
+                locs[i] = loc;
+                size++;
+                return;
+            }
+            if (keys[i] == h) {
+                locs[i] = loc;
+                return;
+            }
+        }
+    }
+
+    private void removeLocked(long h) {
+        int slot = find(h);
+        if (slot >= 0) deleteSlot(slot);
+    }
+
+    private void deleteSlot(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            int home = mix(keys[i]) & mask;
+            // move the entry into the hole unless its home lies cyclically in (hole, i]
+            boolean stays = hole <= i ? (home > hole && home <= i) : (home > hole || home <= i);
+            if (!stays) {
+                keys[hole] = keys[i];
+                locs[hole] = locs[i];
+                hole = i;
+            }
+        }
+        keys[hole] = 0;
+        size--;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys, oldLocs = locs;
+        keys = new long[oldKeys.length * 2];
+        locs = new long[oldLocs.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) putIndex(oldKeys[i], oldLocs[i]);
+        }
+    }
+
+    private static int mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    // FNV-1a 64 + finalizer; never 0 (the empty marker)
+    private static long hash(byte[] k) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : k) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 29;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 32;
+        return h == 0 ? 1 : h;
+    }
+}
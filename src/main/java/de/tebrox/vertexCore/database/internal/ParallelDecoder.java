@@ -0,0 +1,70 @@
+package de.tebrox.vertexCore.database.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Splits raw rows into chunks and decodes them on a dedicated ForkJoinPool.
+ * The calling thread only waits; it never decodes itself. Chunks are collected as they finish:
+ * without preserveOrder the result is in completion order, and a failing chunk fails the call
+ * without waiting for the chunks before it.
+ */
+public final class ParallelDecoder {
+    private ParallelDecoder() {}
+
+    public static <T> List<T> decode(ForkJoinPool pool, List<String[]> rows, int chunkSize, boolean preserveOrder,
+                                     Function<String[], T> decoder) {
+        int size = rows.size();
+        int chunk = Math.max(1, chunkSize);
+        int chunks = (size + chunk - 1) / chunk;
+
+        Object[] ordered = preserveOrder ? new Object[size] : null;
+        CompletionService<List<T>> done = new ExecutorCompletionService<>(pool);
+        List<Future<List<T>>> futures = new ArrayList<>(chunks);
+
+        for (int c = 0; c < chunks; c++) {
+            int from = c * chunk;
+            int to = Math.min(size, from + chunk);
+            futures.add(done.submit(() -> {
+                if (ordered != null) {
+                    // disjoint ranges of one array; Future.get() publishes the writes to the caller
+                    for (int i = from; i < to; i++) ordered[i] = decoder.apply(rows.get(i));
+                    return null;
+                }
+                List<T> part = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) part.add(decoder.apply(rows.get(i)));
+                return part;
+            }));
+        }
+
+        List<T> out = preserveOrder ? null : new ArrayList<>(size);
+        for (int c = 0; c < chunks; c++) {
+            try {
+                List<T> part = done.take().get();
+                if (out != null) out.addAll(part);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(x -> x.cancel(true));
+                throw new RuntimeException("Parallel decode interrupted", e);
+            } catch (ExecutionException e) {
+                futures.forEach(x -> x.cancel(true));
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException re) throw re;
+                throw new RuntimeException("Parallel decode failed", cause);
+            }
+        }
+
+        if (out != null) return out;
+
+        @SuppressWarnings("unchecked")
+        List<T> result = (List<T>) Arrays.asList(ordered);
+        return new ArrayList<>(result);
+    }
+}
@@ -0,0 +1,259 @@
+package de.tebrox.vertexCore.database.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Order-statistic treap over (score desc, id asc).
+ * Update, remove, rank and select are O(log n) expected; one score per id.
+ */
+public final class RankedIndex {
+
+    private final Map<String, Double> scores = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root;
+
+    // ids written while the initial scan runs; the scan must not overwrite them with older values
+    private Set<String> touched = new HashSet<>();
+    private boolean building = true;
+
+    public void put(String id, double score) {
+        lock.writeLock().lock();
+        try {
+            if (building) touched.add(id);
+            putLocked(id, score);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(String id, double delta) {
+        lock.writeLock().lock();
+        try {
+            if (building) touched.add(id);
+            Double cur = scores.get(id);
+            // unknown ids are picked up by the scan or their next save
+            if (cur != null) putLocked(id, cur + delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            if (building) touched.add(id);
+            Double cur = scores.remove(id);
+            if (cur != null) root = remove(root, cur, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            scores.clear();
+            root = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // initial scan only: ignored for ids that were written since the scan started
+    public void putScanned(String id, double score) {
+        lock.writeLock().lock();
+        try {
+            if (!touched.contains(id)) putLocked(id, score);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishBuild() {
+        lock.writeLock().lock();
+        try {
+            building = false;
+            touched = Set.of();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return scores.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Double score(String id) {
+        lock.readLock().lock();
+        try {
+            return scores.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 1-based, -1 if the id is not ranked
+    public int rank(String id) {
+        lock.readLock().lock();
+        try {
+            Double score = scores.get(id);
+            if (score == null) return -1;
+
+            int before = 0;
+            Node n = root;
+            while (n != null) {
+                int c = compare(score, id, n.score, n.id);
+                if (c == 0) return before + size(n.left) + 1;
+                if (c < 0) {
+                    n = n.left;
+                } else {
+                    before += size(n.left) + 1;
+                    n = n.right;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // visits ranks [fromRank, fromRank + count) in order; O(log n + count)
+    public void range(int fromRank, int count, BiConsumer<String, Double> visitor) {
+        if (fromRank < 1 || count <= 0) return;
+        lock.readLock().lock();
+        try {
+            List<Node> stack = new ArrayList<>();
+            int skip = fromRank - 1;
+            Node n = root;
+            // descend to the first node of the range, keeping the path of pending parents
+            while (n != null) {
+                int left = size(n.left);
+                if (skip < left) {
+                    stack.add(n);
+                    n = n.left;
+                } else if (skip == left) {
+                    stack.add(n);
+                    break;
+                } else {
+                    skip -= left + 1;
+                    n = n.right;
+                }
+            }
+            while (count-- > 0 && !stack.isEmpty()) {
+                Node cur = stack.remove(stack.size() - 1);
+                visitor.accept(cur.id, cur.score);
+                for (Node r = cur.right; r != null; r = r.left) stack.add(r);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putLocked(String id, double score) {
+        Double old = scores.put(id, score);
+        if (old != null) {
+            if (Double.compare(old, score) == 0) return;
+            root = remove(root, old, id);
+        }
+        root = insert(root, new Node(id, score));
+    }
+
+    // higher scores first, ties by id so the order is total
+    private static int compare(double s1, String id1, double s2, String id2) {
+        int c = Double.compare(s2, s1);
+        return c != 0 ? c : id1.compareTo(id2);
+    }
+
+    private static Node insert(Node n, Node x) {
+        if (n == null) return x;
+        if (compare(x.score, x.id, n.score, n.id) < 0) {
+            n.left = insert(n.left, x);
+            if (n.left.priority > n.priority) n = rotateRight(n);
+        } else {
+            n.right = insert(n.right, x);
+            if (n.right.priority > n.priority) n = rotateLeft(n);
+        }
+        n.update();
+        return n;
+    }
+
+    private static Node remove(Node n, double score, String id) {
+        if (n == null) return null;
+        int c = compare(score, id, n.score, n.id);
+        if (c < 0) {
+            n.left = remove(n.left, score, id);
+        } else if (c > 0) {
+            n.right = remove(n.right, score, id);
+        } else {
+            return merge(n.left, n.right);
+        }
+        n.update();
+        return n;
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            a.update();
+            return a;
+        }
+        b.left = merge(a, b.left);
+        b.update();
+        return b;
+    }
+
+    private static Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = n;
+        n.update();
+        l.update();
+        return l;
+    }
+
+    private static Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = n;
+        n.update();
+        r.update();
+        return r;
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static final class Node {
+        final String id;
+        final double score;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        Node left, right;
+        int size = 1;
+
+        Node(String id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        void update() {
+            size = 1 + RankedIndex.size(left) + RankedIndex.size(right);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package de.tebrox.vertexCore.database.internal;
+
+import de.tebrox.vertexCore.database.DatabaseSettings;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+public final class SettingsOverrides {
+    private SettingsOverrides() {}
+
+    // proxy instead of a hand written wrapper, so new settings can't be forgotten
+    public static DatabaseSettings withBackend(DatabaseSettings base, String backend) {
+        return (DatabaseSettings) Proxy.newProxyInstance(
+                DatabaseSettings.class.getClassLoader(),
+                new Class<?>[]{DatabaseSettings.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("backend") && method.getParameterCount() == 0) return backend;
+                    if (method.getName().equals("withBackend")) return withBackend(base, (String) args[0]);
+                    // routing belongs to the original settings: a class without a route lives on base.backend(),
+                    // not on the backend of this view
+                    if (method.getName().equals("forType")) return base.forType((Class<?>) args[0]);
+                    try {
+                        return method.invoke(base, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,168 @@
+package de.tebrox.vertexCore.database.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Read-only, memory-mapped table snapshot: header (magic, format, high-water mark),
+ * entries [idLen, id, jsonLen, json], end marker (-1), entry count, magic.
+ * Opening only scans the id part of each entry; json is decoded on access.
+ */
+public final class SnapshotFile {
+
+    private static final int MAGIC = 0x56435350; // "VCSP"
+    private static final int FORMAT = 1;
+    private static final int HEADER = 4 + 4 + 8;
+
+    private final MappedByteBuffer buf;
+    private final long highWater;
+    // id -> offset of the json length
+    private final Map<String, Integer> index;
+
+    private SnapshotFile(MappedByteBuffer buf, long highWater, Map<String, Integer> index) {
+        this.buf = buf;
+        this.highWater = highWater;
+        this.index = index;
+    }
+
+    // null if the file is missing, truncated (crash while writing) or from another format
+    public static SnapshotFile open(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) return null;
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            // a single mapping is limited to 2 GiB
+            if (size < HEADER + 12 || size > Integer.MAX_VALUE) return null;
+
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT) return null;
+            long highWater = buf.getLong(8);
+
+            Map<String, Integer> index = new HashMap<>();
+            int pos = HEADER;
+            int limit = (int) size;
+            while (true) {
+                if (pos + 4 > limit) return null;
+                int idLen = buf.getInt(pos);
+                if (idLen == -1) break;
+                if (idLen < 0 || pos + 4 + idLen + 4 > limit) return null;
+
+                byte[] id = new byte[idLen];
+                buf.get(pos + 4, id);
+                int jsonAt = pos + 4 + idLen;
+                int jsonLen = buf.getInt(jsonAt);
+                if (jsonLen < 0 || jsonAt + 4L + jsonLen > limit) return null;
+
+                index.put(new String(id, StandardCharsets.UTF_8), jsonAt);
+                pos = jsonAt + 4 + jsonLen;
+            }
+            if (pos + 12 != limit || buf.getInt(pos + 4) != index.size() || buf.getInt(pos + 8) != MAGIC) return null;
+
+            return new SnapshotFile(buf, highWater, index);
+        }
+    }
+
+    public long highWater() {
+        return highWater;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public Set<String> ids() {
+        return index.keySet();
+    }
+
+    public boolean contains(String uniqueId) {
+        return index.containsKey(uniqueId);
+    }
+
+    public String get(String uniqueId) {
+        Integer at = index.get(uniqueId);
+        return at == null ? null : json(at);
+    }
+
+    public void forEach(BiConsumer<String, String> consumer) {
+        index.forEach((id, at) -> consumer.accept(id, json(at)));
+    }
+
+    private String json(int at) {
+        byte[] bytes = new byte[buf.getInt(at)];
+        buf.get(at + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static Writer writer(Path file, long highWater) throws IOException {
+        return new Writer(file, highWater);
+    }
+
+    // writes next to the target and moves it in place on commit; an unfinished file is never opened
+    public static final class Writer implements Closeable {
+        private final Path target;
+        private final Path tmp;
+        private final DataOutputStream out;
+        private int count;
+        private boolean committed;
+
+        private Writer(Path target, long highWater) throws IOException {
+            this.target = target;
+            this.tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            OutputStream os = Files.newOutputStream(tmp);
+            this.out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(highWater);
+        }
+
+        public void write(String uniqueId, String json) throws IOException {
+            byte[] id = uniqueId.getBytes(StandardCharsets.UTF_8);
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(id.length);
+            out.write(id);
+            out.writeInt(body.length);
+            out.write(body);
+            count++;
+        }
+
+        public void commit() throws IOException {
+            out.writeInt(-1);
+            out.writeInt(count);
+            out.writeInt(MAGIC);
+            out.close();
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ch.force(true);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // the old file may still be mapped (Windows) -> copy over it instead
+                Files.copy(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                Files.deleteIfExists(tmp);
+            }
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (committed) return;
+            out.close();
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
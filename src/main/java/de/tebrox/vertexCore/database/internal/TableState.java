@@ -0,0 +1,162 @@
+package de.tebrox.vertexCore.database.internal;
+
+import de.tebrox.vertexCore.database.DataObject;
+import de.tebrox.vertexCore.database.DatabaseSettings;
+import de.tebrox.vertexCore.database.Leaderboard;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// runtime state shared by every Database<T> of one (plugin, backend, table)
+public final class TableState {
+
+    private final Plugin owner;
+    private final DatabaseSettings settings;
+    private final String table;
+
+    private final CounterBuffer counters = new CounterBuffer();
+    private final AtomicBoolean counterFlushScheduled = new AtomicBoolean();
+    private volatile String counterTemplate;
+    // fields ever incremented; objects loaded later get a mark on them even if nothing is pending
+    private final Set<String> counterFields = ConcurrentHashMap.newKeySet();
+    // id -> loaded objects with the counter mark of their load, kept until the object is collected.
+    // Lists are replaced, never changed in place.
+    private final Map<String, List<Absorbed>> absorbed = new ConcurrentHashMap<>();
+    private final ReferenceQueue<DataObject> collected = new ReferenceQueue<>();
+
+    // field -> ranking, kept current by writes through Database
+    private final Map<String, Leaderboard> leaderboards = new ConcurrentHashMap<>();
+
+    // resident tables: immutable id -> object map, replaced (copy-on-write) under residentLock
+    private volatile Map<String, DataObject> resident;
+    private final Object residentLock = new Object();
+
+    // id -> running loadObjectAsync, joined by concurrent loads of the same id
+    private final Map<String, CompletableFuture<?>> inflight = new ConcurrentHashMap<>();
+
+    // session tables: objects of online players (id -> object) and the ids changed since the last write
+    private final Map<String, DataObject> sessions = new ConcurrentHashMap<>();
+    private final Set<String> dirtySessions = ConcurrentHashMap.newKeySet();
+    // players who left while their write-back failed: pinned again until a later write succeeds
+    private final Set<String> detachedSessions = ConcurrentHashMap.newKeySet();
+    private volatile Class<? extends DataObject> sessionType;
+    private final AtomicBoolean sessionAutosaveScheduled = new AtomicBoolean();
+
+    public TableState(Plugin owner, DatabaseSettings settings, String table) {
+        this.owner = owner;
+        this.settings = settings;
+        this.table = table;
+    }
+
+    public Plugin owner() { return owner; }
+    public DatabaseSettings settings() { return settings; }
+    public String table() { return table; }
+
+    public CounterBuffer counters() { return counters; }
+    public Map<String, Leaderboard> leaderboards() { return leaderboards; }
+
+    public Map<String, CompletableFuture<?>> inflight() { return inflight; }
+
+    public Map<String, DataObject> sessions() { return sessions; }
+    public Set<String> dirtySessions() { return dirtySessions; }
+    public Set<String> detachedSessions() { return detachedSessions; }
+    public Class<? extends DataObject> sessionType() { return sessionType; }
+    public void sessionType(Class<? extends DataObject> type) { this.sessionType = type; }
+
+    public boolean markSessionAutosaveScheduled() {
+        return sessionAutosaveScheduled.compareAndSet(false, true);
+    }
+
+    public Map<String, DataObject> resident() { return resident; }
+    public void resident(Map<String, DataObject> snapshot) { this.resident = snapshot; }
+    public Object residentLock() { return residentLock; }
+
+    // json of a fresh object; used when counters are flushed for an id that has no row yet
+    public String counterTemplate() { return counterTemplate; }
+    public void counterTemplate(String json) { this.counterTemplate = json; }
+
+    // includes deltas a running flush is writing, so reads never go backwards
+    public Map<String, Long> pendingDeltas(String uniqueId) {
+        return counters.pending(uniqueId);
+    }
+
+    public void counterField(String field) {
+        counterFields.add(field);
+    }
+
+    // marks obj as loaded now: returns the pending deltas it has to apply (empty if there are none).
+    // The mark stays with obj, so saves know which deltas were written after the load.
+    // Fields never incremented before the load aren't covered.
+    public Map<String, Long> absorbPending(DataObject obj) {
+        expungeAbsorbed();
+        CounterBuffer.Mark mark = counters.absorb(obj.getUniqueId(), counterFields);
+        if (mark == null) return Map.of();
+        absorbed.compute(obj.getUniqueId(), (id, list) -> {
+            List<Absorbed> out = list == null ? new ArrayList<>(1) : new ArrayList<>(list);
+            out.add(new Absorbed(obj, mark, collected));
+            return out;
+        });
+        return mark.deltas();
+    }
+
+    public boolean hasAbsorbed(DataObject obj) {
+        return markOf(obj) != null;
+    }
+
+    // deltas written by flushes (or saves of other copies) since obj was loaded; a save of obj has to add
+    // them, obj doesn't contain them. Caller holds this state, so no flush runs in between.
+    public Map<String, Long> writtenSinceLoad(DataObject obj) {
+        CounterBuffer.Mark mark = markOf(obj);
+        return mark == null ? Map.of() : counters.writtenSince(mark);
+    }
+
+    // obj was written: the deltas it took over at load leave the buffer, later ones stay pending.
+    // Caller holds this state, like a flush.
+    public void consumeAbsorbed(DataObject obj) {
+        CounterBuffer.Mark mark = markOf(obj);
+        if (mark != null) counters.consume(mark);
+    }
+
+    // releases the marks of collected objects
+    public void expungeAbsorbed() {
+        Reference<? extends DataObject> ref;
+        while ((ref = collected.poll()) != null) {
+            Absorbed gone = (Absorbed) ref;
+            counters.release(gone.mark);
+            absorbed.computeIfPresent(gone.mark.uniqueId(), (id, list) -> {
+                List<Absorbed> out = new ArrayList<>(list);
+                out.remove(gone);
+                return out.isEmpty() ? null : out;
+            });
+        }
+    }
+
+    private CounterBuffer.Mark markOf(DataObject obj) {
+        List<Absorbed> list = absorbed.get(obj.getUniqueId());
+        if (list == null) return null;
+        for (Absorbed a : list) if (a.get() == obj) return a.mark;
+        return null;
+    }
+
+    public boolean markCounterFlushScheduled() {
+        return counterFlushScheduled.compareAndSet(false, true);
+    }
+
+    private static final class Absorbed extends WeakReference<DataObject> {
+        final CounterBuffer.Mark mark;
+
+        Absorbed(DataObject obj, CounterBuffer.Mark mark, ReferenceQueue<DataObject> queue) {
+            super(obj, queue);
+            this.mark = mark;
+        }
+    }
+}
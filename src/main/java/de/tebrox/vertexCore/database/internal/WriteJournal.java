@@ -0,0 +1,296 @@
+package de.tebrox.vertexCore.database.internal;
+
+import de.tebrox.vertexCore.database.DatabaseBackend.WriteOp;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of writes that were accepted but not yet applied to the backend.
+ * Records: [length, crc32, seq, type, table, id, json?]; a DONE record marks an entry as applied.
+ * Appends only encode into memory; one flusher thread writes everything pending sequentially
+ * and fsyncs once per batch (group commit). A torn tail after a crash is ignored on reading.
+ * On open the previous file is moved aside: its unapplied entries are {@link #recovered()} and
+ * the file is dropped once they are applied ({@link #recoveredApplied()}).
+ */
+public final class WriteJournal implements Closeable {
+
+    private static final byte SAVE = 1, DELETE = 2, DONE = 3;
+    // truncate once everything is applied and the file got this big
+    private static final long COMPACT_BYTES = 4L * 1024 * 1024;
+
+    private final Path file;
+    private final Path previous;
+    private final FileChannel ch;
+    private final Thread flusher;
+    private final List<WriteOp> recovered;
+    // "table|id" written since open; recovered entries for these are outdated
+    private final Set<String> touched = new HashSet<>();
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(8192);
+    private final Set<Long> unapplied = new HashSet<>();
+    private long nextSeq = 1;
+    private long fileBytes;
+    private boolean closed;
+    private IOException failure;
+
+    private WriteJournal(Path file, Path previous, FileChannel ch, List<WriteOp> recovered) {
+        this.file = file;
+        this.previous = previous;
+        this.ch = ch;
+        this.recovered = recovered;
+        this.flusher = new Thread(this::flushLoop, "VertexCore-Journal-" + file.getFileName());
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public static WriteJournal open(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path previous = file.resolveSibling(file.getFileName() + ".replay");
+
+        // a .replay left over from a crash during replay is older than the current file
+        TreeMap<Long, WriteOp> open = new TreeMap<>();
+        read(previous, open);
+        if (Files.exists(file) && Files.size(file) > 0) {
+            read(file, open);
+            List<WriteOp> all = new ArrayList<>(open.values());
+            try (FileChannel out = FileChannel.open(previous, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                long seq = 1;
+                for (WriteOp op : all) writeFully(out, record(seq++, op.isDelete() ? DELETE : SAVE, op));
+                out.force(true);
+            }
+            Files.delete(file);
+        }
+
+        // last write per row wins
+        Map<String, WriteOp> latest = new LinkedHashMap<>();
+        for (WriteOp op : open.values()) {
+            latest.remove(op.table() + "|" + op.uniqueId());
+            latest.put(op.table() + "|" + op.uniqueId(), op);
+        }
+        if (latest.isEmpty()) Files.deleteIfExists(previous);
+
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new WriteJournal(file, previous, ch, new ArrayList<>(latest.values()));
+    }
+
+    // ---------------- writing ----------------
+
+    // returns the sequence number to pass to done(); does not wait for the disk
+    public synchronized long append(WriteOp op) {
+        if (closed) throw new IllegalStateException("Journal closed: " + file);
+        if (failure != null) throw new UncheckedIOException("Journal not writable: " + file, failure);
+        long seq = nextSeq++;
+        pending.writeBytes(record(seq, op.isDelete() ? DELETE : SAVE, op));
+        unapplied.add(seq);
+        if (!recovered.isEmpty()) touched.add(op.table() + "|" + op.uniqueId());
+        notifyAll();
+        return seq;
+    }
+
+    public synchronized void done(long seq) {
+        if (closed || !unapplied.remove(seq)) return;
+        pending.writeBytes(record(seq, DONE, null));
+        notifyAll();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            synchronized (this) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.size() == 0) return;
+                batch = pending;
+                pending = new ByteArrayOutputStream(8192);
+            }
+
+            try {
+                writeFully(ch, batch.toByteArray());
+                ch.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+                return;
+            }
+
+            synchronized (this) {
+                fileBytes += batch.size();
+                if (unapplied.isEmpty() && pending.size() == 0 && fileBytes > COMPACT_BYTES) truncate();
+                notifyAll();
+            }
+        }
+    }
+
+    // caller holds the monitor, nothing is pending or unapplied
+    private void truncate() {
+        try {
+            ch.truncate(0);
+            ch.position(0);
+            fileBytes = 0;
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    // ---------------- recovery ----------------
+
+    // unapplied writes of the previous run (last per row), minus rows written since open
+    public synchronized List<WriteOp> recovered() {
+        List<WriteOp> out = new ArrayList<>(recovered.size());
+        for (WriteOp op : recovered) {
+            if (!touched.contains(op.table() + "|" + op.uniqueId())) out.add(op);
+        }
+        return out;
+    }
+
+    public synchronized void recoveredApplied() throws IOException {
+        recovered.clear();
+        touched.clear();
+        Files.deleteIfExists(previous);
+    }
+
+    private static void read(Path path, TreeMap<Long, WriteOp> open) throws IOException {
+        if (!Files.exists(path)) return;
+
+        TreeMap<Long, WriteOp> local = new TreeMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                byte[] payload = nextRecord(in);
+                if (payload == null) break;
+
+                DataInputStream r = new DataInputStream(new ByteArrayInputStream(payload));
+                long seq = r.readLong();
+                byte type = r.readByte();
+                if (type == DONE) {
+                    // an applied write also supersedes older unapplied writes of the same row
+                    WriteOp applied = local.remove(seq);
+                    if (applied != null) {
+                        local.headMap(seq).values().removeIf(op -> op.table().equals(applied.table())
+                                && op.uniqueId().equals(applied.uniqueId()));
+                    }
+                    continue;
+                }
+                String table = r.readUTF();
+                String id = r.readUTF();
+                String json = null;
+                if (type == SAVE) {
+                    byte[] body = new byte[r.readInt()];
+                    r.readFully(body);
+                    json = new String(body, StandardCharsets.UTF_8);
+                }
+                local.put(seq, new WriteOp(table, id, json));
+            }
+        }
+        // sequence numbers restart per file: keep the order of files
+        long base = open.isEmpty() ? 0 : open.lastKey();
+        local.forEach((seq, op) -> open.put(base + seq, op));
+    }
+
+    // null at the end or at a torn / corrupt record
+    private static byte[] nextRecord(DataInputStream in) throws IOException {
+        int len;
+        try {
+            len = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (len <= 0 || len > 64 * 1024 * 1024) return null;
+        int crc;
+        byte[] payload = new byte[len];
+        try {
+            crc = in.readInt();
+            in.readFully(payload);
+        } catch (EOFException e) {
+            return null;
+        }
+        CRC32 c = new CRC32();
+        c.update(payload);
+        return (int) c.getValue() == crc ? payload : null;
+    }
+
+    private static byte[] record(long seq, byte type, WriteOp op) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+            DataOutputStream d = new DataOutputStream(body);
+            d.writeLong(seq);
+            d.writeByte(type);
+            if (type != DONE) {
+                d.writeUTF(op.table());
+                d.writeUTF(op.uniqueId());
+                if (type == SAVE) {
+                    byte[] json = op.json().getBytes(StandardCharsets.UTF_8);
+                    d.writeInt(json.length);
+                    d.write(json);
+                }
+            }
+            byte[] payload = body.toByteArray();
+            CRC32 c = new CRC32();
+            c.update(payload);
+
+            ByteBuffer out = ByteBuffer.allocate(8 + payload.length);
+            out.putInt(payload.length).putInt((int) c.getValue()).put(payload);
+            return out.array();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeFully(FileChannel ch, byte[] bytes) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    // ---------------- shutdown ----------------
+
+    // writes what is pending; unapplied entries stay in the file for the next start
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean empty;
+        synchronized (this) {
+            empty = unapplied.isEmpty();
+        }
+        ch.close();
+        if (empty) Files.deleteIfExists(file);
+        if (failure != null) throw failure;
+    }
+}
@@ -9,6 +9,7 @@ import de.tebrox.vertexCore.database.internal.TableNamer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 public final class DatabaseMigrationRunner {
 
@@ -21,11 +22,27 @@ public final class DatabaseMigrationRunner {
             Class<?>[] dataClasses,
             MigrationOptions opt,
             MigrationProgress progress
+    ) {
+        return migrateAll(type -> source, type -> target, tablePrefix, dataClasses, opt, progress);
+    }
+
+    // per-table source/target (e.g. tables routed to different backends); tables whose source is the target are skipped
+    public List<MigrationResult> migrateAll(
+            Function<Class<?>, DatabaseBackend> source,
+            Function<Class<?>, DatabaseBackend> target,
+            String tablePrefix,
+            Class<?>[] dataClasses,
+            MigrationOptions opt,
+            MigrationProgress progress
     ) {
         List<MigrationResult> results = new ArrayList<>(dataClasses.length);
         for (Class<?> clazz : dataClasses) {
+            DatabaseBackend from = source.apply(clazz);
+            DatabaseBackend to = target.apply(clazz);
+            if (from == to) continue;
+
             String table = TableNamer.tableName(tablePrefix, clazz);
-            results.add(migrator.migrateTableRaw(source, target, table, opt, progress));
+            results.add(migrator.migrateTableRaw(from, to, table, opt, progress));
         }
         return results;
     }
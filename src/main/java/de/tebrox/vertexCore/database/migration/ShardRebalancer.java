@@ -0,0 +1,72 @@
+package de.tebrox.vertexCore.database.migration;
+
+import de.tebrox.vertexCore.database.DatabaseBackend;
+import de.tebrox.vertexCore.database.backend.ShardedDatabaseBackend;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// moves rows to their owning shard after shards were added; counts as "migrated" / "skipped" (owner had a newer copy)
+public final class ShardRebalancer {
+
+    public List<MigrationResult> rebalanceAll(
+            ShardedDatabaseBackend backend,
+            List<String> tables,
+            MigrationOptions opt,
+            MigrationProgress progress) {
+        List<MigrationResult> results = new ArrayList<>(tables.size());
+        long failed = 0;
+        for (String table : tables) {
+            MigrationResult r = rebalanceTable(backend, table, opt, progress);
+            results.add(r);
+            failed += r.failed;
+        }
+        // only then reads stop looking for rows on their old shard
+        if (!opt.dryRun && failed == 0) backend.completeRebalance();
+        return results;
+    }
+
+    public MigrationResult rebalanceTable(
+            ShardedDatabaseBackend backend,
+            String table,
+            MigrationOptions opt,
+            MigrationProgress progress) {
+        Map<DatabaseBackend, List<String>> misplaced = backend.misplaced(table);
+        long total = misplaced.values().stream().mapToLong(List::size).sum();
+
+        if (progress != null) progress.onStart(table, total);
+
+        long migrated = 0;
+        long skipped = 0;
+        long failed = 0;
+        long processed = 0;
+        int chunkSize = Math.max(1, opt.batchSize);
+
+        for (Map.Entry<DatabaseBackend, List<String>> e : misplaced.entrySet()) {
+            List<String> ids = e.getValue();
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<String> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+                processed += chunk.size();
+
+                if (opt.dryRun) {
+                    migrated += chunk.size();
+                } else {
+                    try {
+                        ShardedDatabaseBackend.MoveResult r = backend.move(table, e.getKey(), chunk);
+                        migrated += r.moved();
+                        skipped += r.skipped();
+                    } catch (Exception ex) {
+                        failed += chunk.size();
+                    }
+                }
+
+                if (progress != null) progress.onProgress(table, processed, migrated, skipped, failed);
+            }
+        }
+
+        MigrationResult result = new MigrationResult(total, migrated, skipped, failed);
+        if (progress != null) progress.onDone(table, result);
+        return result;
+    }
+}
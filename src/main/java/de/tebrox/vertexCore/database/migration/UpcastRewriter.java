@@ -0,0 +1,100 @@
+package de.tebrox.vertexCore.database.migration;
+
+import de.tebrox.vertexCore.VertexCoreApi;
+import de.tebrox.vertexCore.database.DatabaseSettings;
+import de.tebrox.vertexCore.database.JsonCodec;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Re-saves rows with an outdated schema version in the background, at most rowsPerSecond rows per second.
+ * Batches run through the owner's AsyncQueue so they are ordered with the plugin's own async writes.
+ * The scan only collects ids; each row is re-read and written by the Database (rewrite), which skips
+ * expired rows and rows written by anyone else since the read.
+ */
+public final class UpcastRewriter<T> {
+
+    public enum Result { REWRITTEN, SKIPPED, RETRY }
+
+    private final Plugin owner;
+    private final DatabaseSettings settings;
+    private final Class<T> type;
+    private final String table;
+    private final int rowsPerSecond;
+    private final Function<String, Result> rewrite;
+
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private volatile boolean scanned;
+    private volatile BukkitTask task;
+
+    private long rewritten;
+
+    public UpcastRewriter(Plugin owner, DatabaseSettings settings, Class<T> type, String table, int rowsPerSecond,
+                          Function<String, Result> rewrite) {
+        this.owner = owner;
+        this.settings = settings;
+        this.type = type;
+        this.table = table;
+        this.rowsPerSecond = Math.max(1, rowsPerSecond);
+        this.rewrite = rewrite;
+    }
+
+    public BukkitTask start() {
+        task = Bukkit.getScheduler().runTaskTimerAsynchronously(VertexCoreApi.get().getCorePlugin(), this::tick, 20L, 20L);
+        return task;
+    }
+
+    private void tick() {
+        if (!owner.isEnabled()) {
+            task.cancel();
+            return;
+        }
+        if (!busy.compareAndSet(false, true)) return;
+
+        VertexCoreApi.get().databaseService()
+                .queueFor(owner, settings.timeoutMillis())
+                .submitVoid(scanned ? this::rewriteBatch : this::scan)
+                .whenComplete((v, err) -> {
+                    busy.set(false);
+                    if (err != null) {
+                        owner.getLogger().warning("[VertexCore] Upcast rewrite of " + table + " failed: " + err.getMessage());
+                        task.cancel();
+                    }
+                });
+    }
+
+    // streamed: only the outdated ids are kept
+    private void scan() {
+        JsonCodec codec = VertexCoreApi.get().json();
+        VertexCoreApi.get().backendFor(owner, settings).forEachRaw(table, (id, json) -> {
+            if (codec.isOutdated(type, json)) pending.add(id);
+        });
+        scanned = true;
+        owner.getLogger().info("[VertexCore] Upcast rewrite: " + pending.size() + " outdated rows in " + table);
+        if (pending.isEmpty()) task.cancel();
+    }
+
+    private void rewriteBatch() {
+        String id;
+        for (int i = 0; i < rowsPerSecond && (id = pending.poll()) != null; i++) {
+            switch (rewrite.apply(id)) {
+                case REWRITTEN -> rewritten++;
+                // written moments ago, the version can't tell a later save apart yet: next batch
+                case RETRY -> pending.add(id);
+                case SKIPPED -> { }
+            }
+        }
+
+        if (pending.isEmpty()) {
+            task.cancel();
+            owner.getLogger().info("[VertexCore] Upcast rewrite of " + table + " done (" + rewritten + " rows)");
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package de.tebrox.vertexCore.database.query;
+
+public enum AggregateFunction {
+    COUNT,
+    SUM,
+    MIN,
+    MAX,
+    AVG
+}
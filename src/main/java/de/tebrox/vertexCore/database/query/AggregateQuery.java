@@ -0,0 +1,37 @@
+package de.tebrox.vertexCore.database.query;
+
+import de.tebrox.vertexCore.database.internal.JsonFields;
+
+import java.util.Objects;
+
+/**
+ * Aggregate over a {@code @DbExpose} field, optionally grouped by another field.
+ * {@code field} may only be null for {@link AggregateFunction#COUNT} (counts rows).
+ */
+public record AggregateQuery(AggregateFunction function, String field, String groupBy) {
+
+    public AggregateQuery {
+        Objects.requireNonNull(function, "function");
+        if (field == null && function != AggregateFunction.COUNT) {
+            throw new IllegalArgumentException(function + " requires a field");
+        }
+        if (field != null) JsonFields.requireFieldName(field);
+        if (groupBy != null) JsonFields.requireFieldName(groupBy);
+    }
+
+    public static AggregateQuery of(AggregateFunction function, String field) {
+        return new AggregateQuery(function, field, null);
+    }
+
+    public static AggregateQuery count() {
+        return new AggregateQuery(AggregateFunction.COUNT, null, null);
+    }
+
+    public AggregateQuery groupBy(String groupField) {
+        return new AggregateQuery(function, field, groupField);
+    }
+
+    public boolean grouped() {
+        return groupBy != null;
+    }
+}
@@ -0,0 +1,44 @@
+package de.tebrox.vertexCore.database.query;
+
+import de.tebrox.vertexCore.database.internal.JsonFields;
+
+import java.util.Objects;
+
+/**
+ * Comparison of a {@code @DbExpose} field against a constant (number, string or boolean).
+ * Rows without the field never match. Several conditions are combined with AND.
+ */
+public record FieldCondition(String field, Op op, Object value) {
+
+    public enum Op {
+        EQ("="), NE("<>"), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String sql;
+
+        Op(String sql) {
+            this.sql = sql;
+        }
+
+        public String sql() {
+            return sql;
+        }
+    }
+
+    public FieldCondition {
+        JsonFields.requireFieldName(field);
+        Objects.requireNonNull(op, "op");
+        if (!(value instanceof Number || value instanceof String || value instanceof Boolean)) {
+            throw new IllegalArgumentException("Unsupported condition value: " + value);
+        }
+        if (value instanceof Boolean && op != Op.EQ && op != Op.NE) {
+            throw new IllegalArgumentException("Booleans only support EQ/NE");
+        }
+    }
+
+    public static FieldCondition eq(String field, Object value) { return new FieldCondition(field, Op.EQ, value); }
+    public static FieldCondition ne(String field, Object value) { return new FieldCondition(field, Op.NE, value); }
+    public static FieldCondition lt(String field, Object value) { return new FieldCondition(field, Op.LT, value); }
+    public static FieldCondition le(String field, Object value) { return new FieldCondition(field, Op.LE, value); }
+    public static FieldCondition gt(String field, Object value) { return new FieldCondition(field, Op.GT, value); }
+    public static FieldCondition ge(String field, Object value) { return new FieldCondition(field, Op.GE, value); }
+}
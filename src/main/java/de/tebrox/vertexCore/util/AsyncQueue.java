@@ -2,33 +2,70 @@ package de.tebrox.vertexCore.util;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
+/**
+ * Runs tasks one after another. With a timeout, each task gets a {@link Deadline} at submission:
+ * its future fails when the deadline passes, and if it hasn't started by then it is skipped
+ * instead of occupying the queue (and a connection) later.
+ */
 public final class AsyncQueue {
+
+    // waitNanos: submission -> start; execNanos: 0 for skipped tasks
+    @FunctionalInterface
+    public interface Listener {
+        void taskDone(long waitNanos, long execNanos, boolean skipped);
+    }
+
     private final Executor executor;
     private final long timeoutMillis;
+    private final Listener listener;
 
     private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
 
     public AsyncQueue(Executor executor, long timeoutMillis) {
+        this(executor, timeoutMillis, (wait, exec, skipped) -> {});
+    }
+
+    public AsyncQueue(Executor executor, long timeoutMillis, Listener listener) {
         this.executor = executor;
         this.timeoutMillis = timeoutMillis;
+        this.listener = listener;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return submit(task, timeoutMillis);
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task, long timeoutMillis) {
+        return submit(task, timeoutMillis, () -> {});
     }
 
-    public synchronized <T> CompletableFuture<T> submit(Supplier<T> task) {
-        CompletableFuture<T> next = tail.thenComposeAsync(v -> CompletableFuture.supplyAsync(task, executor), executor);
+    // onSkip runs instead of the task if it is skipped (e.g. to release what was reserved for it at submission)
+    public synchronized <T> CompletableFuture<T> submit(Supplier<T> task, long timeoutMillis, Runnable onSkip) {
+        Deadline deadline = timeoutMillis > 0 ? Deadline.after(timeoutMillis) : null;
+        long submitted = System.nanoTime();
 
-        if(timeoutMillis > 0) {
-            next = next.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
-        }
+        CompletableFuture<T> run = tail.thenComposeAsync(v -> CompletableFuture.supplyAsync(() -> {
+            long started = System.nanoTime();
+            boolean[] skipped = new boolean[1];
+            try {
+                return deadline == null ? task.get() : deadline.run(task, () -> {
+                    skipped[0] = true;
+                    onSkip.run();
+                });
+            } finally {
+                listener.taskDone(started - submitted, skipped[0] ? 0 : System.nanoTime() - started, skipped[0]);
+            }
+        }, executor), executor);
 
-        tail = next.handle((r, err) -> null);
+        // the next task starts when this one has finished (or was skipped), not when its future timed out
+        tail = run.handle((r, err) -> null);
 
-        return next;
+        return deadline == null ? run : deadline.bound(run);
     }
 
-    public synchronized CompletableFuture<Void> submitVoid(Runnable task) {
+    public CompletableFuture<Void> submitVoid(Runnable task) {
         return submit(() -> { task.run(); return null; });
     }
 }
@@ -0,0 +1,75 @@
+package de.tebrox.vertexCore.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Point in time an async task must be done by. While a task runs, its deadline is available to
+ * the code it calls through {@link #current()} (e.g. JDBC query timeouts from the remaining budget).
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long atNanos;
+    private final long millis;
+
+    private Deadline(long millis) {
+        this.millis = millis;
+        this.atNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public static Deadline after(long millis) {
+        return new Deadline(millis);
+    }
+
+    // deadline of the task running on this thread, null if it has none
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(atNanos - System.nanoTime());
+    }
+
+    public boolean expired() {
+        return System.nanoTime() - atNanos >= 0;
+    }
+
+    // runs task with this deadline as current(); a task whose deadline passed before it started is skipped
+    public <T> T run(Supplier<T> task) {
+        return run(task, () -> {});
+    }
+
+    // onSkip runs (on this thread) instead of a task that is skipped, before the TimeoutException is thrown
+    public <T> T run(Supplier<T> task, Runnable onSkip) {
+        if (expired()) {
+            onSkip.run();
+            throw new CompletionException(new TimeoutException("Deadline of " + millis + " ms passed before the task started"));
+        }
+
+        Deadline outer = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (outer == null) CURRENT.remove();
+            else CURRENT.set(outer);
+        }
+    }
+
+    // copy of f that fails with a TimeoutException at the deadline (scheduled on the Timeouts thread)
+    public <T> CompletableFuture<T> bound(CompletableFuture<T> f) {
+        CompletableFuture<T> out = f.copy();
+        if (out.isDone()) return out;
+
+        var timer = Timeouts.scheduler().schedule(
+                () -> out.completeExceptionally(new TimeoutException("Deadline of " + millis + " ms exceeded")),
+                Math.max(0, atNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        out.whenComplete((v, err) -> timer.cancel(false));
+        return out;
+    }
+}
@@ -0,0 +1,106 @@
+package de.tebrox.vertexCore.database.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the row and the loaded object are plain longs here; Database does the same with json and fields
+class CounterBufferTest {
+
+    private static final String ID = "p1";
+    private static final String FIELD = "kills";
+
+    private final CounterBuffer buffer = new CounterBuffer();
+    private long row = 10;
+
+    @Test
+    void loadIncrementFlushSave() {
+        buffer.add(ID, FIELD, 1);
+        CounterBuffer.Mark mark = buffer.absorb(ID, Set.of(FIELD));
+        long obj = row + mark.deltas().getOrDefault(FIELD, 0L);
+
+        buffer.add(ID, FIELD, 2);
+        flush();
+        assertEquals(13, row);
+
+        save(obj, mark);
+        assertEquals(13, row);
+        assertTrue(buffer.isEmpty());
+
+        buffer.add(ID, FIELD, 5);
+        flush();
+        assertEquals(18, row);
+    }
+
+    @Test
+    void repeatedSavesAddEveryFlushSinceLoad() {
+        CounterBuffer.Mark mark = buffer.absorb(ID, Set.of(FIELD));
+        long obj = row;
+
+        buffer.add(ID, FIELD, 2);
+        flush();
+        save(obj, mark);
+        assertEquals(12, row);
+
+        buffer.add(ID, FIELD, 4);
+        flush();
+        save(obj, mark);
+        assertEquals(16, row);
+    }
+
+    @Test
+    void incrementsAfterLoadStayPendingUntilFlushed() {
+        buffer.add(ID, FIELD, 1);
+        CounterBuffer.Mark mark = buffer.absorb(ID, Set.of(FIELD));
+        long obj = row + mark.deltas().getOrDefault(FIELD, 0L);
+
+        buffer.add(ID, FIELD, 2);
+        save(obj, mark);
+        assertEquals(11, row);
+        assertEquals(2, buffer.pending(ID, FIELD));
+
+        flush();
+        assertEquals(13, row);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void failedFlushKeepsDeltas() {
+        buffer.add(ID, FIELD, 3);
+        CounterBuffer.Drain drain = buffer.drain();
+        assertEquals(Map.of(ID, Map.of(FIELD, 3L)), drain.deltas());
+
+        // not committed: the write failed
+        assertFalse(buffer.isEmpty());
+        flush();
+        assertEquals(13, row);
+    }
+
+    @Test
+    void releasedMarkLeavesNothingBehind() {
+        CounterBuffer.Mark mark = buffer.absorb(ID, Set.of(FIELD));
+        buffer.add(ID, FIELD, 1);
+        flush();
+        buffer.release(mark);
+
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.pending(ID).isEmpty());
+        assertTrue(buffer.drain().isEmpty());
+    }
+
+    private void flush() {
+        CounterBuffer.Drain drain = buffer.drain();
+        row += drain.deltas().getOrDefault(ID, Map.of()).getOrDefault(FIELD, 0L);
+        buffer.commit(drain);
+    }
+
+    private void save(long obj, CounterBuffer.Mark mark) {
+        row = obj + buffer.writtenSince(mark).getOrDefault(FIELD, 0L);
+        buffer.consume(mark);
+    }
+}